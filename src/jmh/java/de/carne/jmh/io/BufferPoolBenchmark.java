@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2016-2021 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.jmh.io;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.carne.io.BufferPool;
+
+/**
+ * Benchmark {@linkplain BufferPool} against plain buffer allocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BufferPoolBenchmark {
+
+	@Param({ "4096", "65536" })
+	private int size;
+
+	/**
+	 * Benchmark plain byte array allocation.
+	 *
+	 * @return the allocated buffer.
+	 */
+	@Benchmark
+	public byte[] allocateBytes() {
+		return new byte[this.size];
+	}
+
+	/**
+	 * Benchmark pooled byte array acquisition.
+	 *
+	 * @return the acquired buffer.
+	 */
+	@Benchmark
+	public byte[] pooledBytes() {
+		byte[] buffer = BufferPool.acquireBytes(this.size);
+
+		BufferPool.release(buffer);
+		return buffer;
+	}
+
+	/**
+	 * Benchmark plain direct buffer allocation.
+	 *
+	 * @return the allocated buffer.
+	 */
+	@Benchmark
+	public ByteBuffer allocateDirect() {
+		return ByteBuffer.allocateDirect(this.size);
+	}
+
+	/**
+	 * Benchmark pooled direct buffer acquisition.
+	 *
+	 * @return the acquired buffer.
+	 */
+	@Benchmark
+	public ByteBuffer pooledDirect() {
+		ByteBuffer buffer = BufferPool.acquireDirect(this.size);
+
+		BufferPool.release(buffer);
+		return buffer;
+	}
+
+}
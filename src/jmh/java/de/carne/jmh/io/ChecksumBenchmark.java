@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2016-2021 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.jmh.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.NoSuchAlgorithmException;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.carne.io.Adler32Checksum;
+import de.carne.io.CRC32CChecksum;
+import de.carne.io.Checksum;
+import de.carne.io.ChecksumInputStream;
+import de.carne.io.IOUtil;
+import de.carne.io.MD5Checksum;
+import de.carne.io.NullOutputStream;
+import de.carne.io.SHA256Checksum;
+import de.carne.io.TreeChecksum;
+import de.carne.io.XXHash64Checksum;
+import de.carne.util.function.FunctionException;
+
+/**
+ * Benchmark {@linkplain Checksum} implementations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChecksumBenchmark {
+
+	@Param({ "MD5", "SHA-256", "CRC32C", "Adler32", "xxHash64" })
+	private String algorithm = "";
+
+	private static final int TREE_SEGMENT_SIZE = 1 << 16;
+
+	@Param({ "1024", "1048576" })
+	private int size;
+
+	private byte[] data = new byte[0];
+	private ByteBuffer directData = ByteBuffer.allocateDirect(0);
+	private Path file = Paths.get("");
+	private @Nullable Checksum checksum;
+
+	/**
+	 * Prepares the benchmark data.
+	 *
+	 * @throws NoSuchAlgorithmException if the requested algorithm is not available.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	@Setup(Level.Trial)
+	public void setup() throws NoSuchAlgorithmException, IOException {
+		this.data = new byte[this.size];
+		new Random(this.size).nextBytes(this.data);
+		this.directData = ByteBuffer.allocateDirect(this.size);
+		this.directData.put(this.data).flip();
+		this.file = Files.createTempFile(getClass().getSimpleName(), ".bin");
+		Files.write(this.file, this.data);
+		this.checksum = getChecksum(this.algorithm);
+	}
+
+	/**
+	 * Releases the benchmark data.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(this.file);
+	}
+
+	private static Checksum getChecksum(String algorithm) throws NoSuchAlgorithmException {
+		Checksum checksum;
+
+		switch (algorithm) {
+		case "MD5":
+			checksum = MD5Checksum.getInstance();
+			break;
+		case "SHA-256":
+			checksum = SHA256Checksum.getInstance();
+			break;
+		case "CRC32C":
+			checksum = CRC32CChecksum.getInstance();
+			break;
+		case "Adler32":
+			checksum = Adler32Checksum.getInstance();
+			break;
+		case "xxHash64":
+			checksum = XXHash64Checksum.getInstance();
+			break;
+		default:
+			throw new NoSuchAlgorithmException(algorithm);
+		}
+		return checksum;
+	}
+
+	private Checksum checksum() {
+		return Objects.requireNonNull(this.checksum);
+	}
+
+	/**
+	 * Benchmark {@linkplain Checksum#update(byte[])}.
+	 *
+	 * @return the checksum value.
+	 */
+	@Benchmark
+	public byte[] updateArray() {
+		Checksum checkedChecksum = checksum();
+
+		checkedChecksum.update(this.data);
+		return checkedChecksum.getValue();
+	}
+
+	/**
+	 * Benchmark {@linkplain Checksum#update(ByteBuffer)} using a direct buffer.
+	 *
+	 * @return the checksum value.
+	 */
+	@Benchmark
+	public byte[] updateDirectBuffer() {
+		Checksum checkedChecksum = checksum();
+
+		checkedChecksum.update(this.directData.duplicate());
+		return checkedChecksum.getValue();
+	}
+
+	/**
+	 * Benchmark {@linkplain ChecksumInputStream}.
+	 *
+	 * @return the checksum value.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	@Benchmark
+	public byte[] inputStream() throws IOException {
+		byte[] value;
+
+		try (ChecksumInputStream in = new ChecksumInputStream(new ByteArrayInputStream(this.data), checksum())) {
+			IOUtil.copyStream(new NullOutputStream(), in);
+			value = in.getChecksumValue();
+		}
+		return value;
+	}
+
+	/**
+	 * Benchmark {@linkplain ChecksumInputStream#transferTo(java.io.OutputStream)}.
+	 *
+	 * @return the checksum value.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	@Benchmark
+	public byte[] inputStreamTransferTo() throws IOException {
+		byte[] value;
+
+		try (ChecksumInputStream in = new ChecksumInputStream(new ByteArrayInputStream(this.data), checksum())) {
+			in.transferTo(new NullOutputStream());
+			value = in.getChecksumValue();
+		}
+		return value;
+	}
+
+	/**
+	 * Benchmark {@linkplain ChecksumInputStream} with mark/reset look ahead.
+	 *
+	 * @return the checksum value.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	@Benchmark
+	public byte[] inputStreamMarkReset() throws IOException {
+		byte[] value;
+
+		try (ChecksumInputStream in = new ChecksumInputStream(new ByteArrayInputStream(this.data), checksum())) {
+			byte[] lookAhead = new byte[16];
+
+			do {
+				in.mark(lookAhead.length);
+				in.read(lookAhead);
+				in.reset();
+			} while (in.skip(512) > 0);
+			value = in.getChecksumValue();
+		}
+		return value;
+	}
+
+	/**
+	 * Benchmark {@linkplain ChecksumInputStream} reading a file.
+	 *
+	 * @return the checksum value.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	@Benchmark
+	public byte[] inputStreamFile() throws IOException {
+		byte[] value;
+
+		try (ChecksumInputStream in = new ChecksumInputStream(Files.newInputStream(this.file), checksum())) {
+			IOUtil.copyStream(new NullOutputStream(), in);
+			value = in.getChecksumValue();
+		}
+		return value;
+	}
+
+	/**
+	 * Benchmark {@linkplain IOUtil#checksumFile(Checksum, Path)}.
+	 *
+	 * @return the checksum value.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	@Benchmark
+	public byte[] mappedFile() throws IOException {
+		Checksum checkedChecksum = checksum();
+
+		IOUtil.checksumFile(checkedChecksum, this.file);
+		return checkedChecksum.getValue();
+	}
+
+	/**
+	 * Benchmark {@linkplain TreeChecksum#checksum(FileChannel, java.util.function.Supplier, int)}.
+	 *
+	 * @return the checksum value.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	@Benchmark
+	public byte[] treeFile() throws IOException {
+		byte[] value;
+
+		try (FileChannel channel = FileChannel.open(this.file, StandardOpenOption.READ)) {
+			value = TreeChecksum.checksum(channel, () -> {
+				try {
+					return getChecksum(this.algorithm);
+				} catch (NoSuchAlgorithmException e) {
+					throw new FunctionException(e);
+				}
+			}, TREE_SEGMENT_SIZE);
+		}
+		return value;
+	}
+
+}
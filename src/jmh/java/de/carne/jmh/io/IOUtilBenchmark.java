@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2016-2021 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.jmh.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.carne.io.IOUtil;
+import de.carne.io.NullOutputStream;
+
+/**
+ * Benchmark {@linkplain IOUtil} copy and read functions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IOUtilBenchmark {
+
+	@Param({ "4096", "1048576", "16777216" })
+	private int size;
+
+	private byte[] data = new byte[0];
+	private File file = new File("");
+	private File copyFile = new File("");
+
+	/**
+	 * Prepares the benchmark data.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		this.data = new byte[this.size];
+		new Random(this.size).nextBytes(this.data);
+		this.file = Files.createTempFile(getClass().getSimpleName(), ".bin").toFile();
+		Files.write(this.file.toPath(), this.data);
+		this.copyFile = Files.createTempFile(getClass().getSimpleName(), ".bin").toFile();
+	}
+
+	/**
+	 * Releases the benchmark data.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(this.file.toPath());
+		Files.deleteIfExists(this.copyFile.toPath());
+	}
+
+	/**
+	 * Benchmark {@linkplain IOUtil#copyStream(java.io.OutputStream, java.io.InputStream)}.
+	 *
+	 * @return the number of copied bytes.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	@Benchmark
+	public long copyStream() throws IOException {
+		return IOUtil.copyStream(new NullOutputStream(), new ByteArrayInputStream(this.data));
+	}
+
+	/**
+	 * Benchmark {@linkplain IOUtil#copyFile(java.io.OutputStream, File)}.
+	 *
+	 * @return the number of copied bytes.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	@Benchmark
+	public long copyFile() throws IOException {
+		return IOUtil.copyFile(new NullOutputStream(), this.file);
+	}
+
+	/**
+	 * Benchmark {@linkplain IOUtil#copyFile(File, File)}.
+	 *
+	 * @return the number of copied bytes.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	@Benchmark
+	public long copyFileToFile() throws IOException {
+		return IOUtil.copyFile(this.copyFile, this.file);
+	}
+
+	/**
+	 * Benchmark
+	 * {@linkplain IOUtil#copyChannel(java.nio.channels.WritableByteChannel, java.nio.channels.ReadableByteChannel)}.
+	 *
+	 * @return the number of copied bytes.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	@Benchmark
+	public long copyChannel() throws IOException {
+		return IOUtil.copyChannel(Channels.newChannel(new NullOutputStream()),
+				Channels.newChannel(new ByteArrayInputStream(this.data)));
+	}
+
+	/**
+	 * Benchmark {@linkplain IOUtil#readAllBytes(java.io.InputStream)}.
+	 *
+	 * @return the read bytes.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	@Benchmark
+	public byte[] readAllBytesStream() throws IOException {
+		return IOUtil.readAllBytes(new ByteArrayInputStream(this.data));
+	}
+
+	/**
+	 * Benchmark {@linkplain IOUtil#readAllBytes(java.io.InputStream)} for a stream without size information.
+	 *
+	 * @return the read bytes.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	@Benchmark
+	public byte[] readAllBytesUnsizedStream() throws IOException {
+		return IOUtil.readAllBytes(new FilterInputStream(new ByteArrayInputStream(this.data)) {
+
+			@Override
+			public int available() throws IOException {
+				return 0;
+			}
+
+		});
+	}
+
+	/**
+	 * Benchmark {@linkplain IOUtil#readAllBytes(File)}.
+	 *
+	 * @return the read bytes.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	@Benchmark
+	public byte[] readAllBytesFile() throws IOException {
+		return IOUtil.readAllBytes(this.file);
+	}
+
+}
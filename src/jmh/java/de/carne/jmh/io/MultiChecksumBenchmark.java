@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2016-2021 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.jmh.io;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.carne.io.IOUtil;
+import de.carne.io.MD5Checksum;
+import de.carne.io.MultiChecksum;
+import de.carne.io.SHA256Checksum;
+
+/**
+ * Benchmark {@linkplain MultiChecksum} against calculating multiple checksums one after another.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MultiChecksumBenchmark {
+
+	@Param({ "1048576", "16777216" })
+	private int size;
+
+	private Path file = Paths.get("");
+	private ExecutorService executor = Executors.newFixedThreadPool(2);
+
+	/**
+	 * Prepares the benchmark data.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		byte[] data = new byte[this.size];
+
+		new Random(this.size).nextBytes(data);
+		this.file = Files.createTempFile(getClass().getSimpleName(), ".bin");
+		Files.write(this.file, data);
+		this.executor = Executors.newFixedThreadPool(2);
+	}
+
+	/**
+	 * Releases the benchmark data.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		this.executor.shutdown();
+		Files.deleteIfExists(this.file);
+	}
+
+	/**
+	 * Benchmark separate read passes per checksum.
+	 *
+	 * @return the checksum value.
+	 * @throws NoSuchAlgorithmException if the requested algorithm is not available.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	@Benchmark
+	public byte[] separatePasses() throws NoSuchAlgorithmException, IOException {
+		MD5Checksum md5 = MD5Checksum.getInstance();
+		SHA256Checksum sha256 = SHA256Checksum.getInstance();
+
+		IOUtil.checksumFile(md5, this.file);
+		IOUtil.checksumFile(sha256, this.file);
+		md5.getValue();
+		return sha256.getValue();
+	}
+
+	/**
+	 * Benchmark a single read pass feeding all checksums sequentially.
+	 *
+	 * @return the checksum values.
+	 * @throws NoSuchAlgorithmException if the requested algorithm is not available.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	@Benchmark
+	public List<byte[]> sequentialMulti() throws NoSuchAlgorithmException, IOException {
+		MultiChecksum multi = new MultiChecksum(MD5Checksum.getInstance(), SHA256Checksum.getInstance());
+
+		IOUtil.checksumFile(multi, this.file);
+		return multi.getValues();
+	}
+
+	/**
+	 * Benchmark a single read pass feeding all checksums in parallel.
+	 *
+	 * @return the checksum values.
+	 * @throws NoSuchAlgorithmException if the requested algorithm is not available.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	@Benchmark
+	public List<byte[]> parallelMulti() throws NoSuchAlgorithmException, IOException {
+		MultiChecksum multi = new MultiChecksum(this.executor, 4, 256 * 1024, MD5Checksum.getInstance(),
+				SHA256Checksum.getInstance());
+
+		IOUtil.checksumFile(multi, this.file);
+		return multi.getValues();
+	}
+
+}
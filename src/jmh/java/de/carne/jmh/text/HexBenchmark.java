@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2016-2021 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.jmh.text;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.carne.text.HexBytes;
+import de.carne.text.HexFormat;
+
+/**
+ * Benchmark {@linkplain HexFormat} and {@linkplain HexBytes} functions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HexBenchmark {
+
+	@Param({ "16", "4096" })
+	private int size;
+
+	private byte[] data = new byte[0];
+	private String dataString = "";
+	private long value;
+
+	/**
+	 * Prepares the benchmark data.
+	 */
+	@Setup(Level.Trial)
+	public void setup() {
+		Random random = new Random(this.size);
+
+		this.data = new byte[this.size];
+		random.nextBytes(this.data);
+		this.dataString = HexBytes.toStringL(this.data);
+		this.value = random.nextLong();
+	}
+
+	/**
+	 * Benchmark {@linkplain HexFormat#format(byte[])}.
+	 *
+	 * @return the formatted data.
+	 */
+	@Benchmark
+	public String formatBytes() {
+		return HexFormat.LOWER_CASE.format(this.data);
+	}
+
+	/**
+	 * Benchmark {@linkplain HexFormat#format(StringBuilder, long)}.
+	 *
+	 * @return the formatted data.
+	 */
+	@Benchmark
+	public StringBuilder formatLong() {
+		return HexFormat.UPPER_CASE.format(new StringBuilder(), this.value);
+	}
+
+	/**
+	 * Benchmark {@linkplain HexBytes#toStringL(byte[])}.
+	 *
+	 * @return the formatted data.
+	 */
+	@Benchmark
+	public String toStringL() {
+		return HexBytes.toStringL(this.data);
+	}
+
+	/**
+	 * Benchmark {@linkplain HexBytes#valueOf(String)}.
+	 *
+	 * @return the parsed data.
+	 */
+	@Benchmark
+	public byte[] valueOf() {
+		return HexBytes.valueOf(this.dataString);
+	}
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2016-2021 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.jmh.util;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.carne.util.ByteString;
+
+/**
+ * Benchmark {@linkplain ByteString} functions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ByteStringBenchmark {
+
+	@Param({ "16", "4096" })
+	private int size;
+
+	private ByteString byteString1 = ByteString.EMPTY;
+	private ByteString byteString2 = ByteString.EMPTY;
+
+	/**
+	 * Prepares the benchmark data.
+	 */
+	@Setup(Level.Trial)
+	public void setup() {
+		byte[] bytes = new byte[this.size];
+
+		new Random(this.size).nextBytes(bytes);
+		this.byteString1 = ByteString.copy(bytes);
+		bytes[bytes.length - 1]++;
+		this.byteString2 = ByteString.copy(bytes);
+	}
+
+	/**
+	 * Benchmark {@linkplain ByteString#compareTo(ByteString)}.
+	 *
+	 * @return the comparison result.
+	 */
+	@Benchmark
+	public int compareTo() {
+		return this.byteString1.compareTo(this.byteString2);
+	}
+
+	/**
+	 * Benchmark {@linkplain ByteString#hashCode()}.
+	 *
+	 * @return the hash code.
+	 */
+	@Benchmark
+	public int hashCodeBytes() {
+		return this.byteString1.hashCode();
+	}
+
+	/**
+	 * Benchmark {@linkplain ByteString#toString()}.
+	 *
+	 * @return the string representation.
+	 */
+	@Benchmark
+	public String toStringBytes() {
+		return this.byteString1.toString();
+	}
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2016-2021 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.jmh.util;
+
+import java.text.ParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.carne.util.PropertyResolver;
+
+/**
+ * Benchmark {@linkplain PropertyResolver} functions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PropertyResolverBenchmark {
+
+	private final PropertyResolver resolver;
+
+	/**
+	 * Constructs a new {@linkplain PropertyResolverBenchmark} instance.
+	 */
+	public PropertyResolverBenchmark() {
+		Map<String, String> properties = new HashMap<>();
+
+		properties.put("app.name", "benchmark");
+		properties.put("app.version", "1.0.0");
+		properties.put("app.home", "/opt/benchmark");
+		this.resolver = new PropertyResolver(properties, false, false);
+	}
+
+	/**
+	 * Benchmark {@linkplain PropertyResolver#expand(String)} for a string without any property references.
+	 *
+	 * @return the expanded string.
+	 * @throws ParseException if an expansion error occurs.
+	 */
+	@Benchmark
+	public String expandPlain() throws ParseException {
+		return this.resolver.expand("/opt/benchmark/lib/benchmark-1.0.0.jar");
+	}
+
+	/**
+	 * Benchmark {@linkplain PropertyResolver#expand(String)} for a string with property references.
+	 *
+	 * @return the expanded string.
+	 * @throws ParseException if an expansion error occurs.
+	 */
+	@Benchmark
+	public String expandProperties() throws ParseException {
+		return this.resolver.expand("${app.home}/lib/${app.name}-${app.version}.jar ($$)");
+	}
+
+}
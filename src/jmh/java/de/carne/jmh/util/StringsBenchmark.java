@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2016-2021 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.jmh.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.carne.util.Strings;
+
+/**
+ * Benchmark {@linkplain Strings} functions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StringsBenchmark {
+
+	private static final String PLAIN_STRING = "The quick brown fox jumps over the lazy dog";
+	private static final String SPECIAL_STRING = "\"The\tquick\r\nbrown \u00e4\u00f6\u00fc jumps over the \\lazy\\ dog\0";
+
+	private String encodedString = "";
+	private List<String> joinList = new ArrayList<>();
+
+	/**
+	 * Prepares the benchmark data.
+	 */
+	@Setup(Level.Trial)
+	public void setup() {
+		this.encodedString = Strings.encode(SPECIAL_STRING);
+		for (String word : Strings.split(PLAIN_STRING, ' ', true)) {
+			this.joinList.add(word);
+		}
+	}
+
+	/**
+	 * Benchmark {@linkplain Strings#encode(CharSequence)} for a string without special characters.
+	 *
+	 * @return the encoded string.
+	 */
+	@Benchmark
+	public String encodePlain() {
+		return Strings.encode(PLAIN_STRING);
+	}
+
+	/**
+	 * Benchmark {@linkplain Strings#encode(CharSequence)} for a string with special characters.
+	 *
+	 * @return the encoded string.
+	 */
+	@Benchmark
+	public String encodeSpecial() {
+		return Strings.encode(SPECIAL_STRING);
+	}
+
+	/**
+	 * Benchmark {@linkplain Strings#decode(CharSequence)}.
+	 *
+	 * @return the decoded string.
+	 */
+	@Benchmark
+	public String decode() {
+		return Strings.decode(this.encodedString);
+	}
+
+	/**
+	 * Benchmark {@linkplain Strings#join(Iterable, String)}.
+	 *
+	 * @return the joined string.
+	 */
+	@Benchmark
+	public String join() {
+		return Strings.join(this.joinList, ", ");
+	}
+
+	/**
+	 * Benchmark {@linkplain Strings#join(Iterable, String, int)}.
+	 *
+	 * @return the joined string.
+	 */
+	@Benchmark
+	public String joinLimited() {
+		return Strings.join(this.joinList, ", ", 20);
+	}
+
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2016-2021 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.jmh.util.logging;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.FileHandler;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.stream.Stream;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.carne.util.logging.BinaryLogHandler;
+import de.carne.util.logging.LogLevel;
+import de.carne.util.logging.LogLineFormatter;
+import de.carne.util.logging.Logs;
+import de.carne.util.logging.MappedFileHandler;
+
+/**
+ * Benchmark {@linkplain MappedFileHandler} and {@linkplain BinaryLogHandler} against {@linkplain FileHandler}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileHandlerBenchmark {
+
+	@Param({ "FileHandler", "MappedFileHandler", "BinaryLogHandler" })
+	private String handlerType = "";
+
+	private final LogRecord record = new LogRecord(LogLevel.LEVEL_INFO, "Info message {0} {1}");
+	private Path directory = Path.of("");
+	private @Nullable Handler handler;
+
+	/**
+	 * Configures and creates the {@linkplain Handler} to benchmark.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		this.record.setParameters(new Object[] { "parameter", Integer.valueOf(42) });
+		this.directory = Files.createTempDirectory(getClass().getSimpleName());
+
+		Path config = this.directory.resolve("logging.properties");
+
+		try (Writer configWriter = Files.newBufferedWriter(config, StandardCharsets.UTF_8)) {
+			String logFile = this.directory.resolve("benchmark.log").toString().replace('\\', '/');
+
+			configWriter.write("java.util.logging.FileHandler.pattern = " + logFile + "\n");
+			configWriter.write("java.util.logging.FileHandler.limit = 16777216\n");
+			configWriter.write("java.util.logging.FileHandler.count = 2\n");
+			configWriter.write("java.util.logging.FileHandler.formatter = " + LogLineFormatter.class.getName() + "\n");
+			configWriter.write(MappedFileHandler.class.getName() + ".file = " + logFile + "\n");
+			configWriter.write(MappedFileHandler.class.getName() + ".maxSegments = 1\n");
+			configWriter.write(BinaryLogHandler.class.getName() + ".file = " + logFile + "\n");
+		}
+		Logs.readConfig(config.toUri().toURL());
+		this.handler = newHandler(this.handlerType);
+	}
+
+	private static Handler newHandler(String handlerType) throws IOException {
+		Handler handler;
+
+		switch (handlerType) {
+		case "FileHandler":
+			handler = new FileHandler();
+			break;
+		case "MappedFileHandler":
+			handler = new MappedFileHandler();
+			break;
+		case "BinaryLogHandler":
+			handler = new BinaryLogHandler();
+			break;
+		default:
+			throw new IllegalArgumentException(handlerType);
+		}
+		return handler;
+	}
+
+	/**
+	 * Closes the benchmarked {@linkplain Handler} and deletes the written files.
+	 *
+	 * @throws IOException if an I/O error occurs.
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		Handler checkedHandler = this.handler;
+
+		if (checkedHandler != null) {
+			checkedHandler.close();
+		}
+		try (Stream<Path> files = Files.list(this.directory)) {
+			for (Path file : (Iterable<Path>) files::iterator) {
+				Files.delete(file);
+			}
+		}
+		Files.delete(this.directory);
+		Logs.readConfig(Logs.CONFIG_DEFAULT);
+	}
+
+	/**
+	 * Benchmark {@linkplain Handler#publish(LogRecord)}.
+	 */
+	@Benchmark
+	public void publish() {
+		publish0();
+	}
+
+	/**
+	 * Benchmark contended {@linkplain Handler#publish(LogRecord)}.
+	 */
+	@Benchmark
+	@Threads(4)
+	public void publishContended() {
+		publish0();
+	}
+
+	private void publish0() {
+		Handler checkedHandler = this.handler;
+
+		if (checkedHandler != null) {
+			checkedHandler.publish(this.record);
+		}
+	}
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2016-2021 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.jmh.util.logging;
+
+import java.util.ListResourceBundle;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.LogRecord;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.carne.util.logging.ConsoleFormatter;
+import de.carne.util.logging.LogLevel;
+import de.carne.util.logging.LogLineFormatter;
+import de.carne.util.logging.StreamingFormatter;
+
+/**
+ * Benchmark {@linkplain ConsoleFormatter} and {@linkplain LogLineFormatter}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FormatterBenchmark {
+
+	private final ConsoleFormatter consoleFormatter = new ConsoleFormatter();
+	private final LogLineFormatter logLineFormatter = new LogLineFormatter();
+	private final LogRecord record = new LogRecord(LogLevel.LEVEL_INFO, "Info message");
+	private final LogRecord localizedRecord = new LogRecord(LogLevel.LEVEL_INFO, "info");
+	private final StringBuilder buffer = new StringBuilder();
+
+	/**
+	 * Constructs a new {@linkplain FormatterBenchmark} instance.
+	 */
+	public FormatterBenchmark() {
+		this.localizedRecord.setResourceBundle(new Messages());
+		this.localizedRecord.setParameters(new Object[] { "parameter" });
+	}
+
+	/**
+	 * Benchmark {@linkplain ConsoleFormatter#format(LogRecord)}.
+	 *
+	 * @return the formatted record.
+	 */
+	@Benchmark
+	public String consoleFormat() {
+		return this.consoleFormatter.format(this.record);
+	}
+
+	/**
+	 * Benchmark {@linkplain ConsoleFormatter#format(LogRecord, StringBuilder)}.
+	 *
+	 * @return the buffer containing the formatted record.
+	 */
+	@Benchmark
+	public StringBuilder consoleFormatBuffer() {
+		return formatBuffer(this.consoleFormatter);
+	}
+
+	/**
+	 * Benchmark {@linkplain LogLineFormatter#format(LogRecord)}.
+	 *
+	 * @return the formatted record.
+	 */
+	@Benchmark
+	public String logLineFormat() {
+		return this.logLineFormatter.format(this.record);
+	}
+
+	/**
+	 * Benchmark {@linkplain LogLineFormatter#format(LogRecord, StringBuilder)}.
+	 *
+	 * @return the buffer containing the formatted record.
+	 */
+	@Benchmark
+	public StringBuilder logLineFormatBuffer() {
+		return formatBuffer(this.logLineFormatter);
+	}
+
+	/**
+	 * Benchmark {@linkplain ConsoleFormatter#format(LogRecord, StringBuilder)} for a localized record.
+	 *
+	 * @return the buffer containing the formatted record.
+	 */
+	@Benchmark
+	public StringBuilder consoleFormatLocalized() {
+		this.buffer.setLength(0);
+		this.consoleFormatter.format(this.localizedRecord, this.buffer);
+		return this.buffer;
+	}
+
+	private StringBuilder formatBuffer(StreamingFormatter formatter) {
+		this.buffer.setLength(0);
+		formatter.format(this.record, this.buffer);
+		return this.buffer;
+	}
+
+	/**
+	 * Resource bundle used for localized record formatting.
+	 */
+	public static class Messages extends ListResourceBundle {
+
+		@Override
+		protected Object[][] getContents() {
+			return new Object[][] { { "info", "Localized info message: {0}" } };
+		}
+
+	}
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2016-2021 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.jmh.util.logging;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.carne.util.logging.Log;
+import de.carne.util.logging.LogBuffer;
+import de.carne.util.logging.LogLevel;
+
+/**
+ * Benchmark {@linkplain Log} and {@linkplain LogBuffer} publish path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LogBenchmark {
+
+	private final Log log = new Log(LogBenchmark.class);
+	private final LogBuffer logBuffer = new LogBuffer();
+	private final LogRecord record = new LogRecord(LogLevel.LEVEL_INFO, "Info message");
+
+	/**
+	 * Attaches the {@linkplain LogBuffer} to the benchmark {@linkplain Log} (detached from any parent handler).
+	 */
+	@Setup(Level.Trial)
+	public void setup() {
+		Logger logger = this.log.logger();
+
+		logger.setUseParentHandlers(false);
+		this.log.setLevel(LogLevel.LEVEL_DEBUG);
+		logger.addHandler(this.logBuffer);
+		this.logBuffer.setLevel(LogLevel.LEVEL_DEBUG);
+		this.record.setLoggerName(logger.getName());
+	}
+
+	/**
+	 * Detaches the {@linkplain LogBuffer} from the benchmark {@linkplain Log}.
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		this.log.logger().removeHandler(this.logBuffer);
+		this.logBuffer.close();
+	}
+
+	/**
+	 * Benchmark a disabled {@linkplain Log#trace(String, Object)} call.
+	 */
+	@Benchmark
+	public void traceDisabled() {
+		this.log.trace("Trace message {0}", this);
+	}
+
+	/**
+	 * Benchmark an enabled {@linkplain Log#debug(String)} call without parameters.
+	 */
+	@Benchmark
+	public void debugEnabled() {
+		this.log.debug("Debug message");
+	}
+
+	/**
+	 * Benchmark an enabled {@linkplain Log#debug(String, Object, Object)} call with parameters.
+	 */
+	@Benchmark
+	public void debugEnabledParameters() {
+		this.log.debug("Debug message {0} {1}", this, this.record);
+	}
+
+	/**
+	 * Benchmark an enabled {@linkplain Log#debug(String, Object...)} call with parameters.
+	 */
+	@Benchmark
+	public void debugEnabledVarargs() {
+		this.log.debug("Debug message {0} {1} {2}", this, this.record, this.logBuffer);
+	}
+
+	/**
+	 * Benchmark a {@linkplain Log#isDebugLoggable()} guard.
+	 *
+	 * @return the guard result.
+	 */
+	@Benchmark
+	public boolean isDebugLoggable() {
+		return this.log.isDebugLoggable();
+	}
+
+	/**
+	 * Benchmark {@linkplain Log#level()} resolution.
+	 *
+	 * @return the resolved level.
+	 */
+	@Benchmark
+	public java.util.logging.Level level() {
+		return this.log.level();
+	}
+
+	/**
+	 * Benchmark {@linkplain LogBuffer#publish(LogRecord)}.
+	 */
+	@Benchmark
+	public void logBufferPublish() {
+		this.logBuffer.publish(this.record);
+	}
+
+	/**
+	 * Benchmark contended {@linkplain LogBuffer#publish(LogRecord)}.
+	 */
+	@Benchmark
+	@Threads(4)
+	public void logBufferPublishContended() {
+		this.logBuffer.publish(this.record);
+	}
+
+}
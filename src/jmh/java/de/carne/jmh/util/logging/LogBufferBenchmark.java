@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2016-2021 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.jmh.util.logging;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.LogManager;
+import java.util.logging.LogRecord;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.carne.util.logging.LogBuffer;
+import de.carne.util.logging.LogLevel;
+
+/**
+ * Benchmark synchronous and asynchronous {@linkplain LogBuffer} operation with a slow downstream {@linkplain Handler}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LogBufferBenchmark {
+
+	@Param({ "false", "true" })
+	private boolean async;
+
+	private @Nullable LogBuffer logBuffer;
+	private final LogRecord record = new LogRecord(LogLevel.LEVEL_INFO, "Info message");
+
+	/**
+	 * Configures and creates the {@linkplain LogBuffer} to benchmark.
+	 *
+	 * @throws IOException if the configuration fails.
+	 */
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		String propertyBase = LogBuffer.class.getName();
+		String config = propertyBase + ".level = ALL\n" + propertyBase + ".async = " + this.async + "\n" + propertyBase
+				+ ".overflow = DROP_OLDEST\n";
+
+		LogManager.getLogManager().readConfiguration(new ByteArrayInputStream(config.getBytes(StandardCharsets.UTF_8)));
+
+		LogBuffer checkedLogBuffer = new LogBuffer();
+
+		checkedLogBuffer.addHandler(new Handler() {
+
+			@Override
+			public void publish(@Nullable LogRecord publishRecord) {
+				Blackhole.consumeCPU(1000);
+			}
+
+			@Override
+			public void flush() {
+				// Nothing to do here
+			}
+
+			@Override
+			public void close() {
+				// Nothing to do here
+			}
+
+		}, false);
+		this.logBuffer = checkedLogBuffer;
+	}
+
+	/**
+	 * Closes the benchmarked {@linkplain LogBuffer}.
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		LogBuffer checkedLogBuffer = this.logBuffer;
+
+		if (checkedLogBuffer != null) {
+			checkedLogBuffer.close();
+		}
+	}
+
+	/**
+	 * Benchmark {@linkplain LogBuffer#publish(LogRecord)} from multiple threads.
+	 */
+	@Benchmark
+	@Threads(4)
+	public void publishContended() {
+		LogBuffer checkedLogBuffer = this.logBuffer;
+
+		if (checkedLogBuffer != null) {
+			checkedLogBuffer.publish(this.record);
+		}
+	}
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2016-2021 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.jmh.util.logging;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.carne.util.logging.Log;
+import de.carne.util.logging.LogBuffer;
+import de.carne.util.logging.LogLevel;
+
+/**
+ * Benchmark {@linkplain Log} caller resolution at different stack depths.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LogCallerBenchmark {
+
+	@Param({ "16", "128" })
+	private int depth;
+
+	private final Log log = new Log(LogCallerBenchmark.class);
+	private final LogBuffer logBuffer = new LogBuffer();
+
+	/**
+	 * Attaches the {@linkplain LogBuffer} to the benchmark {@linkplain Log} (detached from any parent handler).
+	 */
+	@Setup(Level.Trial)
+	public void setup() {
+		Logger logger = this.log.logger();
+
+		logger.setUseParentHandlers(false);
+		this.log.setLevel(LogLevel.LEVEL_DEBUG);
+		logger.addHandler(this.logBuffer);
+		this.logBuffer.setLevel(LogLevel.LEVEL_DEBUG);
+	}
+
+	/**
+	 * Detaches the {@linkplain LogBuffer} from the benchmark {@linkplain Log}.
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		this.log.logger().removeHandler(this.logBuffer);
+		this.logBuffer.close();
+	}
+
+	private <T> T atDepth(int remaining, Supplier<T> supplier) {
+		return (remaining > 0 ? atDepth(remaining - 1, supplier) : supplier.get());
+	}
+
+	/**
+	 * Benchmark {@linkplain Log#Log()}.
+	 *
+	 * @return the created {@linkplain Log} instance.
+	 */
+	@Benchmark
+	public Log newLog() {
+		return atDepth(this.depth, Log::new);
+	}
+
+	/**
+	 * Benchmark an enabled {@linkplain Log#callee()} call.
+	 *
+	 * @return the benchmark {@linkplain Log} instance.
+	 */
+	@Benchmark
+	public Log calleeEnabled() {
+		return atDepth(this.depth, () -> {
+			this.log.callee();
+			return this.log;
+		});
+	}
+
+	/**
+	 * Benchmark the {@linkplain Thread#getStackTrace()} based caller resolution used previously for reference.
+	 *
+	 * @return the resolved caller.
+	 */
+	@Benchmark
+	public StackTraceElement stackTraceCaller() {
+		return atDepth(this.depth, () -> {
+			StackTraceElement[] stes = Thread.currentThread().getStackTrace();
+
+			return stes[2];
+		});
+	}
+
+}
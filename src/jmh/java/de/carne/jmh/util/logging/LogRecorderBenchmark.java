@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2016-2021 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.jmh.util.logging;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.LogRecord;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.carne.util.logging.LogLevel;
+import de.carne.util.logging.LogRecorder;
+
+/**
+ * Benchmark {@linkplain LogRecorder.Session} recording and querying.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LogRecorderBenchmark {
+
+	private static final int RECORD_COUNT = 200000;
+	private static final String LOGGER_PREFIX = LogRecorderBenchmark.class.getName() + ".logger";
+
+	private final LogRecorder recorder = new LogRecorder(LogLevel.LEVEL_DEBUG);
+	private final LogRecord record = new LogRecord(LogLevel.LEVEL_INFO, "Info message");
+	private @Nullable LogRecorder.Session session;
+	private @Nullable LogRecorder.Session querySession;
+
+	/**
+	 * Starts the benchmark sessions and fills the query session.
+	 */
+	@Setup(Level.Trial)
+	public void setup() {
+		this.recorder.includeRecord(includeRecord -> includeRecord.getMessage().startsWith("Info"));
+		this.recorder.includeRecord(includeRecord -> includeRecord.getMessage().startsWith("Warning"));
+		this.recorder.excludeRecord(excludeRecord -> excludeRecord.getMessage().endsWith("excluded"));
+		this.recorder.limitRecords(RECORD_COUNT);
+		this.record.setLoggerName(LOGGER_PREFIX + "0");
+
+		LogRecorder.Session checkedSession = this.recorder.start(false);
+		LogRecorder.Session checkedQuerySession = this.recorder.start(false);
+
+		for (int recordIndex = 0; recordIndex < RECORD_COUNT; recordIndex++) {
+			LogRecord queryRecord = (recordIndex % 100 == 0 ? new LogRecord(LogLevel.LEVEL_WARNING, "Warning message")
+					: new LogRecord(LogLevel.LEVEL_INFO, "Info message"));
+
+			queryRecord.setLoggerName(LOGGER_PREFIX + (recordIndex % 10));
+			checkedQuerySession.publish(queryRecord);
+		}
+		this.session = checkedSession;
+		this.querySession = checkedQuerySession;
+	}
+
+	/**
+	 * Closes the benchmark sessions.
+	 */
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		LogRecorder.Session checkedSession = this.session;
+		LogRecorder.Session checkedQuerySession = this.querySession;
+
+		if (checkedSession != null) {
+			checkedSession.close();
+		}
+		if (checkedQuerySession != null) {
+			checkedQuerySession.close();
+		}
+	}
+
+	/**
+	 * Benchmark {@linkplain LogRecorder.Session#publish(LogRecord)}.
+	 */
+	@Benchmark
+	public void publish() {
+		LogRecorder.Session checkedSession = this.session;
+
+		if (checkedSession != null) {
+			checkedSession.publish(this.record);
+		}
+	}
+
+	/**
+	 * Benchmark {@linkplain LogRecorder.Session#getRecords(String, java.util.logging.Level)}.
+	 *
+	 * @return the query result.
+	 */
+	@Benchmark
+	public @Nullable Collection<LogRecord> queryLoggerWarnings() {
+		LogRecorder.Session checkedSession = this.querySession;
+
+		return (checkedSession != null ? checkedSession.getRecords(LOGGER_PREFIX + "0", LogLevel.LEVEL_WARNING)
+				: null);
+	}
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2016-2021 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.jmh.util.logging;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.LogRecord;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.carne.util.logging.LogLevel;
+import de.carne.util.logging.RateLimitFilter;
+
+/**
+ * Benchmark {@linkplain RateLimitFilter} filtering.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RateLimitFilterBenchmark {
+
+	private final RateLimitFilter filter = new RateLimitFilter();
+	private final LogRecord record = new LogRecord(LogLevel.LEVEL_WARNING, "Warning message");
+
+	/**
+	 * Constructs a new {@linkplain RateLimitFilterBenchmark} instance.
+	 */
+	public RateLimitFilterBenchmark() {
+		this.record.setLoggerName(RateLimitFilterBenchmark.class.getName());
+	}
+
+	/**
+	 * Benchmark {@linkplain RateLimitFilter#isLoggable(LogRecord)} (single threaded).
+	 *
+	 * @return the filter result.
+	 */
+	@Benchmark
+	public boolean isLoggable() {
+		return this.filter.isLoggable(this.record);
+	}
+
+	/**
+	 * Benchmark {@linkplain RateLimitFilter#isLoggable(LogRecord)} (contended).
+	 *
+	 * @return the filter result.
+	 */
+	@Benchmark
+	@Threads(4)
+	public boolean isLoggableContended() {
+		return this.filter.isLoggable(this.record);
+	}
+
+}
@@ -0,0 +1,306 @@
+/*
+ * Copyright (c) 2016-2021 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.io;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Pool for I/O buffers.
+ * <p>
+ * Buffers are organized in size classes starting at {@linkplain Defaults#DEFAULT_BUFFER_SIZE} and doubling up to
+ * {@linkplain Defaults#MAX_BUFFER_SIZE}. Every thread caches up to {@linkplain Defaults#BUFFER_POOL_CACHE_DEPTH}
+ * released buffers per size class and buffer type. Hence acquiring and releasing a buffer requires no synchronization.
+ * Requests exceeding the maximum size class are served by an unpooled allocation. The total size of the buffers kept
+ * by a thread's cache is limited to {@linkplain Defaults#BUFFER_POOL_CACHE_LIMIT} per buffer type; buffers released
+ * beyond this limit are left to the garbage collector. Threads which are done with I/O (e.g. pooled threads going
+ * idle) may drop their cache via {@linkplain #clear()}.
+ * </p>
+ * <p>
+ * An acquired buffer must not be accessed after it has been released. Buffers which are not released are simply
+ * garbage collected.
+ * </p>
+ */
+public final class BufferPool {
+
+	private BufferPool() {
+		// Prevent instantiation
+	}
+
+	private static final int SIZE_CLASS_COUNT = sizeClassCount();
+	private static final int MAX_STRING_BUILDER_CAPACITY = Math.max(Defaults.DEFAULT_BUFFER_SIZE,
+			Math.min(Defaults.DEFAULT_BUFFER_SIZE << 4, Defaults.MAX_BUFFER_SIZE));
+
+	private static final LongAdder HITS = new LongAdder();
+	private static final LongAdder MISSES = new LongAdder();
+
+	private static final ThreadLocal<Cache> CACHE = ThreadLocal.withInitial(Cache::new);
+
+	private static int sizeClassCount() {
+		int count = 1;
+
+		while ((((long) Defaults.DEFAULT_BUFFER_SIZE) << count) <= Defaults.MAX_BUFFER_SIZE) {
+			count++;
+		}
+		return count;
+	}
+
+	private static int sizeClass(int size) {
+		int quotient = (Math.max(size, 1) - 1) / Defaults.DEFAULT_BUFFER_SIZE;
+		int sizeClass = Integer.SIZE - Integer.numberOfLeadingZeros(quotient);
+
+		return (sizeClass < SIZE_CLASS_COUNT ? sizeClass : -1);
+	}
+
+	private static int sizeClassOfCapacity(int capacity) {
+		int sizeClass = sizeClass(capacity);
+
+		return (sizeClass >= 0 && (Defaults.DEFAULT_BUFFER_SIZE << sizeClass) == capacity ? sizeClass : -1);
+	}
+
+	/**
+	 * Acquires a byte array buffer.
+	 *
+	 * @param size the minimum size of the buffer.
+	 * @return the acquired buffer (which may be larger than requested).
+	 */
+	public static byte[] acquireBytes(int size) {
+		int sizeClass = sizeClass(size);
+		byte[] buffer = null;
+
+		if (sizeClass >= 0) {
+			buffer = CACHE.get().pollBytes(sizeClass);
+			if (buffer == null) {
+				buffer = new byte[Defaults.DEFAULT_BUFFER_SIZE << sizeClass];
+			}
+		} else {
+			MISSES.increment();
+			buffer = new byte[size];
+		}
+		return buffer;
+	}
+
+	/**
+	 * Releases a byte array buffer previously acquired via {@linkplain #acquireBytes(int)}.
+	 *
+	 * @param buffer the buffer to release.
+	 */
+	public static void release(byte[] buffer) {
+		int sizeClass = sizeClassOfCapacity(buffer.length);
+
+		if (sizeClass >= 0) {
+			CACHE.get().offerBytes(sizeClass, buffer);
+		}
+	}
+
+	/**
+	 * Acquires a direct {@linkplain ByteBuffer}.
+	 * <p>
+	 * The returned buffer's position is 0 and it's limit is set to the requested size.
+	 * </p>
+	 *
+	 * @param size the minimum size of the buffer.
+	 * @return the acquired buffer (whose capacity may be larger than requested).
+	 */
+	public static ByteBuffer acquireDirect(int size) {
+		int sizeClass = sizeClass(size);
+		ByteBuffer buffer = null;
+
+		if (sizeClass >= 0) {
+			buffer = CACHE.get().pollDirect(sizeClass);
+			if (buffer == null) {
+				buffer = ByteBuffer.allocateDirect(Defaults.DEFAULT_BUFFER_SIZE << sizeClass);
+			}
+			buffer.clear().limit(Math.max(size, 0));
+		} else {
+			MISSES.increment();
+			buffer = ByteBuffer.allocateDirect(size);
+		}
+		return buffer;
+	}
+
+	/**
+	 * Releases a direct {@linkplain ByteBuffer} previously acquired via {@linkplain #acquireDirect(int)}.
+	 *
+	 * @param buffer the buffer to release.
+	 */
+	public static void release(ByteBuffer buffer) {
+		int sizeClass = (buffer.isDirect() && !buffer.isReadOnly() ? sizeClassOfCapacity(buffer.capacity()) : -1);
+
+		if (sizeClass >= 0) {
+			CACHE.get().offerDirect(sizeClass, buffer);
+		}
+	}
+
+	/**
+	 * Acquires an empty {@linkplain StringBuilder}.
+	 *
+	 * @return the acquired {@linkplain StringBuilder}.
+	 */
+	public static StringBuilder acquireStringBuilder() {
+		StringBuilder buffer = CACHE.get().pollStringBuilder();
+
+		if (buffer == null) {
+			buffer = new StringBuilder();
+		}
+		return buffer;
+	}
+
+	/**
+	 * Releases a {@linkplain StringBuilder} previously acquired via {@linkplain #acquireStringBuilder()}.
+	 * <p>
+	 * {@linkplain StringBuilder} instances which have grown beyond a reasonable capacity are not pooled.
+	 * </p>
+	 *
+	 * @param buffer the {@linkplain StringBuilder} to release.
+	 */
+	public static void release(StringBuilder buffer) {
+		if (buffer.capacity() <= MAX_STRING_BUILDER_CAPACITY) {
+			buffer.setLength(0);
+			CACHE.get().offerStringBuilder(buffer);
+		}
+	}
+
+	/**
+	 * Drops all buffers cached by the current thread.
+	 * <p>
+	 * The dropped buffers (including any direct buffer memory) are left to the garbage collector.
+	 * </p>
+	 */
+	public static void clear() {
+		CACHE.remove();
+	}
+
+	/**
+	 * Gets the number of acquire requests served from the pool so far.
+	 *
+	 * @return the number of acquire requests served from the pool so far.
+	 */
+	public static long hitCount() {
+		return HITS.sum();
+	}
+
+	/**
+	 * Gets the number of acquire requests served by a new allocation so far.
+	 *
+	 * @return the number of acquire requests served by a new allocation so far.
+	 */
+	public static long missCount() {
+		return MISSES.sum();
+	}
+
+	private static final class Cache {
+
+		private final byte[][][] bytes = new byte[SIZE_CLASS_COUNT][Defaults.BUFFER_POOL_CACHE_DEPTH][];
+		private final int[] bytesCount = new int[SIZE_CLASS_COUNT];
+		private long bytesRetained = 0;
+		private final ByteBuffer[][] directs = new ByteBuffer[SIZE_CLASS_COUNT][Defaults.BUFFER_POOL_CACHE_DEPTH];
+		private final int[] directsCount = new int[SIZE_CLASS_COUNT];
+		private long directsRetained = 0;
+		private final StringBuilder[] stringBuilders = new StringBuilder[Defaults.BUFFER_POOL_CACHE_DEPTH];
+		private int stringBuildersCount = 0;
+
+		Cache() {
+			// Nothing to do here
+		}
+
+		byte @Nullable [] pollBytes(int sizeClass) {
+			byte[] buffer = null;
+			int count = this.bytesCount[sizeClass];
+
+			if (count > 0) {
+				count--;
+				buffer = this.bytes[sizeClass][count];
+				this.bytes[sizeClass][count] = null;
+				this.bytesCount[sizeClass] = count;
+				this.bytesRetained -= buffer.length;
+			}
+			countPoll(buffer != null);
+			return buffer;
+		}
+
+		void offerBytes(int sizeClass, byte[] buffer) {
+			int count = this.bytesCount[sizeClass];
+
+			if (count < Defaults.BUFFER_POOL_CACHE_DEPTH
+					&& this.bytesRetained + buffer.length <= Defaults.BUFFER_POOL_CACHE_LIMIT) {
+				this.bytes[sizeClass][count] = buffer;
+				this.bytesCount[sizeClass] = count + 1;
+				this.bytesRetained += buffer.length;
+			}
+		}
+
+		@Nullable
+		ByteBuffer pollDirect(int sizeClass) {
+			ByteBuffer buffer = null;
+			int count = this.directsCount[sizeClass];
+
+			if (count > 0) {
+				count--;
+				buffer = this.directs[sizeClass][count];
+				this.directs[sizeClass][count] = null;
+				this.directsCount[sizeClass] = count;
+				this.directsRetained -= buffer.capacity();
+			}
+			countPoll(buffer != null);
+			return buffer;
+		}
+
+		void offerDirect(int sizeClass, ByteBuffer buffer) {
+			int count = this.directsCount[sizeClass];
+
+			if (count < Defaults.BUFFER_POOL_CACHE_DEPTH
+					&& this.directsRetained + buffer.capacity() <= Defaults.BUFFER_POOL_CACHE_LIMIT) {
+				this.directs[sizeClass][count] = buffer;
+				this.directsCount[sizeClass] = count + 1;
+				this.directsRetained += buffer.capacity();
+			}
+		}
+
+		@Nullable
+		StringBuilder pollStringBuilder() {
+			StringBuilder buffer = null;
+
+			if (this.stringBuildersCount > 0) {
+				this.stringBuildersCount--;
+				buffer = this.stringBuilders[this.stringBuildersCount];
+				this.stringBuilders[this.stringBuildersCount] = null;
+			}
+			countPoll(buffer != null);
+			return buffer;
+		}
+
+		void offerStringBuilder(StringBuilder buffer) {
+			if (this.stringBuildersCount < Defaults.BUFFER_POOL_CACHE_DEPTH) {
+				this.stringBuilders[this.stringBuildersCount] = buffer;
+				this.stringBuildersCount++;
+			}
+		}
+
+		private static void countPoll(boolean hit) {
+			if (hit) {
+				HITS.increment();
+			} else {
+				MISSES.increment();
+			}
+		}
+
+	}
+
+}
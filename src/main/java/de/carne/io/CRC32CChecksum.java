@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2016-2021 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.io;
+
+import java.util.zip.CRC32C;
+
+/**
+ * CRC32C based checksum generator.
+ */
+public class CRC32CChecksum extends ZipChecksum {
+
+	private CRC32CChecksum() {
+		super(new CRC32C());
+	}
+
+	/**
+	 * Gets a {@linkplain CRC32CChecksum} instance for checksum generation.
+	 *
+	 * @return a {@linkplain CRC32CChecksum} instance for checksum generation.
+	 */
+	public static CRC32CChecksum getInstance() {
+		return new CRC32CChecksum();
+	}
+
+}
@@ -19,15 +19,28 @@ package de.carne.io;
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
 
 import org.eclipse.jdt.annotation.Nullable;
 
 /**
  * {@linkplain FilterInputStream} that calculates a checksum of the read data.
+ * <p>
+ * This stream supports {@linkplain #mark(int)} and {@linkplain #reset()} regardless of the underlying stream. Data
+ * read again after a reset is not fed into the checksum a second time.
+ * </p>
  */
 public class ChecksumInputStream extends FilterInputStream {
 
+	private static final int SCRATCH_BUFFER_SIZE = Math.max(Defaults.DEFAULT_BUFFER_SIZE,
+			Math.min(Defaults.DEFAULT_BUFFER_SIZE << 4, Defaults.MAX_BUFFER_SIZE));
+
 	private final Checksum checksum;
+	private byte[] markBuffer = new byte[0];
+	private int markLimit = -1;
+	private int markLength = 0;
+	private int replayOffset = 0;
 
 	/**
 	 * Constructs a new {@linkplain ChecksumInputStream} instance.
@@ -52,10 +65,19 @@ public class ChecksumInputStream extends FilterInputStream {
 
 	@Override
 	public int read() throws IOException {
-		int read = this.in.read();
-
-		if (read >= 0) {
-			this.checksum.update((byte) read);
+		int read;
+
+		if (this.replayOffset < this.markLength) {
+			read = this.markBuffer[this.replayOffset] & 0xff;
+			this.replayOffset++;
+		} else {
+			read = this.in.read();
+			if (read >= 0) {
+				this.checksum.update((byte) read);
+				if (this.markLimit >= 0) {
+					recordByte((byte) read);
+				}
+			}
 		}
 		return read;
 	}
@@ -69,44 +91,124 @@ public class ChecksumInputStream extends FilterInputStream {
 	@SuppressWarnings("null")
 	@Override
 	public int read(byte @Nullable [] b, int off, int len) throws IOException {
-		int read = this.in.read(b, off, len);
-
-		if (read > 0) {
-			this.checksum.update(b, off, read);
+		int read;
+
+		if (this.replayOffset < this.markLength) {
+			read = Math.min(len, this.markLength - this.replayOffset);
+			System.arraycopy(this.markBuffer, this.replayOffset, b, off, read);
+			this.replayOffset += read;
+		} else {
+			read = this.in.read(b, off, len);
+			if (read > 0) {
+				this.checksum.update(b, off, read);
+				if (this.markLimit >= 0) {
+					recordBytes(b, off, read);
+				}
+			}
 		}
 		return read;
 	}
 
 	@Override
 	public long skip(long n) throws IOException {
-		byte[] buffer = new byte[Defaults.DEFAULT_BUFFER_SIZE];
-
+		byte[] buffer = BufferPool.acquireBytes(SCRATCH_BUFFER_SIZE);
 		long totalRead = 0;
 
-		while (totalRead < n) {
-			int read = read(buffer);
+		try {
+			while (totalRead < n) {
+				int read = read(buffer, 0, (int) Math.min(buffer.length, n - totalRead));
 
-			if (read < 0) {
-				break;
+				if (read < 0) {
+					break;
+				}
+				totalRead += read;
 			}
-			totalRead += read;
+		} finally {
+			BufferPool.release(buffer);
 		}
 		return totalRead;
 	}
 
+	@Override
+	public long transferTo(OutputStream out) throws IOException {
+		byte[] buffer = BufferPool.acquireBytes(SCRATCH_BUFFER_SIZE);
+		long transferred = 0;
+
+		try {
+			int read;
+
+			while ((read = read(buffer, 0, buffer.length)) >= 0) {
+				out.write(buffer, 0, read);
+				transferred += read;
+			}
+		} finally {
+			BufferPool.release(buffer);
+		}
+		return transferred;
+	}
+
+	@Override
+	public int available() throws IOException {
+		return (this.markLength - this.replayOffset) + this.in.available();
+	}
+
 	@Override
 	public synchronized void mark(int readlimit) {
-		// Nothing to do here
+		int replayLength = this.markLength - this.replayOffset;
+
+		// Keep any not yet replayed data, as it has already been fed into the checksum
+		if (replayLength > 0 && this.replayOffset > 0) {
+			System.arraycopy(this.markBuffer, this.replayOffset, this.markBuffer, 0, replayLength);
+		}
+		this.markLimit = Math.max(readlimit, replayLength);
+		this.markLength = replayLength;
+		this.replayOffset = 0;
 	}
 
 	@Override
 	public synchronized void reset() throws IOException {
-		throw new IOException("mark/reset not supported");
+		if (this.markLimit < 0) {
+			throw new IOException("Resetting to invalid mark");
+		}
+		this.replayOffset = 0;
 	}
 
 	@Override
 	public boolean markSupported() {
-		return false;
+		return true;
+	}
+
+	private void recordByte(byte b) {
+		if (ensureMarkCapacity(1)) {
+			this.markBuffer[this.markLength] = b;
+			this.markLength++;
+			this.replayOffset = this.markLength;
+		}
+	}
+
+	private void recordBytes(byte[] b, int off, int len) {
+		if (ensureMarkCapacity(len)) {
+			System.arraycopy(b, off, this.markBuffer, this.markLength, len);
+			this.markLength += len;
+			this.replayOffset = this.markLength;
+		}
+	}
+
+	private boolean ensureMarkCapacity(int len) {
+		int requiredCapacity = this.markLength + len;
+		boolean markValid = requiredCapacity <= this.markLimit;
+
+		if (!markValid) {
+			this.markLimit = -1;
+			this.markLength = 0;
+			this.replayOffset = 0;
+		} else if (requiredCapacity > this.markBuffer.length) {
+			int newCapacity = Math.max(requiredCapacity,
+					Math.min(Math.max(this.markBuffer.length << 1, Defaults.DEFAULT_BUFFER_SIZE), this.markLimit));
+
+			this.markBuffer = Arrays.copyOf(this.markBuffer, newCapacity);
+		}
+		return markValid;
 	}
 
 }
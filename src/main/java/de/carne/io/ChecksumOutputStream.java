@@ -18,6 +18,7 @@ package de.carne.io;
 
 import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 
 import org.eclipse.jdt.annotation.Nullable;
@@ -27,6 +28,9 @@ import org.eclipse.jdt.annotation.Nullable;
  */
 public class ChecksumOutputStream extends FilterOutputStream {
 
+	private static final int SCRATCH_BUFFER_SIZE = Math.max(Defaults.DEFAULT_BUFFER_SIZE,
+			Math.min(Defaults.DEFAULT_BUFFER_SIZE << 4, Defaults.MAX_BUFFER_SIZE));
+
 	private final Checksum checksum;
 
 	/**
@@ -69,4 +73,31 @@ public class ChecksumOutputStream extends FilterOutputStream {
 		this.checksum.update(b, off, len);
 	}
 
+	/**
+	 * Transfers all remaining data from an {@linkplain InputStream} to this stream.
+	 * <p>
+	 * The data is transferred in large blocks using a pooled buffer (see {@linkplain BufferPool}).
+	 * </p>
+	 *
+	 * @param in the {@linkplain InputStream} to transfer from.
+	 * @return the number of transferred bytes.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public long transferFrom(InputStream in) throws IOException {
+		byte[] buffer = BufferPool.acquireBytes(SCRATCH_BUFFER_SIZE);
+		long transferred = 0;
+
+		try {
+			int read;
+
+			while ((read = in.read(buffer, 0, buffer.length)) >= 0) {
+				write(buffer, 0, read);
+				transferred += read;
+			}
+		} finally {
+			BufferPool.release(buffer);
+		}
+		return transferred;
+	}
+
 }
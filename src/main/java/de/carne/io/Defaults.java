@@ -51,4 +51,40 @@ public final class Defaults {
 	public static final int MAX_BUFFER_SIZE = SystemProperties.intValue(MAX_BUFFER_SIZE_PROPERTY,
 			IntegerParser.POSITIVE, 1 << 22);
 
+	/**
+	 * {@linkplain #MAP_WINDOW_SIZE} property.
+	 */
+	public static final String MAP_WINDOW_SIZE_PROPERTY = Defaults.class.getPackage().getName() + ".MAP_WINDOW_SIZE";
+
+	/**
+	 * Window size for memory mapped I/O operations.
+	 */
+	public static final int MAP_WINDOW_SIZE = SystemProperties.intValue(MAP_WINDOW_SIZE_PROPERTY,
+			IntegerParser.POSITIVE, 1 << 28);
+
+	/**
+	 * {@linkplain #BUFFER_POOL_CACHE_DEPTH} property.
+	 */
+	public static final String BUFFER_POOL_CACHE_DEPTH_PROPERTY = Defaults.class.getPackage().getName()
+			+ ".BUFFER_POOL_CACHE_DEPTH";
+
+	/**
+	 * Number of buffers per size class cached by each thread's {@linkplain BufferPool} cache.
+	 */
+	public static final int BUFFER_POOL_CACHE_DEPTH = SystemProperties.intValue(BUFFER_POOL_CACHE_DEPTH_PROPERTY,
+			IntegerParser.POSITIVE, 2);
+
+	/**
+	 * {@linkplain #BUFFER_POOL_CACHE_LIMIT} property.
+	 */
+	public static final String BUFFER_POOL_CACHE_LIMIT_PROPERTY = Defaults.class.getPackage().getName()
+			+ ".BUFFER_POOL_CACHE_LIMIT";
+
+	/**
+	 * Maximum number of bytes retained per buffer type (byte array and direct) by each thread's
+	 * {@linkplain BufferPool} cache.
+	 */
+	public static final int BUFFER_POOL_CACHE_LIMIT = SystemProperties.intValue(BUFFER_POOL_CACHE_LIMIT_PROPERTY,
+			IntegerParser.POSITIVE, 1 << 20);
+
 }
@@ -25,16 +25,21 @@ import java.io.InputStream;
 import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.net.URL;
+import java.net.URLConnection;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
 
 /**
  * Utility class providing I/O related functions.
  */
 public final class IOUtil {
 
+	private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
 	private IOUtil() {
 		// Prevent instantiation
 	}
@@ -53,7 +58,7 @@ public final class IOUtil {
 		if (dst instanceof FileOutputStream && src instanceof FileInputStream) {
 			try (FileChannel dstChannel = ((FileOutputStream) dst).getChannel();
 					FileChannel srcChannel = ((FileInputStream) src).getChannel()) {
-				copied = copyStreamChannel(dstChannel, srcChannel);
+				copied = copyFileChannel(dstChannel, srcChannel);
 			}
 		} else {
 			copied = copyStreamStandard(dst, src);
@@ -61,28 +66,19 @@ public final class IOUtil {
 		return copied;
 	}
 
-	private static long copyStreamChannel(FileChannel dst, FileChannel src) throws IOException {
-		long position = 0;
-		long remaining = src.size();
-
-		while (remaining > 0) {
-			long transferred = dst.transferFrom(src, position, Defaults.DEFAULT_BUFFER_SIZE);
-
-			position += transferred;
-			remaining -= transferred;
-		}
-		dst.position(position);
-		return position;
-	}
-
 	private static long copyStreamStandard(OutputStream dst, InputStream src) throws IOException {
-		byte[] buffer = new byte[Defaults.DEFAULT_BUFFER_SIZE];
+		byte[] buffer = BufferPool.acquireBytes(Defaults.DEFAULT_BUFFER_SIZE);
 		long copied = 0;
-		int read;
 
-		while ((read = src.read(buffer)) >= 0) {
-			dst.write(buffer, 0, read);
-			copied += read;
+		try {
+			int read;
+
+			while ((read = src.read(buffer)) >= 0) {
+				dst.write(buffer, 0, read);
+				copied += read;
+			}
+		} finally {
+			BufferPool.release(buffer);
 		}
 		return copied;
 	}
@@ -181,19 +177,110 @@ public final class IOUtil {
 	 * @throws IOException if an I/O error occurs.
 	 */
 	public static long copyChannel(WritableByteChannel dst, ReadableByteChannel src) throws IOException {
-		ByteBuffer buffer = ByteBuffer.allocateDirect(Defaults.DEFAULT_BUFFER_SIZE);
+		long copied;
+
+		if (src instanceof FileChannel) {
+			copied = copyFileChannel(dst, (FileChannel) src);
+		} else {
+			copied = copyChannelStandard(dst, src);
+		}
+		return copied;
+	}
+
+	private static long copyFileChannel(WritableByteChannel dst, FileChannel src) throws IOException {
+		long position = src.position();
+		long remaining = src.size() - position;
 		long copied = 0;
-		int read;
+		long transferred = 1;
 
-		while ((read = src.read(buffer)) >= 0) {
-			buffer.flip();
-			dst.write(buffer);
-			buffer.clear();
-			copied += read;
+		// Let the platform transfer as much as possible at once (starting at the source's current position)
+		while (remaining > 0 && transferred > 0) {
+			transferred = src.transferTo(position, remaining, dst);
+			position += transferred;
+			remaining -= transferred;
+			copied += transferred;
 		}
+		src.position(position);
+		// Always finish up till EOF the standard way, as the size may be wrong (e.g. 0 for /proc files or due to a
+		// growing file) or the transfer may have stalled (e.g. due to a non-blocking target)
+		copied += copyChannelStandard(dst, src);
 		return copied;
 	}
 
+	private static long copyChannelStandard(WritableByteChannel dst, ReadableByteChannel src) throws IOException {
+		ByteBuffer buffer = BufferPool.acquireDirect(Defaults.DEFAULT_BUFFER_SIZE);
+		long copied = 0;
+
+		try {
+			int read;
+
+			while ((read = src.read(buffer)) >= 0) {
+				buffer.flip();
+				while (buffer.hasRemaining()) {
+					dst.write(buffer);
+				}
+				buffer.clear();
+				copied += read;
+			}
+		} finally {
+			BufferPool.release(buffer);
+		}
+		return copied;
+	}
+
+	/**
+	 * Maps a file into memory for reading.
+	 * <p>
+	 * The file is mapped using the default window size {@linkplain Defaults#MAP_WINDOW_SIZE}.
+	 *
+	 * @param src the {@linkplain Path} of the file to map.
+	 * @return the {@linkplain MappedFile} instance providing access to the mapped file.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public static MappedFile map(Path src) throws IOException {
+		return map(src, Defaults.MAP_WINDOW_SIZE);
+	}
+
+	/**
+	 * Maps a file into memory for reading.
+	 *
+	 * @param src the {@linkplain Path} of the file to map.
+	 * @param windowSize the window size to use for mapping.
+	 * @return the {@linkplain MappedFile} instance providing access to the mapped file.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public static MappedFile map(Path src, int windowSize) throws IOException {
+		return new MappedFile(src, windowSize);
+	}
+
+	/**
+	 * Feeds all bytes of a file into a {@linkplain Checksum}.
+	 * <p>
+	 * The file is memory mapped and fed window by window via {@linkplain Checksum#update(ByteBuffer)} without copying
+	 * it through an intermediate read buffer.
+	 *
+	 * @param dst the {@linkplain Checksum} to feed.
+	 * @param src the {@linkplain Path} of the file to feed.
+	 * @return the number of fed bytes.
+	 * @throws IOException if an I/O error occurs.
+	 * @see #map(Path)
+	 */
+	public static long checksumFile(Checksum dst, Path src) throws IOException {
+		long checksummed = 0;
+
+		try (MappedFile mappedSrc = map(src)) {
+			long windowCount = mappedSrc.windowCount();
+
+			for (long windowIndex = 0; windowIndex < windowCount; windowIndex++) {
+				ByteBuffer window = mappedSrc.window(windowIndex);
+
+				checksummed += window.remaining();
+				dst.update(window);
+			}
+		}
+		return checksummed;
+	}
+
 	/**
 	 * Copies all available bytes from a {@linkplain ByteBuffer} to a {@linkplain OutputStream}.
 	 *
@@ -215,10 +302,18 @@ public final class IOUtil {
 				dst.write(bufferArray, bufferArrayOffset + bufferPosition, remaining);
 				buffer.position(bufferPosition + remaining);
 			} else {
-				byte[] bufferBytes = new byte[remaining];
-
-				buffer.get(bufferBytes);
-				dst.write(bufferBytes);
+				byte[] bufferBytes = BufferPool.acquireBytes(Math.min(remaining, Defaults.MAX_BUFFER_SIZE));
+
+				try {
+					while (buffer.hasRemaining()) {
+						int chunk = Math.min(buffer.remaining(), bufferBytes.length);
+
+						buffer.get(bufferBytes, 0, chunk);
+						dst.write(bufferBytes, 0, chunk);
+					}
+				} finally {
+					BufferPool.release(bufferBytes);
+				}
 			}
 			copied = remaining;
 		}
@@ -245,27 +340,49 @@ public final class IOUtil {
 	 * @throws IOException if an I/O error occurs or {@code limit} is reached.
 	 */
 	public static byte[] readAllBytes(InputStream src, int limit) throws IOException {
-		byte[] buffer = new byte[Defaults.DEFAULT_BUFFER_SIZE];
-		byte[] bytes = new byte[0];
-		int read;
-
-		while ((read = src.read(buffer)) > 0) {
-			int totalRead = bytes.length + read;
+		return readAllBytes(src, limit, src.available());
+	}
 
-			if (bytes.length + read > limit) {
-				InterruptedIOException exception = new InterruptedIOException("Limit reached: " + limit);
+	private static byte[] readAllBytes(InputStream src, int limit, long sizeHint) throws IOException {
+		int capacityLimit = (int) Math.min(Math.max(limit, 0) + 1L, MAX_ARRAY_SIZE);
+		byte[] bytes = new byte[(int) Math.min(sizeHint > 0 ? sizeHint : Defaults.DEFAULT_BUFFER_SIZE, capacityLimit)];
+		int totalRead = 0;
+		int read;
 
-				exception.bytesTransferred = totalRead;
-				throw exception;
+		do {
+			if (totalRead < bytes.length) {
+				read = src.read(bytes, totalRead, bytes.length - totalRead);
+			} else {
+				// Buffer is full (e.g. due to an exact size hint); probe for EOF before growing the buffer
+				int probe = src.read();
+
+				if (probe >= 0) {
+					bytes = growBuffer(bytes, capacityLimit);
+					bytes[totalRead] = (byte) probe;
+					read = 1;
+				} else {
+					read = -1;
+				}
 			}
+			if (read > 0) {
+				totalRead += read;
+				if (totalRead > limit) {
+					InterruptedIOException exception = new InterruptedIOException("Limit reached: " + limit);
+
+					exception.bytesTransferred = totalRead;
+					throw exception;
+				}
+			}
+		} while (read >= 0);
+		return (totalRead == bytes.length ? bytes : Arrays.copyOf(bytes, totalRead));
+	}
 
-			byte[] newBytes = new byte[totalRead];
-
-			System.arraycopy(bytes, 0, newBytes, 0, bytes.length);
-			System.arraycopy(buffer, 0, newBytes, bytes.length, read);
-			bytes = newBytes;
+	private static byte[] growBuffer(byte[] buffer, int capacityLimit) {
+		if (buffer.length >= capacityLimit) {
+			throw new OutOfMemoryError("Required array size too large");
 		}
-		return bytes;
+		return Arrays.copyOf(buffer, (int) Math.min(Math.max(buffer.length * 2L, Defaults.DEFAULT_BUFFER_SIZE),
+				capacityLimit));
 	}
 
 	/**
@@ -291,7 +408,7 @@ public final class IOUtil {
 		byte[] read;
 
 		try (FileInputStream srcStream = new FileInputStream(src)) {
-			read = readAllBytes(srcStream, limit);
+			read = readAllBytes(srcStream, limit, src.length());
 		}
 		return read;
 	}
@@ -316,10 +433,11 @@ public final class IOUtil {
 	 * @throws IOException if an I/O error occurs or {@code limit} is reached.
 	 */
 	public static byte[] readAllBytes(URL src, int limit) throws IOException {
+		URLConnection srcConnection = src.openConnection();
 		byte[] read;
 
-		try (InputStream srcStream = src.openStream()) {
-			read = readAllBytes(srcStream, limit);
+		try (InputStream srcStream = srcConnection.getInputStream()) {
+			read = readAllBytes(srcStream, limit, srcConnection.getContentLengthLong());
 		}
 		return read;
 	}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2016-2021 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.io;
+
+/**
+ * Base class for all kinds of checksum generators whose checksum value fits into a {@code long}.
+ * <p>
+ * In addition to the generic {@linkplain #getValue()} function these generators offer the allocation free
+ * {@linkplain #getValueAsLong()} function.
+ */
+public abstract class LongChecksum implements Checksum {
+
+	private final int valueSize;
+
+	/**
+	 * Constructs a new {@linkplain LongChecksum} instance.
+	 *
+	 * @param valueSize the size of the checksum value in bytes (1 to 8).
+	 */
+	protected LongChecksum(int valueSize) {
+		if (valueSize <= 0 || Long.BYTES < valueSize) {
+			throw new IllegalArgumentException("Invalid value size: " + valueSize);
+		}
+		this.valueSize = valueSize;
+	}
+
+	/**
+	 * Finalizes the checksum generation, returns the result and resets the generator.
+	 *
+	 * @return the generated checksum.
+	 */
+	public abstract long getValueAsLong();
+
+	/**
+	 * Finalizes the checksum generation, returns the result and resets the generator.
+	 * <p>
+	 * The checksum value is returned in big-endian byte order.
+	 *
+	 * @return the generated checksum.
+	 */
+	@Override
+	public byte[] getValue() {
+		long value = getValueAsLong();
+		byte[] valueBytes = new byte[this.valueSize];
+
+		for (int valueByteIndex = valueBytes.length - 1; valueByteIndex >= 0; valueByteIndex--) {
+			valueBytes[valueByteIndex] = (byte) value;
+			value >>>= 8;
+		}
+		return valueBytes;
+	}
+
+}
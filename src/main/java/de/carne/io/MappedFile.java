@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2016-2021 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only memory mapped access to a file of arbitrary size.
+ * <p>
+ * As a single {@linkplain MappedByteBuffer} is limited to 2 GiB, the file content is accessed via consecutive windows
+ * of a fixed size. A window stays valid after the {@linkplain MappedFile} has been closed.
+ *
+ * @see IOUtil#map(Path)
+ */
+public final class MappedFile implements Closeable {
+
+	private final FileChannel channel;
+	private final long size;
+	private final int windowSize;
+
+	MappedFile(Path path, int windowSize) throws IOException {
+		if (windowSize <= 0) {
+			throw new IllegalArgumentException("Invalid window size: " + windowSize);
+		}
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+		this.size = this.channel.size();
+		this.windowSize = windowSize;
+	}
+
+	/**
+	 * Gets the size of the mapped file.
+	 *
+	 * @return the size of the mapped file.
+	 */
+	public long size() {
+		return this.size;
+	}
+
+	/**
+	 * Gets the window size used for mapping.
+	 *
+	 * @return the window size used for mapping.
+	 */
+	public int windowSize() {
+		return this.windowSize;
+	}
+
+	/**
+	 * Gets the number of windows needed to map the complete file.
+	 *
+	 * @return the number of windows needed to map the complete file.
+	 */
+	public long windowCount() {
+		return (this.size + this.windowSize - 1) / this.windowSize;
+	}
+
+	/**
+	 * Maps a specific window of the file.
+	 *
+	 * @param index the index of the window to map.
+	 * @return the mapped window.
+	 * @throws IOException if an I/O error occurs.
+	 * @see #windowCount()
+	 */
+	public MappedByteBuffer window(long index) throws IOException {
+		if (index < 0 || index >= windowCount()) {
+			throw new IndexOutOfBoundsException("Invalid window index: " + index);
+		}
+
+		long windowPosition = index * this.windowSize;
+
+		return this.channel.map(FileChannel.MapMode.READ_ONLY, windowPosition,
+				Math.min(this.size - windowPosition, this.windowSize));
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.channel.close();
+	}
+
+}
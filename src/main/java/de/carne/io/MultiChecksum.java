@@ -0,0 +1,368 @@
+/*
+ * Copyright (c) 2016-2021 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.io;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * {@linkplain Checksum} implementation feeding the same data into multiple {@linkplain Checksum} instances at once.
+ * <p>
+ * This allows calculating several checksums (e.g. MD5 and SHA-256) of the same data with a single read pass. In
+ * parallel mode every {@linkplain Checksum} instance is fed by its own task via the submitted {@linkplain Executor}.
+ * The data to process is staged through a fixed number of reusable buffers. If all buffers are in use, the feeding
+ * thread blocks until the slowest {@linkplain Checksum} has caught up.
+ * </p>
+ */
+public class MultiChecksum implements Checksum {
+
+	private final Checksum[] checksums;
+	private final @Nullable Dispatcher dispatcher;
+
+	/**
+	 * Constructs a new {@linkplain MultiChecksum} instance feeding the submitted {@linkplain Checksum} instances
+	 * sequentially within the calling thread.
+	 *
+	 * @param checksums the {@linkplain Checksum} instances to feed.
+	 */
+	public MultiChecksum(Checksum... checksums) {
+		this.checksums = Arrays.copyOf(checksums, checksums.length);
+		this.dispatcher = null;
+	}
+
+	/**
+	 * Constructs a new {@linkplain MultiChecksum} instance feeding the submitted {@linkplain Checksum} instances in
+	 * parallel.
+	 *
+	 * @param executor the {@linkplain Executor} to use for running the feeding tasks.
+	 * @param bufferCount the number of buffers to use for staging the data.
+	 * @param bufferSize the size of the buffers to use for staging the data.
+	 * @param checksums the {@linkplain Checksum} instances to feed.
+	 */
+	public MultiChecksum(Executor executor, int bufferCount, int bufferSize, Checksum... checksums) {
+		if (bufferCount <= 0) {
+			throw new IllegalArgumentException("Invalid buffer count: " + bufferCount);
+		}
+		if (bufferSize <= 0) {
+			throw new IllegalArgumentException("Invalid buffer size: " + bufferSize);
+		}
+		this.checksums = Arrays.copyOf(checksums, checksums.length);
+		this.dispatcher = new Dispatcher(executor, bufferCount, bufferSize, this.checksums);
+	}
+
+	@Override
+	public void reset() {
+		Dispatcher checkedDispatcher = this.dispatcher;
+
+		if (checkedDispatcher != null) {
+			checkedDispatcher.sync();
+		}
+		for (Checksum checksum : this.checksums) {
+			checksum.reset();
+		}
+	}
+
+	@Override
+	public void update(byte b) {
+		Dispatcher checkedDispatcher = this.dispatcher;
+
+		if (checkedDispatcher != null) {
+			checkedDispatcher.stage(b);
+		} else {
+			for (Checksum checksum : this.checksums) {
+				checksum.update(b);
+			}
+		}
+	}
+
+	@Override
+	public void update(byte[] bs) {
+		update(bs, 0, bs.length);
+	}
+
+	@Override
+	public void update(byte[] bs, int off, int len) {
+		Dispatcher checkedDispatcher = this.dispatcher;
+
+		if (checkedDispatcher != null) {
+			checkedDispatcher.stage(bs, off, len);
+		} else {
+			for (Checksum checksum : this.checksums) {
+				checksum.update(bs, off, len);
+			}
+		}
+	}
+
+	@Override
+	public void update(ByteBuffer bs) {
+		Dispatcher checkedDispatcher = this.dispatcher;
+
+		if (checkedDispatcher != null) {
+			checkedDispatcher.stage(bs);
+		} else {
+			for (Checksum checksum : this.checksums) {
+				checksum.update(bs.duplicate());
+			}
+			bs.position(bs.limit());
+		}
+	}
+
+	/**
+	 * Finalizes the checksum generation of all fed {@linkplain Checksum} instances, returns the results and resets the
+	 * generators.
+	 *
+	 * @return the generated checksums (in the order the {@linkplain Checksum} instances have been submitted).
+	 */
+	public List<byte[]> getValues() {
+		Dispatcher checkedDispatcher = this.dispatcher;
+
+		if (checkedDispatcher != null) {
+			checkedDispatcher.sync();
+		}
+
+		List<byte[]> values = new ArrayList<>(this.checksums.length);
+
+		for (Checksum checksum : this.checksums) {
+			values.add(checksum.getValue());
+		}
+		return values;
+	}
+
+	/**
+	 * Finalizes the checksum generation, returns the result and resets the generator.
+	 * <p>
+	 * The returned value is the concatenation of all generated checksums (in the order the {@linkplain Checksum}
+	 * instances have been submitted).
+	 *
+	 * @return the generated checksum.
+	 * @see #getValues()
+	 */
+	@Override
+	public byte[] getValue() {
+		List<byte[]> values = getValues();
+		byte[] value = new byte[values.stream().mapToInt(checksum -> checksum.length).sum()];
+		int valueOffset = 0;
+
+		for (byte[] checksumValue : values) {
+			System.arraycopy(checksumValue, 0, value, valueOffset, checksumValue.length);
+			valueOffset += checksumValue.length;
+		}
+		return value;
+	}
+
+	private static final class Buffer {
+
+		final byte[] bytes;
+		int length = 0;
+		final AtomicInteger pending = new AtomicInteger();
+
+		Buffer(int size) {
+			this.bytes = new byte[size];
+		}
+
+	}
+
+	private static final class Dispatcher {
+
+		private final Executor executor;
+		private final Buffer[] buffers;
+		private final Semaphore available;
+		private final Lane[] lanes;
+		private int nextBufferIndex = 0;
+		private @Nullable Buffer current = null;
+		private volatile @Nullable RuntimeException failure = null;
+
+		Dispatcher(Executor executor, int bufferCount, int bufferSize, Checksum[] checksums) {
+			this.executor = executor;
+			this.buffers = new Buffer[bufferCount];
+			for (int bufferIndex = 0; bufferIndex < bufferCount; bufferIndex++) {
+				this.buffers[bufferIndex] = new Buffer(bufferSize);
+			}
+			this.available = new Semaphore(bufferCount);
+			this.lanes = new Lane[checksums.length];
+			for (int laneIndex = 0; laneIndex < checksums.length; laneIndex++) {
+				this.lanes[laneIndex] = new Lane(this, checksums[laneIndex]);
+			}
+		}
+
+		void stage(byte b) {
+			Buffer buffer = currentBuffer();
+
+			buffer.bytes[buffer.length] = b;
+			buffer.length++;
+			if (buffer.length == buffer.bytes.length) {
+				dispatch(buffer);
+			}
+		}
+
+		void stage(byte[] bs, int off, int len) {
+			int stageOffset = off;
+			int stageRemaining = len;
+
+			while (stageRemaining > 0) {
+				Buffer buffer = currentBuffer();
+				int stageLength = Math.min(stageRemaining, buffer.bytes.length - buffer.length);
+
+				System.arraycopy(bs, stageOffset, buffer.bytes, buffer.length, stageLength);
+				buffer.length += stageLength;
+				stageOffset += stageLength;
+				stageRemaining -= stageLength;
+				if (buffer.length == buffer.bytes.length) {
+					dispatch(buffer);
+				}
+			}
+		}
+
+		void stage(ByteBuffer bs) {
+			while (bs.hasRemaining()) {
+				Buffer buffer = currentBuffer();
+				int stageLength = Math.min(bs.remaining(), buffer.bytes.length - buffer.length);
+
+				bs.get(buffer.bytes, buffer.length, stageLength);
+				buffer.length += stageLength;
+				if (buffer.length == buffer.bytes.length) {
+					dispatch(buffer);
+				}
+			}
+		}
+
+		void sync() {
+			Buffer buffer = this.current;
+
+			if (buffer != null) {
+				dispatch(buffer);
+			}
+			this.available.acquireUninterruptibly(this.buffers.length);
+			this.available.release(this.buffers.length);
+
+			RuntimeException checkedFailure = this.failure;
+
+			if (checkedFailure != null) {
+				this.failure = null;
+				throw checkedFailure;
+			}
+		}
+
+		private Buffer currentBuffer() {
+			Buffer buffer = this.current;
+
+			if (buffer == null) {
+				// Buffers are released in the order they are dispatched; hence the next one is free once we got a permit
+				this.available.acquireUninterruptibly();
+				buffer = this.buffers[this.nextBufferIndex];
+				this.nextBufferIndex = (this.nextBufferIndex + 1) % this.buffers.length;
+				buffer.length = 0;
+				this.current = buffer;
+			}
+			return buffer;
+		}
+
+		private void dispatch(Buffer buffer) {
+			this.current = null;
+			if (this.lanes.length > 0) {
+				buffer.pending.set(this.lanes.length);
+				for (Lane lane : this.lanes) {
+					lane.submit(buffer);
+				}
+			} else {
+				this.available.release();
+			}
+		}
+
+		void release(Buffer buffer) {
+			if (buffer.pending.decrementAndGet() == 0) {
+				this.available.release();
+			}
+		}
+
+		void fail(RuntimeException exception) {
+			this.failure = exception;
+		}
+
+		void execute(Runnable task) {
+			this.executor.execute(task);
+		}
+
+	}
+
+	private static final class Lane implements Runnable {
+
+		private final Dispatcher dispatcher;
+		private final Checksum checksum;
+		private final Queue<Buffer> queue = new ConcurrentLinkedQueue<>();
+		private final AtomicBoolean scheduled = new AtomicBoolean();
+
+		Lane(Dispatcher dispatcher, Checksum checksum) {
+			this.dispatcher = dispatcher;
+			this.checksum = checksum;
+		}
+
+		void submit(Buffer buffer) {
+			this.queue.add(buffer);
+			if (this.scheduled.compareAndSet(false, true)) {
+				try {
+					this.dispatcher.execute(this);
+				} catch (RejectedExecutionException e) {
+					// No task is running for this lane; release the queued buffers here as sync would wait forever
+					this.dispatcher.fail(e);
+					discard();
+					this.scheduled.set(false);
+				}
+			}
+		}
+
+		private void discard() {
+			Buffer buffer;
+
+			while ((buffer = this.queue.poll()) != null) {
+				this.dispatcher.release(buffer);
+			}
+		}
+
+		@Override
+		public void run() {
+			do {
+				Buffer buffer;
+
+				while ((buffer = this.queue.poll()) != null) {
+					try {
+						this.checksum.update(buffer.bytes, 0, buffer.length);
+					} catch (RuntimeException e) {
+						this.dispatcher.fail(e);
+					} finally {
+						this.dispatcher.release(buffer);
+					}
+				}
+				this.scheduled.set(false);
+				// Re-check to make sure no buffer submitted in the meantime is left behind
+			} while (!this.queue.isEmpty() && this.scheduled.compareAndSet(false, true));
+		}
+
+	}
+
+}
@@ -0,0 +1,358 @@
+/*
+ * Copyright (c) 2016-2021 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.io;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * {@linkplain Checksum} implementation calculating a tree checksum.
+ * <p>
+ * The data to process is split into segments of a fixed size (the last segment may be shorter). Every segment is
+ * hashed separately and the resulting segment checksums are combined (in segment order) by hashing them once more.
+ * The resulting root checksum only depends on the data, the used checksum algorithm and the segment size. Hence the
+ * segments can be processed in parallel without affecting the result.
+ * </p>
+ * <p>
+ * A {@linkplain TreeChecksum} instance processes the data as it arrives (e.g. via a {@linkplain ChecksumInputStream}),
+ * optionally hashing complete segments in parallel. {@linkplain #checksum(FileChannel, Supplier, int)} processes all
+ * segments of a file in parallel.
+ * </p>
+ */
+public class TreeChecksum implements Checksum {
+
+	private final Supplier<? extends Checksum> factory;
+	private final int segmentSize;
+	private final @Nullable ForkJoinPool pool;
+	private final Checksum root;
+	private final @Nullable Checksum segment;
+	private byte[] segmentData;
+	private int segmentLength = 0;
+	private final Deque<SegmentTask> pendingSegments = new ArrayDeque<>();
+
+	/**
+	 * Constructs a new {@linkplain TreeChecksum} instance hashing all segments within the calling thread.
+	 *
+	 * @param factory the {@linkplain Checksum} factory to use for segment and root checksum calculation.
+	 * @param segmentSize the segment size to use.
+	 */
+	public TreeChecksum(Supplier<? extends Checksum> factory, int segmentSize) {
+		this(factory, segmentSize, null);
+	}
+
+	/**
+	 * Constructs a new {@linkplain TreeChecksum} instance hashing complete segments in parallel.
+	 * <p>
+	 * Every segment is staged in a separate buffer until it has been hashed. The number of segments staged at the same
+	 * time is limited to twice the pool's parallelism.
+	 * </p>
+	 *
+	 * @param factory the {@linkplain Checksum} factory to use for segment and root checksum calculation.
+	 * @param segmentSize the segment size to use.
+	 * @param pool the {@linkplain ForkJoinPool} to use for segment checksum calculation.
+	 */
+	public TreeChecksum(Supplier<? extends Checksum> factory, int segmentSize, @Nullable ForkJoinPool pool) {
+		if (segmentSize <= 0) {
+			throw new IllegalArgumentException("Invalid segment size: " + segmentSize);
+		}
+		this.factory = factory;
+		this.segmentSize = segmentSize;
+		this.pool = pool;
+		this.root = factory.get();
+		if (pool != null) {
+			this.segment = null;
+			this.segmentData = new byte[segmentSize];
+		} else {
+			this.segment = factory.get();
+			this.segmentData = new byte[0];
+		}
+	}
+
+	/**
+	 * Calculates the tree checksum of a {@linkplain FileChannel}'s content using the common {@linkplain ForkJoinPool}.
+	 *
+	 * @param channel the {@linkplain FileChannel} to hash.
+	 * @param factory the {@linkplain Checksum} factory to use for segment and root checksum calculation.
+	 * @param segmentSize the segment size to use.
+	 * @return the calculated tree checksum.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public static byte[] checksum(FileChannel channel, Supplier<? extends Checksum> factory, int segmentSize)
+			throws IOException {
+		return checksum(channel, factory, segmentSize, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Calculates the tree checksum of a {@linkplain FileChannel}'s content.
+	 * <p>
+	 * The channel's content is read via positional reads. Hence the channel's position is not affected.
+	 * </p>
+	 *
+	 * @param channel the {@linkplain FileChannel} to hash.
+	 * @param factory the {@linkplain Checksum} factory to use for segment and root checksum calculation.
+	 * @param segmentSize the segment size to use.
+	 * @param pool the {@linkplain ForkJoinPool} to use for segment checksum calculation.
+	 * @return the calculated tree checksum.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public static byte[] checksum(FileChannel channel, Supplier<? extends Checksum> factory, int segmentSize,
+			ForkJoinPool pool) throws IOException {
+		if (segmentSize <= 0) {
+			throw new IllegalArgumentException("Invalid segment size: " + segmentSize);
+		}
+
+		long size = channel.size();
+		long segmentCount = (size + segmentSize - 1) / segmentSize;
+
+		if (segmentCount > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Segment size too small for file size: " + segmentSize);
+		}
+
+		byte[][] segmentValues = new byte[(int) segmentCount][];
+
+		try {
+			pool.invoke(new FileSegmentsTask(channel, factory, segmentSize, size, segmentValues, 0,
+					segmentValues.length));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+
+		Checksum root = factory.get();
+
+		for (byte[] segmentValue : segmentValues) {
+			root.update(segmentValue);
+		}
+		return root.getValue();
+	}
+
+	@Override
+	public void reset() {
+		this.root.reset();
+
+		Checksum checkedSegment = this.segment;
+
+		if (checkedSegment != null) {
+			checkedSegment.reset();
+		}
+		this.segmentLength = 0;
+		while (!this.pendingSegments.isEmpty()) {
+			this.pendingSegments.removeFirst().join();
+		}
+	}
+
+	@Override
+	public void update(byte b) {
+		Checksum checkedSegment = this.segment;
+
+		if (checkedSegment != null) {
+			checkedSegment.update(b);
+		} else {
+			this.segmentData[this.segmentLength] = b;
+		}
+		this.segmentLength++;
+		if (this.segmentLength == this.segmentSize) {
+			completeSegment();
+		}
+	}
+
+	@Override
+	public void update(byte[] bs) {
+		update(bs, 0, bs.length);
+	}
+
+	@Override
+	public void update(byte[] bs, int off, int len) {
+		int updateOffset = off;
+		int updateRemaining = len;
+
+		while (updateRemaining > 0) {
+			int updateLength = Math.min(updateRemaining, this.segmentSize - this.segmentLength);
+			Checksum checkedSegment = this.segment;
+
+			if (checkedSegment != null) {
+				checkedSegment.update(bs, updateOffset, updateLength);
+			} else {
+				System.arraycopy(bs, updateOffset, this.segmentData, this.segmentLength, updateLength);
+			}
+			this.segmentLength += updateLength;
+			updateOffset += updateLength;
+			updateRemaining -= updateLength;
+			if (this.segmentLength == this.segmentSize) {
+				completeSegment();
+			}
+		}
+	}
+
+	@Override
+	public void update(ByteBuffer bs) {
+		while (bs.hasRemaining()) {
+			int updateLength = Math.min(bs.remaining(), this.segmentSize - this.segmentLength);
+			Checksum checkedSegment = this.segment;
+
+			if (checkedSegment != null) {
+				int limit = bs.limit();
+
+				bs.limit(bs.position() + updateLength);
+				checkedSegment.update(bs);
+				bs.limit(limit);
+			} else {
+				bs.get(this.segmentData, this.segmentLength, updateLength);
+			}
+			this.segmentLength += updateLength;
+			if (this.segmentLength == this.segmentSize) {
+				completeSegment();
+			}
+		}
+	}
+
+	@Override
+	public byte[] getValue() {
+		if (this.segmentLength > 0) {
+			completeSegment();
+		}
+		while (!this.pendingSegments.isEmpty()) {
+			this.root.update(this.pendingSegments.removeFirst().join());
+		}
+		return this.root.getValue();
+	}
+
+	private void completeSegment() {
+		Checksum checkedSegment = this.segment;
+		ForkJoinPool checkedPool = this.pool;
+
+		if (checkedSegment != null) {
+			this.root.update(checkedSegment.getValue());
+		} else if (checkedPool != null) {
+			if (this.pendingSegments.size() >= 2 * checkedPool.getParallelism()) {
+				this.root.update(this.pendingSegments.removeFirst().join());
+			}
+
+			SegmentTask segmentTask = new SegmentTask(this.factory, this.segmentData, this.segmentLength);
+
+			checkedPool.execute(segmentTask);
+			this.pendingSegments.addLast(segmentTask);
+			this.segmentData = new byte[this.segmentSize];
+		}
+		this.segmentLength = 0;
+	}
+
+	private static final class SegmentTask extends RecursiveTask<byte[]> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final transient Supplier<? extends Checksum> factory;
+		private final byte[] data;
+		private final int length;
+
+		SegmentTask(Supplier<? extends Checksum> factory, byte[] data, int length) {
+			this.factory = factory;
+			this.data = data;
+			this.length = length;
+		}
+
+		@Override
+		protected byte[] compute() {
+			Checksum checksum = this.factory.get();
+
+			checksum.update(this.data, 0, this.length);
+			return checksum.getValue();
+		}
+
+	}
+
+	private static final class FileSegmentsTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final transient FileChannel channel;
+		private final transient Supplier<? extends Checksum> factory;
+		private final int segmentSize;
+		private final long size;
+		private final byte[][] segmentValues;
+		private final int from;
+		private final int to;
+
+		FileSegmentsTask(FileChannel channel, Supplier<? extends Checksum> factory, int segmentSize, long size,
+				byte[][] segmentValues, int from, int to) {
+			this.channel = channel;
+			this.factory = factory;
+			this.segmentSize = segmentSize;
+			this.size = size;
+			this.segmentValues = segmentValues;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.to - this.from > 1) {
+				int middle = (this.from + this.to) >>> 1;
+
+				invokeAll(
+						new FileSegmentsTask(this.channel, this.factory, this.segmentSize, this.size,
+								this.segmentValues, this.from, middle),
+						new FileSegmentsTask(this.channel, this.factory, this.segmentSize, this.size,
+								this.segmentValues, middle, this.to));
+			} else if (this.to > this.from) {
+				try {
+					this.segmentValues[this.from] = hashSegment(this.from);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		}
+
+		private byte[] hashSegment(int segmentIndex) throws IOException {
+			long position = segmentIndex * (long) this.segmentSize;
+			long end = Math.min(position + this.segmentSize, this.size);
+			int bufferSize = (int) Math.min(end - position, Defaults.MAX_BUFFER_SIZE);
+			ByteBuffer buffer = BufferPool.acquireDirect(bufferSize);
+			Checksum checksum = this.factory.get();
+
+			try {
+				while (position < end) {
+					buffer.clear();
+					buffer.limit((int) Math.min(bufferSize, end - position));
+
+					int read = this.channel.read(buffer, position);
+
+					if (read < 0) {
+						throw new IOException("Unexpected end of file at position: " + position);
+					}
+					buffer.flip();
+					checksum.update(buffer);
+					position += read;
+				}
+			} finally {
+				BufferPool.release(buffer);
+			}
+			return checksum.getValue();
+		}
+
+	}
+
+}
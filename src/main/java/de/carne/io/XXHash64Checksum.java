@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2016-2021 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.io;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * <a href="https://cyan4973.github.io/xxHash/">xxHash64</a> based checksum generator.
+ */
+public class XXHash64Checksum extends LongChecksum {
+
+	private static final long PRIME1 = 0x9e3779b185ebca87L;
+	private static final long PRIME2 = 0xc2b2ae3d27d4eb4fL;
+	private static final long PRIME3 = 0x165667b19e3779f9L;
+	private static final long PRIME4 = 0x85ebca77c2b2ae63L;
+	private static final long PRIME5 = 0x27d4eb2f165667c5L;
+
+	private static final int STRIPE_SIZE = 32;
+
+	private static final VarHandle ARRAY_LONG = MethodHandles.byteArrayViewVarHandle(long[].class,
+			ByteOrder.LITTLE_ENDIAN);
+	private static final VarHandle ARRAY_INT = MethodHandles.byteArrayViewVarHandle(int[].class,
+			ByteOrder.LITTLE_ENDIAN);
+
+	private final long seed;
+	private final byte[] stripe = new byte[STRIPE_SIZE];
+	private int stripeLength = 0;
+	private long totalLength = 0;
+	private long v1;
+	private long v2;
+	private long v3;
+	private long v4;
+
+	private XXHash64Checksum(long seed) {
+		super(Long.BYTES);
+		this.seed = seed;
+		reset();
+	}
+
+	/**
+	 * Gets a {@linkplain XXHash64Checksum} instance for checksum generation (using seed 0).
+	 *
+	 * @return a {@linkplain XXHash64Checksum} instance for checksum generation.
+	 */
+	public static XXHash64Checksum getInstance() {
+		return getInstance(0);
+	}
+
+	/**
+	 * Gets a {@linkplain XXHash64Checksum} instance for checksum generation.
+	 *
+	 * @param seed the seed to use.
+	 * @return a {@linkplain XXHash64Checksum} instance for checksum generation.
+	 */
+	public static XXHash64Checksum getInstance(long seed) {
+		return new XXHash64Checksum(seed);
+	}
+
+	@Override
+	public void reset() {
+		this.stripeLength = 0;
+		this.totalLength = 0;
+		this.v1 = this.seed + PRIME1 + PRIME2;
+		this.v2 = this.seed + PRIME2;
+		this.v3 = this.seed;
+		this.v4 = this.seed - PRIME1;
+	}
+
+	@Override
+	public void update(byte b) {
+		this.stripe[this.stripeLength] = b;
+		this.stripeLength++;
+		this.totalLength++;
+		if (this.stripeLength == STRIPE_SIZE) {
+			processStripe(this.stripe, 0);
+			this.stripeLength = 0;
+		}
+	}
+
+	@Override
+	public void update(byte[] bs) {
+		update(bs, 0, bs.length);
+	}
+
+	@Override
+	public void update(byte[] bs, int off, int len) {
+		int position = off;
+		int end = off + len;
+
+		this.totalLength += len;
+		if (this.stripeLength > 0) {
+			int fillLength = Math.min(STRIPE_SIZE - this.stripeLength, len);
+
+			System.arraycopy(bs, position, this.stripe, this.stripeLength, fillLength);
+			this.stripeLength += fillLength;
+			position += fillLength;
+			if (this.stripeLength == STRIPE_SIZE) {
+				processStripe(this.stripe, 0);
+				this.stripeLength = 0;
+			}
+		}
+		while (end - position >= STRIPE_SIZE) {
+			processStripe(bs, position);
+			position += STRIPE_SIZE;
+		}
+		if (position < end) {
+			System.arraycopy(bs, position, this.stripe, this.stripeLength, end - position);
+			this.stripeLength += end - position;
+		}
+	}
+
+	@Override
+	public void update(ByteBuffer bs) {
+		int position = bs.position();
+		int end = bs.limit();
+
+		this.totalLength += end - position;
+		if (this.stripeLength > 0) {
+			int fillLength = Math.min(STRIPE_SIZE - this.stripeLength, end - position);
+
+			bs.get(this.stripe, this.stripeLength, fillLength);
+			this.stripeLength += fillLength;
+			position += fillLength;
+			if (this.stripeLength == STRIPE_SIZE) {
+				processStripe(this.stripe, 0);
+				this.stripeLength = 0;
+			}
+		}
+		if (end - position >= STRIPE_SIZE) {
+			ByteOrder order = bs.order();
+
+			// Switch temporarily to get intrinsic little-endian reads without creating a view buffer
+			bs.order(ByteOrder.LITTLE_ENDIAN);
+			try {
+				while (end - position >= STRIPE_SIZE) {
+					processStripe(bs, position);
+					position += STRIPE_SIZE;
+				}
+			} finally {
+				bs.order(order);
+			}
+		}
+		bs.position(position);
+		if (position < end) {
+			int remaining = end - position;
+
+			bs.get(this.stripe, this.stripeLength, remaining);
+			this.stripeLength += remaining;
+		}
+	}
+
+	@Override
+	public long getValueAsLong() {
+		long hash;
+
+		if (this.totalLength >= STRIPE_SIZE) {
+			hash = Long.rotateLeft(this.v1, 1) + Long.rotateLeft(this.v2, 7) + Long.rotateLeft(this.v3, 12)
+					+ Long.rotateLeft(this.v4, 18);
+			hash = mergeRound(hash, this.v1);
+			hash = mergeRound(hash, this.v2);
+			hash = mergeRound(hash, this.v3);
+			hash = mergeRound(hash, this.v4);
+		} else {
+			hash = this.seed + PRIME5;
+		}
+		hash += this.totalLength;
+
+		int position = 0;
+
+		while (this.stripeLength - position >= Long.BYTES) {
+			hash ^= round(0, (long) ARRAY_LONG.get(this.stripe, position));
+			hash = Long.rotateLeft(hash, 27) * PRIME1 + PRIME4;
+			position += Long.BYTES;
+		}
+		if (this.stripeLength - position >= Integer.BYTES) {
+			hash ^= (((int) ARRAY_INT.get(this.stripe, position)) & 0xffffffffL) * PRIME1;
+			hash = Long.rotateLeft(hash, 23) * PRIME2 + PRIME3;
+			position += Integer.BYTES;
+		}
+		while (position < this.stripeLength) {
+			hash ^= (this.stripe[position] & 0xffL) * PRIME5;
+			hash = Long.rotateLeft(hash, 11) * PRIME1;
+			position++;
+		}
+		hash ^= hash >>> 33;
+		hash *= PRIME2;
+		hash ^= hash >>> 29;
+		hash *= PRIME3;
+		hash ^= hash >>> 32;
+		reset();
+		return hash;
+	}
+
+	private void processStripe(byte[] bs, int off) {
+		this.v1 = round(this.v1, (long) ARRAY_LONG.get(bs, off));
+		this.v2 = round(this.v2, (long) ARRAY_LONG.get(bs, off + 8));
+		this.v3 = round(this.v3, (long) ARRAY_LONG.get(bs, off + 16));
+		this.v4 = round(this.v4, (long) ARRAY_LONG.get(bs, off + 24));
+	}
+
+	private void processStripe(ByteBuffer bs, int off) {
+		this.v1 = round(this.v1, bs.getLong(off));
+		this.v2 = round(this.v2, bs.getLong(off + 8));
+		this.v3 = round(this.v3, bs.getLong(off + 16));
+		this.v4 = round(this.v4, bs.getLong(off + 24));
+	}
+
+	private static long round(long acc, long input) {
+		return Long.rotateLeft(acc + input * PRIME2, 31) * PRIME1;
+	}
+
+	private static long mergeRound(long acc, long value) {
+		return (acc ^ round(0, value)) * PRIME1 + PRIME4;
+	}
+
+}
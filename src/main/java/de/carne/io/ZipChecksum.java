@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2016-2021 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.io;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Base class for all {@linkplain java.util.zip.Checksum} based checksum generators.
+ */
+public abstract class ZipChecksum extends LongChecksum {
+
+	private final java.util.zip.Checksum zipChecksum;
+
+	/**
+	 * Constructs a new {@linkplain ZipChecksum} instance.
+	 *
+	 * @param zipChecksum the {@linkplain java.util.zip.Checksum} instance to use for checksum calculation.
+	 */
+	protected ZipChecksum(java.util.zip.Checksum zipChecksum) {
+		super(Integer.BYTES);
+		this.zipChecksum = zipChecksum;
+	}
+
+	@Override
+	public void reset() {
+		this.zipChecksum.reset();
+	}
+
+	@Override
+	public void update(byte b) {
+		this.zipChecksum.update(b);
+	}
+
+	@Override
+	public void update(byte[] bs) {
+		this.zipChecksum.update(bs, 0, bs.length);
+	}
+
+	@Override
+	public void update(byte[] bs, int off, int len) {
+		this.zipChecksum.update(bs, off, len);
+	}
+
+	@Override
+	public void update(ByteBuffer bs) {
+		this.zipChecksum.update(bs);
+	}
+
+	@Override
+	public long getValueAsLong() {
+		long value = this.zipChecksum.getValue();
+
+		this.zipChecksum.reset();
+		return value;
+	}
+
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2016-2021 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.util.logging;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.LogRecord;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Dispatcher thread decoupling {@linkplain LogRecord} publishing from the actual record processing.
+ * <p>
+ * Published records are queued in a bounded {@linkplain LogRecordQueue} and handed to a {@linkplain Sink} in batches
+ * of up to {@value #DISPATCH_BATCH_SIZE} records by a dedicated daemon thread. The dispatcher thread holds the handler's {@linkplain PublishLock} for its lifetime; hence
+ * any record issued while processing a record is ignored. {@linkplain #flush()} waits until all records queued before
+ * the call have been processed. If the dispatcher thread terminates unexpectedly (e.g. due to an {@linkplain Error}
+ * thrown by the {@linkplain Sink}), the dispatcher stops running and the caller is expected to fall back to
+ * synchronous processing.
+ * </p>
+ */
+final class AsyncDispatcher {
+
+	/**
+	 * The maximum number of records handed to the {@linkplain Sink} per {@linkplain Sink#dispatch(Batch)} call.
+	 */
+	static final int DISPATCH_BATCH_SIZE = 256;
+
+	private static final long PUBLISHER_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+	/**
+	 * Record processing callbacks invoked by the dispatcher thread.
+	 */
+	interface Sink {
+
+		/**
+		 * Processes a batch of dequeued records.
+		 * <p>
+		 * The batch's records are fetched via {@linkplain Batch#next()} until it returns {@code null}. Hence
+		 * per-dispatch overhead (e.g. acquiring a monitor) can be amortized across all records of the batch.
+		 * </p>
+		 *
+		 * @param batch the batch to process.
+		 */
+		void dispatch(Batch batch);
+
+		/**
+		 * Completes the processing of all records dispatched so far (invoked on flush requests and on close).
+		 */
+		void flush();
+
+		/**
+		 * Invoked whenever the queue has been drained.
+		 *
+		 * @return the maximum time (in nanoseconds) to wait for new records before invoking this function again.
+		 */
+		long idle();
+
+	}
+
+	/**
+	 * A batch of queued records handed to the {@linkplain Sink}.
+	 */
+	final class Batch {
+
+		private int remaining = 0;
+
+		/**
+		 * Dequeues the next record of this batch.
+		 *
+		 * @return the next record or {@code null} if the batch is complete.
+		 */
+		@Nullable
+		LogRecord next() {
+			LogRecord record = null;
+
+			if (this.remaining > 0) {
+				record = AsyncDispatcher.this.queue.poll();
+				this.remaining = (record != null ? this.remaining - 1 : 0);
+			}
+			return record;
+		}
+
+		void reset() {
+			this.remaining = DISPATCH_BATCH_SIZE;
+		}
+
+	}
+
+	private final LogRecordQueue queue;
+	private final PublishLock lock;
+	private final Sink sink;
+	private final Batch batch = new Batch();
+	private final Thread thread;
+	private volatile boolean waiting = false;
+	private volatile long flushRequested = 0;
+	private volatile long flushCompleted = 0;
+	private volatile boolean closed = false;
+
+	/**
+	 * Constructs and starts a new {@linkplain AsyncDispatcher} instance.
+	 *
+	 * @param name the name of the dispatcher thread.
+	 * @param capacity the queue capacity.
+	 * @param lock the {@linkplain PublishLock} of the handler using this dispatcher.
+	 * @param sink the {@linkplain Sink} to dispatch the records to.
+	 */
+	AsyncDispatcher(String name, int capacity, PublishLock lock, Sink sink) {
+		this.queue = new LogRecordQueue(capacity);
+		this.lock = lock;
+		this.sink = sink;
+		this.thread = new Thread(this::run, name);
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * Checks whether this dispatcher is still accepting records.
+	 *
+	 * @return {@code true} if this dispatcher has neither been closed nor has the dispatcher thread terminated.
+	 */
+	boolean isRunning() {
+		return !this.closed && this.thread.isAlive();
+	}
+
+	/**
+	 * Queues a record without waiting.
+	 *
+	 * @param record the record to queue.
+	 * @return {@code true} if the record has been queued; {@code false} if the queue is full.
+	 */
+	boolean offer(LogRecord record) {
+		boolean offered = this.queue.offer(record);
+
+		if (offered && this.waiting) {
+			LockSupport.unpark(this.thread);
+		}
+		return offered;
+	}
+
+	/**
+	 * Queues a record and waits for the dispatcher thread to catch up if the queue is full.
+	 *
+	 * @param record the record to queue.
+	 * @return {@code true} if the record has been queued; {@code false} if the dispatcher stopped running meanwhile.
+	 */
+	boolean offerBlocking(LogRecord record) {
+		boolean offered;
+
+		// Stop waiting if the dispatcher thread is gone, as the queue would never be drained
+		while (!(offered = this.queue.offer(record)) && isRunning()) {
+			LockSupport.unpark(this.thread);
+			LockSupport.parkNanos(PUBLISHER_PARK_NANOS);
+		}
+		if (offered && this.waiting) {
+			LockSupport.unpark(this.thread);
+		}
+		return offered;
+	}
+
+	/**
+	 * Removes the oldest queued record.
+	 *
+	 * @return the removed record or {@code null} if the queue is empty.
+	 */
+	@Nullable
+	LogRecord poll() {
+		return this.queue.poll();
+	}
+
+	/**
+	 * Wakes up the dispatcher thread (e.g. to process an urgent record immediately).
+	 */
+	void wakeUp() {
+		LockSupport.unpark(this.thread);
+	}
+
+	/**
+	 * Waits until all records queued so far have been processed (ignored if invoked by the dispatcher thread).
+	 */
+	void flush() {
+		if (Thread.currentThread() != this.thread) {
+			long flushRequest;
+
+			synchronized (this) {
+				flushRequest = this.flushRequested + 1;
+				this.flushRequested = flushRequest;
+			}
+			while (this.flushCompleted - flushRequest < 0 && this.thread.isAlive()) {
+				LockSupport.unpark(this.thread);
+				LockSupport.parkNanos(PUBLISHER_PARK_NANOS);
+			}
+		}
+	}
+
+	/**
+	 * Stops accepting records and waits until the dispatcher thread has processed all queued records.
+	 */
+	void close() {
+		this.closed = true;
+		if (Thread.currentThread() != this.thread) {
+			LockSupport.unpark(this.thread);
+			try {
+				this.thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private void run() {
+		// Keep the publish lock for the thread's lifetime to ignore any records issued while processing
+		if (this.lock.tryLock()) {
+			try {
+				dispatchRecords();
+			} finally {
+				this.lock.unlock();
+			}
+		}
+	}
+
+	private void dispatchRecords() {
+		while (!this.closed || !this.queue.isEmpty()) {
+			// Read the flush request first; records published before the request are then visible to poll
+			long flushRequest = this.flushRequested;
+
+			if (!this.queue.isEmpty()) {
+				this.batch.reset();
+				this.sink.dispatch(this.batch);
+			} else if (flushRequest != this.flushCompleted) {
+				this.sink.flush();
+				this.flushCompleted = flushRequest;
+			} else {
+				long parkNanos = this.sink.idle();
+
+				this.waiting = true;
+				if (this.queue.isEmpty() && flushRequest == this.flushRequested && !this.closed) {
+					LockSupport.parkNanos(parkNanos);
+				}
+				this.waiting = false;
+			}
+		}
+		this.sink.flush();
+		this.flushCompleted = this.flushRequested;
+	}
+
+}
@@ -0,0 +1,499 @@
+/*
+ * Copyright (c) 2016-2021 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.util.logging;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+import java.util.logging.Formatter;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import de.carne.io.BufferPool;
+import de.carne.util.Exceptions;
+
+/**
+ * Decoder for binary logs written by {@linkplain BinaryLogHandler}.
+ * <p>
+ * The decoded {@linkplain LogRecord}s carry the original message pattern and parameters. Hence they can be formatted by
+ * any {@linkplain Formatter}. A logged {@linkplain Throwable} is represented by a placeholder which prints the
+ * originally logged stack trace. A truncated log (e.g. due to a crash) is decoded up to the last complete record
+ * ({@linkplain BinaryLogHandler} removes such an incomplete tail before appending to an existing log).
+ * </p>
+ */
+public final class BinaryLogDecoder implements Closeable {
+
+	private final CountingInputStream counter;
+	private final DataInputStream in;
+	private final List<String> strings = new ArrayList<>();
+	private final List<Level> levels = new ArrayList<>();
+	private final Map<String, @Nullable ResourceBundle> resourceBundles = new HashMap<>();
+	private long lastMillis = 0;
+	private boolean headerSeen = false;
+	private long completeLength = 0;
+
+	/**
+	 * Constructs a new {@linkplain BinaryLogDecoder} instance.
+	 *
+	 * @param in the {@linkplain InputStream} to read the binary log from.
+	 */
+	public BinaryLogDecoder(InputStream in) {
+		this.counter = new CountingInputStream(new BufferedInputStream(in));
+		this.in = new DataInputStream(this.counter);
+	}
+
+	/**
+	 * Determines the length of the complete part of a binary log (i.e. excluding any incomplete or invalid tail).
+	 *
+	 * @param file the binary log file to examine.
+	 * @return the length of the complete part of the binary log or {@code -1} if the file does not start with a
+	 *         supported binary log header.
+	 * @throws IOException if an I/O error occurs while opening the file.
+	 */
+	static long completeLength(Path file) throws IOException {
+		try (BinaryLogDecoder decoder = new BinaryLogDecoder(Files.newInputStream(file))) {
+			return decoder.skipComplete();
+		}
+	}
+
+	private long skipComplete() {
+		try {
+			while (read() != null) {
+				// Skip all complete records
+			}
+		} catch (IOException e) {
+			Exceptions.ignore(e);
+			if (!this.headerSeen) {
+				// Not a (supported) binary log at all
+				this.completeLength = -1;
+			}
+		}
+		return this.completeLength;
+	}
+
+	/**
+	 * Decodes a binary log using the {@linkplain LogLineFormatter} format.
+	 *
+	 * @param in the {@linkplain InputStream} to read the binary log from.
+	 * @param out the {@linkplain Writer} to write the decoded log to.
+	 * @return the number of decoded {@linkplain LogRecord}s.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public static long decode(InputStream in, Writer out) throws IOException {
+		return decode(in, out, new LogLineFormatter());
+	}
+
+	/**
+	 * Decodes a binary log.
+	 *
+	 * @param in the {@linkplain InputStream} to read the binary log from.
+	 * @param out the {@linkplain Writer} to write the decoded log to.
+	 * @param formatter the {@linkplain Formatter} to use for formatting the decoded {@linkplain LogRecord}s.
+	 * @return the number of decoded {@linkplain LogRecord}s.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public static long decode(InputStream in, Writer out, Formatter formatter) throws IOException {
+		long recordCount = 0;
+		BinaryLogDecoder decoder = new BinaryLogDecoder(in);
+		StringBuilder buffer = BufferPool.acquireStringBuilder();
+
+		try {
+			LogRecord record;
+
+			while ((record = decoder.read()) != null) {
+				if (formatter instanceof StreamingFormatter) {
+					buffer.setLength(0);
+					((StreamingFormatter) formatter).format(record, buffer);
+					FormatSupport.write(out, buffer);
+				} else {
+					out.write(formatter.format(record));
+				}
+				recordCount++;
+			}
+		} finally {
+			BufferPool.release(buffer);
+		}
+		out.flush();
+		return recordCount;
+	}
+
+	/**
+	 * Decodes the binary log files given on the command line to {@linkplain System#out}.
+	 *
+	 * @param args the binary log files to decode.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	@SuppressWarnings("squid:S106")
+	public static void main(String[] args) throws IOException {
+		Writer out = new OutputStreamWriter(System.out);
+
+		for (String arg : args) {
+			try (InputStream in = Files.newInputStream(Paths.get(arg))) {
+				decode(in, out);
+			}
+		}
+		out.flush();
+	}
+
+	/**
+	 * Reads the next {@linkplain LogRecord}.
+	 *
+	 * @return the next {@linkplain LogRecord} or {@code null} if the end of the log has been reached.
+	 * @throws IOException if an I/O error occurs or the log is not a valid binary log.
+	 */
+	@Nullable
+	public LogRecord read() throws IOException {
+		LogRecord record = null;
+
+		try {
+			int tag;
+
+			while (record == null && (tag = this.in.read()) >= 0) {
+				if (!this.headerSeen && tag != BinaryLogFormat.TAG_HEADER) {
+					throw new IOException("Missing binary log header");
+				}
+				switch (tag) {
+				case BinaryLogFormat.TAG_HEADER:
+					readHeader();
+					break;
+				case BinaryLogFormat.TAG_STRING:
+					readString();
+					break;
+				case BinaryLogFormat.TAG_LEVEL:
+					readLevel();
+					break;
+				case BinaryLogFormat.TAG_RECORD:
+					record = readRecord();
+					break;
+				default:
+					throw new IOException("Invalid binary log tag: " + tag);
+				}
+				this.completeLength = this.counter.count();
+			}
+		} catch (EOFException e) {
+			// Log has been truncated; ignore the incomplete tail
+			record = null;
+		}
+		return record;
+	}
+
+	private void readHeader() throws IOException {
+		int magic = this.in.readInt();
+		int version = this.in.readUnsignedByte();
+
+		if (magic != BinaryLogFormat.MAGIC || version != BinaryLogFormat.VERSION) {
+			throw new IOException("Unsupported binary log format");
+		}
+		this.strings.clear();
+		this.levels.clear();
+		this.lastMillis = 0;
+		this.headerSeen = true;
+	}
+
+	private void readString() throws IOException {
+		int stringId = readVarInt();
+		String string = readUTF8();
+
+		if (stringId != BinaryLogFormat.REF_FIRST_ID + this.strings.size()) {
+			throw new IOException("Unexpected string id: " + stringId);
+		}
+		this.strings.add(string);
+	}
+
+	private void readLevel() throws IOException {
+		int levelId = readVarInt();
+		int levelValue = (int) BinaryLogFormat.zigZagDecode(readVarLong());
+		String levelName = readUTF8();
+
+		if (levelId != this.levels.size()) {
+			throw new IOException("Unexpected level id: " + levelId);
+		}
+		this.levels.add(decodeLevel(levelName, levelValue));
+	}
+
+	private static Level decodeLevel(String name, int value) {
+		Level level;
+
+		try {
+			level = Level.parse(name);
+			if (level.intValue() != value) {
+				level = new DecodedLevel(name, value);
+			}
+		} catch (IllegalArgumentException e) {
+			level = new DecodedLevel(name, value);
+		}
+		return level;
+	}
+
+	private LogRecord readRecord() throws IOException {
+		long millis = this.lastMillis + BinaryLogFormat.zigZagDecode(readVarLong());
+		int levelId = readVarInt();
+
+		if (levelId >= this.levels.size()) {
+			throw new IOException("Undefined level id: " + levelId);
+		}
+
+		String loggerName = readStringRef();
+		String resourceBundleName = readStringRef();
+		String message = readStringRef();
+		LogRecord record = new LogRecord(this.levels.get(levelId), message);
+
+		record.setInstant(Instant.ofEpochMilli(millis));
+		record.setLoggerName(loggerName);
+		if (resourceBundleName != null) {
+			record.setResourceBundleName(resourceBundleName);
+			record.setResourceBundle(getResourceBundle(resourceBundleName));
+		}
+		record.setThreadID((int) readVarLong());
+
+		int parameterCount = readVarInt();
+
+		if (parameterCount > 0) {
+			Object[] parameters = new Object[parameterCount];
+
+			for (int parameterIndex = 0; parameterIndex < parameterCount; parameterIndex++) {
+				parameters[parameterIndex] = readParameter();
+			}
+			record.setParameters(parameters);
+		}
+		if (readVarInt() != 0) {
+			record.setThrown(new DecodedThrowable(readUTF8()));
+		}
+		this.lastMillis = millis;
+		return record;
+	}
+
+	@Nullable
+	private ResourceBundle getResourceBundle(String resourceBundleName) {
+		ResourceBundle resourceBundle = this.resourceBundles.get(resourceBundleName);
+
+		// Missing bundles are cached as null
+		if (resourceBundle == null && !this.resourceBundles.containsKey(resourceBundleName)) {
+			try {
+				resourceBundle = ResourceBundle.getBundle(resourceBundleName);
+			} catch (MissingResourceException e) {
+				// Leave the message untranslated
+				Exceptions.ignore(e);
+			}
+			this.resourceBundles.put(resourceBundleName, resourceBundle);
+		}
+		return resourceBundle;
+	}
+
+	@Nullable
+	private String readStringRef() throws IOException {
+		int stringRef = readVarInt();
+		String string;
+
+		if (stringRef == BinaryLogFormat.REF_NULL) {
+			string = null;
+		} else if (stringRef == BinaryLogFormat.REF_INLINE) {
+			string = readUTF8();
+		} else {
+			int stringIndex = stringRef - BinaryLogFormat.REF_FIRST_ID;
+
+			if (stringIndex >= this.strings.size()) {
+				throw new IOException("Undefined string id: " + stringRef);
+			}
+			string = this.strings.get(stringIndex);
+		}
+		return string;
+	}
+
+	@Nullable
+	private Object readParameter() throws IOException {
+		int parameterType = readVarInt();
+		Object parameter;
+
+		switch (parameterType) {
+		case BinaryLogFormat.PARAMETER_NULL:
+			parameter = null;
+			break;
+		case BinaryLogFormat.PARAMETER_STRING:
+			parameter = readUTF8();
+			break;
+		case BinaryLogFormat.PARAMETER_INT:
+			parameter = Integer.valueOf((int) BinaryLogFormat.zigZagDecode(readVarLong()));
+			break;
+		case BinaryLogFormat.PARAMETER_LONG:
+			parameter = Long.valueOf(BinaryLogFormat.zigZagDecode(readVarLong()));
+			break;
+		case BinaryLogFormat.PARAMETER_DOUBLE:
+			parameter = Double.valueOf(Double.longBitsToDouble(this.in.readLong()));
+			break;
+		case BinaryLogFormat.PARAMETER_FLOAT:
+			parameter = Float.valueOf(Float.intBitsToFloat(this.in.readInt()));
+			break;
+		case BinaryLogFormat.PARAMETER_BOOLEAN:
+			parameter = Boolean.valueOf(readVarInt() != 0);
+			break;
+		case BinaryLogFormat.PARAMETER_CHAR:
+			parameter = Character.valueOf((char) readVarInt());
+			break;
+		case BinaryLogFormat.PARAMETER_DATE:
+			parameter = new Date(BinaryLogFormat.zigZagDecode(readVarLong()));
+			break;
+		default:
+			throw new IOException("Invalid parameter type: " + parameterType);
+		}
+		return parameter;
+	}
+
+	private String readUTF8() throws IOException {
+		byte[] bytes = new byte[readVarInt()];
+
+		this.in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private int readVarInt() throws IOException {
+		long value = readVarLong();
+
+		if (value < 0 || value > Integer.MAX_VALUE) {
+			throw new IOException("Invalid binary log value: " + value);
+		}
+		return (int) value;
+	}
+
+	private long readVarLong() throws IOException {
+		long value = 0;
+		int shift = 0;
+		int b;
+
+		do {
+			if (shift >= Long.SIZE) {
+				throw new IOException("Invalid variable length quantity");
+			}
+			b = this.in.readUnsignedByte();
+			value |= (long) (b & 0x7f) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.in.close();
+	}
+
+	private static final class CountingInputStream extends FilterInputStream {
+
+		private long count = 0;
+
+		CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		long count() {
+			return this.count;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+
+			if (b >= 0) {
+				this.count++;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte @Nullable [] b, int off, int len) throws IOException {
+			int read = super.read(b, off, len);
+
+			if (read > 0) {
+				this.count += read;
+			}
+			return read;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+
+			this.count += skipped;
+			return skipped;
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+
+	}
+
+	private static final class DecodedLevel extends Level {
+
+		private static final long serialVersionUID = -2480357124935217365L;
+
+		DecodedLevel(String name, int value) {
+			super(name, value);
+		}
+
+	}
+
+	private static final class DecodedThrowable extends Throwable {
+
+		private static final long serialVersionUID = 3064917640871946623L;
+
+		private final String stackTrace;
+
+		DecodedThrowable(String stackTrace) {
+			super(stackTrace.lines().findFirst().orElse(""), null, false, false);
+			this.stackTrace = stackTrace;
+		}
+
+		@Override
+		public void printStackTrace(@Nullable PrintStream s) {
+			if (s != null) {
+				s.print(this.stackTrace);
+			}
+		}
+
+		@Override
+		public void printStackTrace(@Nullable PrintWriter s) {
+			if (s != null) {
+				s.print(this.stackTrace);
+			}
+		}
+
+	}
+
+}
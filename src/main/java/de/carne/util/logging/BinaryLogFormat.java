@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2016-2021 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.util.logging;
+
+/**
+ * Constants defining the binary log format written by {@linkplain BinaryLogHandler} and read by
+ * {@linkplain BinaryLogDecoder}.
+ * <p>
+ * A binary log is a sequence of tagged entries. Integer values are stored as variable length quantities (7 bits per
+ * byte, least significant group first); signed values are zig-zag encoded first. Strings are stored as their UTF-8
+ * length followed by the UTF-8 bytes.
+ * </p>
+ * <ul>
+ * <li>{@code HEADER}: magic, version; starts a log and resets all definitions.</li>
+ * <li>{@code STRING}: id, string; defines an interned string (logger names, resource bundle names and message
+ * patterns of records with parameters).</li>
+ * <li>{@code LEVEL}: id, level value, level name; defines a level.</li>
+ * <li>{@code RECORD}: timestamp delta to the previous record, level id, logger name, resource bundle name and message
+ * pattern references, thread id, parameter count, typed parameters, optional stack trace.</li>
+ * </ul>
+ * <p>
+ * String references are either {@code REF_NULL}, {@code REF_INLINE} (followed by the string) or the id of a previously
+ * defined string.
+ * </p>
+ */
+final class BinaryLogFormat {
+
+	private BinaryLogFormat() {
+		// Prevent instantiation
+	}
+
+	static final int MAGIC = 0x43444c42;
+	static final int VERSION = 1;
+
+	static final int TAG_HEADER = 0;
+	static final int TAG_STRING = 1;
+	static final int TAG_LEVEL = 2;
+	static final int TAG_RECORD = 3;
+
+	static final int REF_NULL = 0;
+	static final int REF_INLINE = 1;
+	static final int REF_FIRST_ID = 2;
+
+	// Strings are not interned anymore once this limit is reached (e.g. due to generated message patterns)
+	static final int INTERN_LIMIT = 4096;
+
+	static final int PARAMETER_NULL = 0;
+	static final int PARAMETER_STRING = 1;
+	static final int PARAMETER_INT = 2;
+	static final int PARAMETER_LONG = 3;
+	static final int PARAMETER_DOUBLE = 4;
+	static final int PARAMETER_FLOAT = 5;
+	static final int PARAMETER_BOOLEAN = 6;
+	static final int PARAMETER_CHAR = 7;
+	static final int PARAMETER_DATE = 8;
+
+	static long zigZagEncode(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	static long zigZagDecode(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+}
@@ -0,0 +1,465 @@
+/*
+ * Copyright (c) 2016-2021 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.util.logging;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogManager;
+import java.util.logging.LogRecord;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import de.carne.util.Exceptions;
+
+/**
+ * {@linkplain Handler} implementation writing {@linkplain LogRecord}s in a compact binary format instead of formatted
+ * text.
+ * <p>
+ * Logger names, resource bundle names, levels and the message patterns of records with parameters are interned and
+ * written only once. Message parameters are written raw (typed). Hence no message formatting takes place while logging
+ * records carrying a pattern and parameters (like the records issued via {@linkplain Log}). Messages without
+ * parameters are written as is. Use {@linkplain BinaryLogDecoder} to turn the written log back into text.
+ * </p>
+ * <p>
+ * The records are written to the file defined by the {@code file} property (default: {@code java.binlog}; {@code %h}
+ * and {@code %t} are substituted by the user's home and the temporary directory). If the {@code append} property is
+ * set, an existing file is continued instead of being overwritten (any incomplete tail left behind by a crash is
+ * removed first). If the existing file is not a binary log (or written in an unsupported format version), it is left
+ * untouched and the handler reports an error and discards all records. The records are buffered in a buffer of
+ * {@code bufferSize} bytes (default: 64 KiB) which is written out whenever it is full or the handler is flushed. If
+ * writing fails, the file is truncated back to the last complete record and writing continues with a fresh header;
+ * the records still buffered at this time are lost. The
+ * {@code level} and {@code filter} properties are evaluated the same way as for the other handlers of this package.
+ * </p>
+ * <p>
+ * Parameters of type {@linkplain String}, {@linkplain Byte}, {@linkplain Short}, {@linkplain Integer},
+ * {@linkplain Long}, {@linkplain Float}, {@linkplain Double}, {@linkplain Boolean}, {@linkplain Character} and
+ * {@linkplain Date} are written as is. Parameters of any other type are written as their {@linkplain String}
+ * representation. If the latter fails, the failure is reported and the parameter's default
+ * {@linkplain Object#toString()} representation (class name and identity hash code) is written instead.
+ * </p>
+ */
+public class BinaryLogHandler extends Handler {
+
+	private static final int MIN_BUFFER_SIZE = 256;
+	// Maximum size of a variable length quantity
+	private static final int MAX_VARLONG_SIZE = 10;
+
+	private final Path file;
+	private final boolean append;
+	private final ByteBuffer buffer;
+	private final Map<String, Integer> stringIds = new HashMap<>();
+	// Level.equals only compares the level values; hence use identity to keep the level names apart
+	private final Map<Level, Integer> levelIds = new IdentityHashMap<>();
+	private long lastMillis = 0;
+	private @Nullable FileChannel channel = null;
+	// File position of the buffer start
+	private long position = 0;
+	// File position of the last record boundary (either the start of the record currently written or the end of the
+	// last record)
+	private long recordStart = 0;
+	// File position up to which all records have been written completely
+	private long committedLength = 0;
+	private boolean headerPending = true;
+	private boolean closed = false;
+
+	/**
+	 * Constructs a new {@linkplain BinaryLogHandler} instance.
+	 */
+	public BinaryLogHandler() {
+		LogManager manager = LogManager.getLogManager();
+		String propertyBase = getClass().getName();
+
+		this.file = Logs.getPathProperty(manager, propertyBase + ".file", "java.binlog");
+		this.append = Logs.getBooleanProperty(manager, propertyBase + ".append", false);
+		this.buffer = ByteBuffer.allocate(
+				Math.max(Logs.getIntProperty(manager, propertyBase + ".bufferSize", 1 << 16), MIN_BUFFER_SIZE));
+		setLevel(Logs.getLevelProperty(manager, propertyBase + ".level", LogLevel.LEVEL_INFO));
+		setFilter(Logs.getFilterProperty(manager, propertyBase + ".filter", null));
+	}
+
+	/**
+	 * Gets the {@linkplain Path} of the file written.
+	 *
+	 * @return the {@linkplain Path} of the file written.
+	 */
+	public Path file() {
+		return this.file;
+	}
+
+	@Override
+	public void publish(@Nullable LogRecord record) {
+		if (record != null && isLoggable(record)) {
+			// Anything which may call back into foreign code (and possibly log) is evaluated outside of the lock
+			Object @Nullable [] parameters = encodableParameters(record.getParameters());
+			Throwable thrown = record.getThrown();
+			String stackTrace = (thrown != null ? Exceptions.getStackTrace(thrown) : null);
+
+			write(record, parameters, stackTrace);
+		}
+	}
+
+	private Object @Nullable [] encodableParameters(Object @Nullable [] parameters) {
+		Object[] encodableParameters = null;
+
+		if (parameters != null) {
+			encodableParameters = new Object[parameters.length];
+			for (int parameterIndex = 0; parameterIndex < parameters.length; parameterIndex++) {
+				Object parameter = parameters[parameterIndex];
+
+				encodableParameters[parameterIndex] = (parameter == null || isEncodable(parameter) ? parameter
+						: encodableString(parameter));
+			}
+		}
+		return encodableParameters;
+	}
+
+	private String encodableString(Object parameter) {
+		String string;
+
+		try {
+			string = String.valueOf(parameter);
+		} catch (RuntimeException e) {
+			reportError(null, e, ErrorManager.FORMAT_FAILURE);
+			// Fall back to the default Object.toString representation
+			string = parameter.getClass().getName() + "@" + Integer.toHexString(System.identityHashCode(parameter));
+		}
+		return string;
+	}
+
+	private static boolean isEncodable(Object parameter) {
+		return parameter instanceof String || parameter instanceof Integer || parameter instanceof Long
+				|| parameter instanceof Double || parameter instanceof Float || parameter instanceof Short
+				|| parameter instanceof Byte || parameter instanceof Boolean || parameter instanceof Character
+				|| parameter instanceof Date;
+	}
+
+	private synchronized void write(LogRecord record, Object @Nullable [] parameters, @Nullable String stackTrace) {
+		if (!this.closed) {
+			try {
+				if (this.channel != null || open()) {
+					writeRecord(record, parameters, stackTrace);
+				}
+			} catch (IOException e) {
+				reportError(null, e, ErrorManager.WRITE_FAILURE);
+				discardIncompleteRecords();
+			}
+		}
+	}
+
+	private void writeRecord(LogRecord record, Object @Nullable [] parameters, @Nullable String stackTrace)
+			throws IOException {
+		this.recordStart = this.position + this.buffer.position();
+		if (this.headerPending) {
+			putHeader();
+		}
+
+		long millis = record.getMillis();
+		int levelId = levelId(record.getLevel());
+		String loggerName = record.getLoggerName();
+		int loggerNameRef = stringRef(loggerName);
+		String resourceBundleName = record.getResourceBundleName();
+		int resourceBundleNameRef = stringRef(resourceBundleName);
+		String message = record.getMessage();
+		// Messages without parameters are most likely already formatted (and therefore unique)
+		int messageRef = (parameters != null && parameters.length > 0 ? stringRef(message) : inlineRef(message));
+
+		putVarLong(BinaryLogFormat.TAG_RECORD);
+		putVarLong(BinaryLogFormat.zigZagEncode(millis - this.lastMillis));
+		putVarLong(levelId);
+		putStringRef(loggerNameRef, loggerName);
+		putStringRef(resourceBundleNameRef, resourceBundleName);
+		putStringRef(messageRef, message);
+		putVarLong(Integer.toUnsignedLong(record.getThreadID()));
+		if (parameters != null) {
+			putVarLong(parameters.length);
+			for (Object parameter : parameters) {
+				putParameter(parameter);
+			}
+		} else {
+			putVarLong(0);
+		}
+		if (stackTrace != null) {
+			putVarLong(1);
+			putString(stackTrace);
+		} else {
+			putVarLong(0);
+		}
+		this.lastMillis = millis;
+	}
+
+	private boolean open() throws IOException {
+		Path parent = this.file.toAbsolutePath().getParent();
+
+		if (parent != null) {
+			Files.createDirectories(parent);
+		}
+		if (this.append) {
+			long completeLength = (Files.exists(this.file) ? BinaryLogDecoder.completeLength(this.file) : 0);
+
+			if (completeLength >= 0) {
+				FileChannel appendChannel = openChannel(this.file, StandardOpenOption.CREATE,
+						StandardOpenOption.WRITE);
+
+				// Drop any incomplete tail (e.g. due to a crash); otherwise the new header would not be decodable
+				appendChannel.truncate(completeLength);
+				appendChannel.position(completeLength);
+				this.channel = appendChannel;
+				this.position = completeLength;
+			} else {
+				// Neither append to nor overwrite a file we are not able to decode
+				this.closed = true;
+				reportError("Not appending to unrecognized binary log file: " + this.file, null,
+						ErrorManager.OPEN_FAILURE);
+			}
+		} else {
+			this.channel = openChannel(this.file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING);
+			this.position = 0;
+		}
+		this.recordStart = this.position;
+		this.committedLength = this.position;
+		this.headerPending = true;
+		return this.channel != null;
+	}
+
+	/**
+	 * Opens the {@linkplain FileChannel} to write the log to.
+	 * <p>
+	 * Derived classes may override this function to provide a custom channel implementation.
+	 * </p>
+	 *
+	 * @param path the {@linkplain Path} of the file to open.
+	 * @param options the {@linkplain OpenOption}s to use.
+	 * @return the opened {@linkplain FileChannel}.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	protected FileChannel openChannel(Path path, OpenOption... options) throws IOException {
+		return FileChannel.open(path, options);
+	}
+
+	private void putHeader() throws IOException {
+		// Any ids defined so far are no longer valid after the header
+		this.stringIds.clear();
+		this.levelIds.clear();
+		this.lastMillis = 0;
+		putVarLong(BinaryLogFormat.TAG_HEADER);
+		ensureRemaining(Integer.BYTES + 1);
+		this.buffer.putInt(BinaryLogFormat.MAGIC);
+		this.buffer.put((byte) BinaryLogFormat.VERSION);
+		this.headerPending = false;
+	}
+
+	private void discardIncompleteRecords() {
+		FileChannel checkedChannel = this.channel;
+
+		// The ids defined by the discarded records are lost; hence start over with a fresh header
+		this.buffer.clear();
+		this.headerPending = true;
+		this.position = this.committedLength;
+		this.recordStart = this.committedLength;
+		if (checkedChannel != null) {
+			try {
+				checkedChannel.truncate(this.committedLength);
+				checkedChannel.position(this.committedLength);
+			} catch (IOException e) {
+				reportError(null, e, ErrorManager.WRITE_FAILURE);
+			}
+		}
+	}
+
+	private int levelId(Level level) throws IOException {
+		Integer levelId = this.levelIds.get(level);
+
+		if (levelId == null) {
+			levelId = this.levelIds.size();
+			this.levelIds.put(level, levelId);
+			putVarLong(BinaryLogFormat.TAG_LEVEL);
+			putVarLong(levelId.intValue());
+			putVarLong(BinaryLogFormat.zigZagEncode(level.intValue()));
+			putString(level.getName());
+		}
+		return levelId.intValue();
+	}
+
+	private int stringRef(@Nullable String string) throws IOException {
+		int stringRef;
+
+		if (string == null) {
+			stringRef = BinaryLogFormat.REF_NULL;
+		} else {
+			Integer stringId = this.stringIds.get(string);
+
+			if (stringId != null) {
+				stringRef = stringId.intValue();
+			} else if (this.stringIds.size() < BinaryLogFormat.INTERN_LIMIT) {
+				stringRef = BinaryLogFormat.REF_FIRST_ID + this.stringIds.size();
+				this.stringIds.put(string, stringRef);
+				putVarLong(BinaryLogFormat.TAG_STRING);
+				putVarLong(stringRef);
+				putString(string);
+			} else {
+				stringRef = BinaryLogFormat.REF_INLINE;
+			}
+		}
+		return stringRef;
+	}
+
+	private static int inlineRef(@Nullable String string) {
+		return (string != null ? BinaryLogFormat.REF_INLINE : BinaryLogFormat.REF_NULL);
+	}
+
+	private void putStringRef(int stringRef, @Nullable String string) throws IOException {
+		putVarLong(stringRef);
+		if (stringRef == BinaryLogFormat.REF_INLINE && string != null) {
+			putString(string);
+		}
+	}
+
+	private void putParameter(@Nullable Object parameter) throws IOException {
+		if (parameter == null) {
+			putVarLong(BinaryLogFormat.PARAMETER_NULL);
+		} else if (parameter instanceof Integer || parameter instanceof Short || parameter instanceof Byte) {
+			putVarLong(BinaryLogFormat.PARAMETER_INT);
+			putVarLong(BinaryLogFormat.zigZagEncode(((Number) parameter).intValue()));
+		} else if (parameter instanceof Long) {
+			putVarLong(BinaryLogFormat.PARAMETER_LONG);
+			putVarLong(BinaryLogFormat.zigZagEncode(((Long) parameter).longValue()));
+		} else if (parameter instanceof Double) {
+			putVarLong(BinaryLogFormat.PARAMETER_DOUBLE);
+			ensureRemaining(Long.BYTES);
+			this.buffer.putLong(Double.doubleToRawLongBits(((Double) parameter).doubleValue()));
+		} else if (parameter instanceof Float) {
+			putVarLong(BinaryLogFormat.PARAMETER_FLOAT);
+			ensureRemaining(Integer.BYTES);
+			this.buffer.putInt(Float.floatToRawIntBits(((Float) parameter).floatValue()));
+		} else if (parameter instanceof Boolean) {
+			putVarLong(BinaryLogFormat.PARAMETER_BOOLEAN);
+			putVarLong(((Boolean) parameter).booleanValue() ? 1 : 0);
+		} else if (parameter instanceof Character) {
+			putVarLong(BinaryLogFormat.PARAMETER_CHAR);
+			putVarLong(((Character) parameter).charValue());
+		} else if (parameter instanceof Date) {
+			putVarLong(BinaryLogFormat.PARAMETER_DATE);
+			putVarLong(BinaryLogFormat.zigZagEncode(((Date) parameter).getTime()));
+		} else {
+			putVarLong(BinaryLogFormat.PARAMETER_STRING);
+			putString(parameter.toString());
+		}
+	}
+
+	private void putVarLong(long value) throws IOException {
+		long remaining = value;
+
+		ensureRemaining(MAX_VARLONG_SIZE);
+		while ((remaining & ~0x7fL) != 0) {
+			this.buffer.put((byte) ((remaining & 0x7f) | 0x80));
+			remaining >>>= 7;
+		}
+		this.buffer.put((byte) remaining);
+	}
+
+	private void putString(String string) throws IOException {
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		int offset = 0;
+
+		putVarLong(bytes.length);
+		while (offset < bytes.length) {
+			int length = Math.min(this.buffer.remaining(), bytes.length - offset);
+
+			this.buffer.put(bytes, offset, length);
+			offset += length;
+			if (offset < bytes.length) {
+				writeBuffer();
+			}
+		}
+	}
+
+	private void ensureRemaining(int size) throws IOException {
+		if (this.buffer.remaining() < size) {
+			writeBuffer();
+		}
+	}
+
+	private void writeBuffer() throws IOException {
+		FileChannel checkedChannel = this.channel;
+
+		this.buffer.flip();
+		try {
+			if (checkedChannel != null) {
+				int length = this.buffer.remaining();
+
+				while (this.buffer.hasRemaining()) {
+					checkedChannel.write(this.buffer);
+				}
+				this.position += length;
+				this.committedLength = this.recordStart;
+			}
+		} finally {
+			this.buffer.clear();
+		}
+	}
+
+	@Override
+	public synchronized void flush() {
+		if (this.channel != null) {
+			this.recordStart = this.position + this.buffer.position();
+			try {
+				writeBuffer();
+			} catch (IOException e) {
+				reportError(null, e, ErrorManager.FLUSH_FAILURE);
+				discardIncompleteRecords();
+			}
+		}
+	}
+
+	@Override
+	public synchronized void close() {
+		FileChannel checkedChannel = this.channel;
+
+		this.closed = true;
+		if (checkedChannel != null) {
+			this.recordStart = this.position + this.buffer.position();
+			try {
+				writeBuffer();
+			} catch (IOException e) {
+				reportError(null, e, ErrorManager.CLOSE_FAILURE);
+				discardIncompleteRecords();
+			}
+			try {
+				checkedChannel.close();
+			} catch (IOException e) {
+				reportError(null, e, ErrorManager.CLOSE_FAILURE);
+			}
+			this.channel = null;
+		}
+	}
+
+}
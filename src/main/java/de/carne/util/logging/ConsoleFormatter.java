@@ -16,13 +16,6 @@
  */
 package de.carne.util.logging;
 
-import java.io.IOException;
-import java.io.PrintWriter;
-import java.io.Writer;
-import java.time.Instant;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
 import java.util.logging.Formatter;
 import java.util.logging.Level;
 import java.util.logging.LogManager;
@@ -30,12 +23,13 @@ import java.util.logging.LogRecord;
 
 import org.eclipse.jdt.annotation.Nullable;
 
+import de.carne.io.BufferPool;
 import de.carne.util.Platform;
 
 /**
  * A {@linkplain Formatter} providing a simple out of the box log line format.
  */
-public class ConsoleFormatter extends Formatter {
+public class ConsoleFormatter extends Formatter implements StreamingFormatter {
 
 	private static final boolean FORCE_ANSI_OUPUT = Boolean
 			.parseBoolean(System.getProperty(ConsoleFormatter.class.getName() + ".forceAnsiOutput"));
@@ -43,14 +37,15 @@ public class ConsoleFormatter extends Formatter {
 	private static final String ANSI_STYLE_PREFIX = "\033[";
 	private static final String ANSI_RESET = "\033[0m";
 
-	private final DateTimeFormatter tsPattern;
+	private final TimestampFormat tsFormat;
 	private final boolean enableAnsiOutput;
-	private final String levelStyleTrace;
-	private final String levelStyleDebug;
-	private final String levelStyleInfo;
-	private final String levelStyleWarning;
-	private final String levelStyleError;
-	private final String levelStyleNotice;
+	private final char[] levelTrace;
+	private final char[] levelDebug;
+	private final char[] levelInfo;
+	private final char[] levelWarning;
+	private final char[] levelError;
+	private final char[] levelNotice;
+	private final char[] levelUnknown;
 	private final String exceptionStyle;
 
 	/**
@@ -60,22 +55,25 @@ public class ConsoleFormatter extends Formatter {
 		LogManager manager = LogManager.getLogManager();
 		String propertyBase = getClass().getName();
 
-		this.tsPattern = DateTimeFormatter
-				.ofPattern(Logs.getStringProperty(manager, propertyBase + ".tsPattern", "yyyy-MM-dd HH:mm:ss,SSS"));
+		this.tsFormat = new TimestampFormat(
+				Logs.getStringProperty(manager, propertyBase + ".tsPattern", "yyyy-MM-dd HH:mm:ss,SSS"));
 		this.enableAnsiOutput = Logs.getBooleanProperty(manager, propertyBase + ".enableAnsiOutput",
 				enableAnsiOutputDefault());
-		this.levelStyleTrace = ANSI_STYLE_PREFIX
-				+ Logs.getStringProperty(manager, propertyBase + ".levelStyleTrace", "37m");
-		this.levelStyleDebug = ANSI_STYLE_PREFIX
-				+ Logs.getStringProperty(manager, propertyBase + ".levelStyleDebug", "37m");
-		this.levelStyleInfo = ANSI_STYLE_PREFIX
-				+ Logs.getStringProperty(manager, propertyBase + ".levelStyleInfo", "36m");
-		this.levelStyleWarning = ANSI_STYLE_PREFIX
-				+ Logs.getStringProperty(manager, propertyBase + ".levelStyleWarning", "33m");
-		this.levelStyleError = ANSI_STYLE_PREFIX
-				+ Logs.getStringProperty(manager, propertyBase + ".levelStyleError", "91m");
-		this.levelStyleNotice = ANSI_STYLE_PREFIX
-				+ Logs.getStringProperty(manager, propertyBase + ".levelStyleNotice", "32m");
+
+		String levelStyleError = Logs.getStringProperty(manager, propertyBase + ".levelStyleError", "91m");
+
+		this.levelTrace = levelChars(Logs.getStringProperty(manager, propertyBase + ".levelStyleTrace", "37m"),
+				"TRACE  ");
+		this.levelDebug = levelChars(Logs.getStringProperty(manager, propertyBase + ".levelStyleDebug", "37m"),
+				"DEBUG  ");
+		this.levelInfo = levelChars(Logs.getStringProperty(manager, propertyBase + ".levelStyleInfo", "36m"),
+				"INFO   ");
+		this.levelWarning = levelChars(Logs.getStringProperty(manager, propertyBase + ".levelStyleWarning", "33m"),
+				"WARNING");
+		this.levelError = levelChars(levelStyleError, "ERROR  ");
+		this.levelNotice = levelChars(Logs.getStringProperty(manager, propertyBase + ".levelStyleNotice", "32m"),
+				"NOTICE ");
+		this.levelUnknown = levelChars(levelStyleError, "?????? ");
 		this.exceptionStyle = ANSI_STYLE_PREFIX
 				+ Logs.getStringProperty(manager, propertyBase + ".exceptionStyle", "37m");
 	}
@@ -84,64 +82,74 @@ public class ConsoleFormatter extends Formatter {
 		return FORCE_ANSI_OUPUT || (System.console() != null && (Platform.IS_LINUX || Platform.IS_MACOS));
 	}
 
+	private char[] levelChars(String levelStyle, String levelString) {
+		String levelChars = (this.enableAnsiOutput ? ANSI_STYLE_PREFIX + levelStyle + levelString + ANSI_RESET
+				: levelString);
+
+		return levelChars.toCharArray();
+	}
+
 	@Override
 	public String format(@Nullable LogRecord record) {
-		StringBuilder buffer = new StringBuilder();
-
-		if (record != null) {
-			formatMillis(buffer, record.getMillis());
-			buffer.append(' ');
-			formatLevel(buffer, record.getLevel());
-			buffer.append(' ');
-			buffer.append(record.getLoggerName());
-			buffer.append(": ");
-			buffer.append(formatMessage(record));
-			buffer.append(System.lineSeparator());
-			formatThrown(buffer, record.getThrown());
+		StringBuilder buffer = BufferPool.acquireStringBuilder();
+		String formatted;
+
+		try {
+			if (record != null) {
+				format(record, buffer);
+			}
+			formatted = buffer.toString();
+		} finally {
+			BufferPool.release(buffer);
 		}
-		return buffer.toString();
+		return formatted;
 	}
 
-	private StringBuilder formatMillis(StringBuilder buffer, long millis) {
-		return buffer.append(
-				this.tsPattern.format(LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault())));
+	@Override
+	public void format(LogRecord record, StringBuilder buffer) {
+		this.tsFormat.formatTo(buffer, record.getMillis());
+		buffer.append(' ');
+		formatLevel(buffer, record.getLevel());
+		buffer.append(' ');
+		buffer.append(record.getLoggerName());
+		buffer.append(": ");
+		buffer.append(formatMessage(record));
+		buffer.append(System.lineSeparator());
+		formatThrown(buffer, record.getThrown());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Resource bundle lookups and parsed message patterns are cached until the next configuration change (see
+	 * {@linkplain Logs#formatMessage(LogRecord)}).
+	 * </p>
+	 */
+	@Override
+	public String formatMessage(@Nullable LogRecord record) {
+		return (record != null ? MessageFormatCache.formatMessage(record) : "");
 	}
 
 	private StringBuilder formatLevel(StringBuilder buffer, @Nullable Level level) {
 		int levelValue = (level != null ? level.intValue() : Integer.MAX_VALUE);
-		String levelStyle;
-		String levelString;
+		char[] levelChars;
 
 		if (levelValue <= LogLevel.LEVEL_TRACE.intValue()) {
-			levelStyle = this.levelStyleTrace;
-			levelString = "TRACE  ";
+			levelChars = this.levelTrace;
 		} else if (levelValue <= LogLevel.LEVEL_DEBUG.intValue()) {
-			levelStyle = this.levelStyleDebug;
-			levelString = "DEBUG  ";
+			levelChars = this.levelDebug;
 		} else if (levelValue <= LogLevel.LEVEL_INFO.intValue()) {
-			levelStyle = this.levelStyleInfo;
-			levelString = "INFO   ";
+			levelChars = this.levelInfo;
 		} else if (levelValue <= LogLevel.LEVEL_WARNING.intValue()) {
-			levelStyle = this.levelStyleWarning;
-			levelString = "WARNING";
+			levelChars = this.levelWarning;
 		} else if (levelValue <= LogLevel.LEVEL_ERROR.intValue()) {
-			levelStyle = this.levelStyleError;
-			levelString = "ERROR  ";
+			levelChars = this.levelError;
 		} else if (levelValue <= LogLevel.LEVEL_NOTICE.intValue()) {
-			levelStyle = this.levelStyleNotice;
-			levelString = "NOTICE ";
+			levelChars = this.levelNotice;
 		} else {
-			levelStyle = this.levelStyleError;
-			levelString = "?????? ";
-		}
-		if (this.enableAnsiOutput) {
-			buffer.append(levelStyle);
+			levelChars = this.levelUnknown;
 		}
-		buffer.append(levelString);
-		if (this.enableAnsiOutput) {
-			buffer.append(ANSI_RESET);
-		}
-		return buffer;
+		return buffer.append(levelChars);
 	}
 
 	private StringBuilder formatThrown(StringBuilder buffer, @Nullable Throwable thrown) {
@@ -149,26 +157,7 @@ public class ConsoleFormatter extends Formatter {
 			if (this.enableAnsiOutput) {
 				buffer.append(this.exceptionStyle);
 			}
-			try (PrintWriter bufferWriter = new PrintWriter(new Writer() {
-
-				@Override
-				public void write(char @Nullable [] cbuf, int off, int len) throws IOException {
-					buffer.append(cbuf, off, len);
-				}
-
-				@Override
-				public void flush() throws IOException {
-					// Nothing to do
-				}
-
-				@Override
-				public void close() throws IOException {
-					// Nothing to do
-				}
-
-			})) {
-				thrown.printStackTrace(bufferWriter);
-			}
+			FormatSupport.appendStackTrace(buffer, thrown);
 			if (this.enableAnsiOutput) {
 				buffer.append(ANSI_RESET);
 			}
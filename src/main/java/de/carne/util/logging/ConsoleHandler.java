@@ -17,12 +17,21 @@
 package de.carne.util.logging;
 
 import java.io.Console;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.ErrorManager;
+import java.util.logging.Formatter;
 import java.util.logging.LogManager;
 import java.util.logging.LogRecord;
 import java.util.logging.StreamHandler;
 
+import org.eclipse.jdt.annotation.Nullable;
+
+import de.carne.io.BufferPool;
+
 /**
  * A {@linkplain java.util.logging.Handler} which makes use of the {@linkplain Console} class.
  * <p>
@@ -30,11 +39,26 @@ import java.util.logging.StreamHandler;
  * console. If the current VM has no {@linkplain Console} attached the behavior depends on the handler's
  * {@code consoleOnly} property. If this property is set to {@code true} (default) log message are ignored. If this
  * property is set to {@code false} log messages are written to {@linkplain System#out}.
+ * <p>
+ * If the {@code async} property is set, published {@linkplain LogRecord}s are queued in a bounded queue (sized via the
+ * {@code asyncCapacity} property) and written by a dedicated writer thread. The writer collects the formatted records
+ * and writes them in batches. A batch is written as soon as it exceeds the {@code flushSize} property (in characters),
+ * it is older than the {@code flushInterval} property (in milliseconds) or a record of level {@code flushLevel} or
+ * higher has been added to it. If the queue is full, publishing threads wait for the writer to catch up. Should the
+ * writer thread terminate unexpectedly, records are written synchronously again. As queued records are formatted by
+ * the writer thread, any mutable message parameter is rendered in the state it has at that time (see
+ * {@linkplain Log}).
  */
 public class ConsoleHandler extends StreamHandler {
 
 	private final PublishLock lock = PublishLock.getInstance();
+	private final HandlerMetrics metrics = LogMetrics.handlerMetrics(getClass());
+	private final @Nullable Console console = System.console();
 	private final boolean consoleOnly;
+	private final int flushSize;
+	private final long flushIntervalNanos;
+	private final int flushLevel;
+	private final @Nullable AsyncDispatcher dispatcher;
 
 	/**
 	 * Construct {@linkplain ConsoleHandler}.
@@ -45,20 +69,85 @@ public class ConsoleHandler extends StreamHandler {
 		String propertyBase = getClass().getName();
 
 		this.consoleOnly = Logs.getBooleanProperty(manager, propertyBase + ".consoleOnly", false);
+		this.flushSize = Logs.getIntProperty(manager, propertyBase + ".flushSize", 8192);
+		this.flushIntervalNanos = TimeUnit.MILLISECONDS
+				.toNanos(Logs.getIntProperty(manager, propertyBase + ".flushInterval", 100));
+		this.flushLevel = Logs.getLevelProperty(manager, propertyBase + ".flushLevel", LogLevel.LEVEL_ERROR).intValue();
 		setOutputStream(System.out);
+
+		Writer checkedAsyncOut = null;
+
+		if (Logs.getBooleanProperty(manager, propertyBase + ".async", false)) {
+			checkedAsyncOut = getAsyncOut();
+		}
+		if (checkedAsyncOut != null) {
+			// The writer keeps the publish lock to ignore any records issued while formatting
+			this.dispatcher = new AsyncDispatcher(getClass().getSimpleName() + "-writer",
+					Logs.getIntProperty(manager, propertyBase + ".asyncCapacity", 1024), this.lock,
+					new BatchWriter(checkedAsyncOut));
+		} else {
+			this.dispatcher = null;
+		}
+	}
+
+	@SuppressWarnings("squid:S106")
+	private @Nullable Writer getAsyncOut() {
+		Console checkedConsole = this.console;
+		Writer out = null;
+
+		if (checkedConsole != null) {
+			out = checkedConsole.writer();
+		} else if (!this.consoleOnly) {
+			String encoding = getEncoding();
+
+			try {
+				out = new OutputStreamWriter(System.out,
+						(encoding != null ? Charset.forName(encoding) : Charset.defaultCharset()));
+			} catch (IllegalArgumentException e) {
+				reportError(null, e, ErrorManager.OPEN_FAILURE);
+			}
+		}
+		return out;
 	}
 
 	@Override
-	public synchronized void publish(LogRecord record) {
-		this.lock.ifNotLocked(() -> publish0(record));
+	public void publish(@Nullable LogRecord record) {
+		long publishStart = this.metrics.publishStart();
+
+		if (record != null) {
+			AsyncDispatcher checkedDispatcher = this.dispatcher;
+
+			if (checkedDispatcher != null && checkedDispatcher.isRunning()) {
+				if (isLoggable(record) && this.lock.tryLock()) {
+					try {
+						enqueue(checkedDispatcher, record);
+					} finally {
+						this.lock.unlock();
+					}
+				}
+			} else {
+				publishSync(record);
+			}
+		}
+		this.metrics.publishEnd(publishStart);
+	}
+
+	private synchronized void publishSync(LogRecord record) {
+		if (this.lock.tryLock()) {
+			try {
+				publish0(record);
+			} finally {
+				this.lock.unlock();
+			}
+		}
 	}
 
 	private void publish0(LogRecord record) {
-		Console console = System.console();
+		Console checkedConsole = this.console;
 
-		if (console != null) {
+		if (checkedConsole != null) {
 			if (isLoggable(record)) {
-				publishToConsole(console, record, true);
+				publishToConsole(checkedConsole, record, true);
 			}
 		} else if (!this.consoleOnly) {
 			super.publish(record);
@@ -66,35 +155,74 @@ public class ConsoleHandler extends StreamHandler {
 		}
 	}
 
-	private void publishToConsole(Console console, LogRecord record, boolean flush) {
-		String message = null;
+	private void enqueue(AsyncDispatcher checkedDispatcher, LogRecord record) {
+		if (!checkedDispatcher.offerBlocking(record)) {
+			publishSync(record);
+		} else if (record.getLevel().intValue() >= this.flushLevel) {
+			checkedDispatcher.wakeUp();
+		}
+	}
+
+	private void publishToConsole(Console checkedConsole, LogRecord record, boolean flush) {
+		StringBuilder buffer = BufferPool.acquireStringBuilder();
+
+		try {
+			if (formatRecord(record, buffer)) {
+				writeToConsole(checkedConsole, buffer, flush);
+			}
+		} finally {
+			BufferPool.release(buffer);
+		}
+	}
+
+	private boolean formatRecord(LogRecord record, StringBuilder buffer) {
+		Formatter formatter = getFormatter();
+		int start = buffer.length();
+		boolean formatted = false;
 
 		try {
-			message = getFormatter().format(record);
+			if (formatter instanceof StreamingFormatter) {
+				((StreamingFormatter) formatter).format(record, buffer);
+			} else {
+				buffer.append(formatter.format(record));
+			}
+			formatted = true;
 		} catch (Exception e) {
+			buffer.setLength(start);
 			reportError(null, e, ErrorManager.FORMAT_FAILURE);
 		}
-		if (message != null) {
-			@SuppressWarnings("resource") PrintWriter writer = console.writer();
+		return formatted;
+	}
 
-			try {
-				writer.write(message);
-				if (flush) {
-					writer.flush();
-				}
-			} catch (Exception e) {
-				reportError(null, e, ErrorManager.WRITE_FAILURE);
+	private void writeToConsole(Console checkedConsole, StringBuilder buffer, boolean flush) {
+		@SuppressWarnings("resource") PrintWriter consoleWriter = checkedConsole.writer();
+
+		try {
+			FormatSupport.write(consoleWriter, buffer);
+			if (flush) {
+				consoleWriter.flush();
 			}
+		} catch (Exception e) {
+			reportError(null, e, ErrorManager.WRITE_FAILURE);
 		}
 	}
 
 	@Override
-	public synchronized void flush() {
-		Console console = System.console();
+	public void flush() {
+		AsyncDispatcher checkedDispatcher = this.dispatcher;
+
+		if (checkedDispatcher != null) {
+			checkedDispatcher.flush();
+		}
+		flushSync();
+	}
+
+	private synchronized void flushSync() {
+		Console checkedConsole = this.console;
 
-		if (console != null) {
+		if (checkedConsole != null) {
 			try {
-				console.flush();
+				checkedConsole.flush();
 			} catch (Exception e) {
 				reportError(null, e, ErrorManager.FLUSH_FAILURE);
 			}
@@ -104,9 +232,73 @@ public class ConsoleHandler extends StreamHandler {
 	}
 
 	@Override
-	public synchronized void close() {
+	public void close() {
+		AsyncDispatcher checkedDispatcher = this.dispatcher;
+
+		if (checkedDispatcher != null) {
+			checkedDispatcher.close();
+		}
 		this.lock.close();
-		flush();
+		flushSync();
+	}
+
+	private final class BatchWriter implements AsyncDispatcher.Sink {
+
+		private final Writer out;
+		private final StringBuilder batch;
+		private long batchStart = 0;
+
+		BatchWriter(Writer out) {
+			this.out = out;
+			this.batch = new StringBuilder(ConsoleHandler.this.flushSize);
+		}
+
+		@Override
+		public void dispatch(AsyncDispatcher.Batch records) {
+			LogRecord record;
+
+			while ((record = records.next()) != null) {
+				if (this.batch.length() == 0) {
+					this.batchStart = System.nanoTime();
+				}
+				formatRecord(record, this.batch);
+				if (this.batch.length() >= ConsoleHandler.this.flushSize
+						|| record.getLevel().intValue() >= ConsoleHandler.this.flushLevel) {
+					flush();
+				}
+			}
+		}
+
+		@Override
+		public void flush() {
+			if (this.batch.length() > 0) {
+				try {
+					FormatSupport.write(this.out, this.batch);
+					this.out.flush();
+				} catch (Exception e) {
+					reportError(null, e, ErrorManager.WRITE_FAILURE);
+				}
+				this.batch.setLength(0);
+			}
+		}
+
+		@Override
+		public long idle() {
+			long flushIntervalNanos = ConsoleHandler.this.flushIntervalNanos;
+			long parkNanos = flushIntervalNanos;
+
+			if (this.batch.length() > 0) {
+				long batchAge = System.nanoTime() - this.batchStart;
+
+				if (batchAge >= flushIntervalNanos) {
+					flush();
+				} else {
+					parkNanos = flushIntervalNanos - batchAge;
+				}
+			}
+			return parkNanos;
+		}
+
 	}
 
 }
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2016-2021 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.util.logging;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Utility functions for garbage free record formatting and output.
+ */
+final class FormatSupport {
+
+	private FormatSupport() {
+		// Prevent instantiation
+	}
+
+	private static final int WRITE_CHUNK_SIZE = 4096;
+
+	private static final ThreadLocal<StackTraceWriter> STACK_TRACE_WRITER = ThreadLocal
+			.withInitial(StackTraceWriter::new);
+
+	private static final ThreadLocal<char[]> WRITE_CHUNK = ThreadLocal.withInitial(() -> new char[WRITE_CHUNK_SIZE]);
+
+	/**
+	 * Appends a {@linkplain Throwable}'s stack trace to a buffer.
+	 *
+	 * @param buffer the buffer to append to.
+	 * @param thrown the {@linkplain Throwable} to append the stack trace for.
+	 * @return the updated buffer.
+	 */
+	static StringBuilder appendStackTrace(StringBuilder buffer, Throwable thrown) {
+		STACK_TRACE_WRITER.get().print(buffer, thrown);
+		return buffer;
+	}
+
+	/**
+	 * Writes a buffer's content to a {@linkplain Writer} without creating an intermediate {@linkplain String}.
+	 *
+	 * @param writer the {@linkplain Writer} to write to.
+	 * @param buffer the buffer to write.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	static void write(Writer writer, StringBuilder buffer) throws IOException {
+		char[] chunk = WRITE_CHUNK.get();
+		int length = buffer.length();
+		int offset = 0;
+
+		while (offset < length) {
+			int chunkLength = Math.min(chunk.length, length - offset);
+
+			buffer.getChars(offset, offset + chunkLength, chunk, 0);
+			writer.write(chunk, 0, chunkLength);
+			offset += chunkLength;
+		}
+	}
+
+	private static final class StackTraceWriter extends Writer {
+
+		private final PrintWriter printer = new PrintWriter(this);
+		private @Nullable StringBuilder target = null;
+
+		StackTraceWriter() {
+			// Nothing to do here
+		}
+
+		void print(StringBuilder buffer, Throwable thrown) {
+			// Save the current target in case the printing triggers further (nested) formatting
+			StringBuilder previousTarget = this.target;
+
+			this.target = buffer;
+			try {
+				thrown.printStackTrace(this.printer);
+				this.printer.flush();
+			} finally {
+				this.target = previousTarget;
+			}
+		}
+
+		@Override
+		public void write(char[] cbuf, int off, int len) {
+			StringBuilder checkedTarget = this.target;
+
+			if (checkedTarget != null) {
+				checkedTarget.append(cbuf, off, len);
+			}
+		}
+
+		@Override
+		public void write(String str, int off, int len) {
+			StringBuilder checkedTarget = this.target;
+
+			if (checkedTarget != null) {
+				checkedTarget.append(str, off, off + len);
+			}
+		}
+
+		@Override
+		public void flush() {
+			// Nothing to do
+		}
+
+		@Override
+		public void close() {
+			// Nothing to do
+		}
+
+	}
+
+}
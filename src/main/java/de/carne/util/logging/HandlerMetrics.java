@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2016-2021 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.util.logging;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Publish metrics of a specific {@linkplain java.util.logging.Handler} class.
+ *
+ * @see LogMetrics#handlerMetrics(Class)
+ */
+final class HandlerMetrics {
+
+	private static final long NOT_MEASURED = Long.MIN_VALUE;
+
+	private final String name;
+	private final LongAdder published = new LongAdder();
+	private final LongAdder dropped = new LongAdder();
+	private final LatencyHistogram latency = new LatencyHistogram();
+
+	HandlerMetrics(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Starts the measurement of a single publish call.
+	 *
+	 * @return the measurement handle to submit to {@linkplain #publishEnd(long)}.
+	 */
+	long publishStart() {
+		return (LogMetrics.isEnabled() ? System.nanoTime() : NOT_MEASURED);
+	}
+
+	/**
+	 * Ends the measurement of a single publish call.
+	 *
+	 * @param start the measurement handle as returned by {@linkplain #publishStart()}.
+	 */
+	void publishEnd(long start) {
+		if (start != NOT_MEASURED) {
+			this.latency.record(System.nanoTime() - start);
+			this.published.increment();
+		}
+	}
+
+	/**
+	 * Counts a dropped record.
+	 */
+	void dropped() {
+		if (LogMetrics.isEnabled()) {
+			this.dropped.increment();
+		}
+	}
+
+	void reset() {
+		this.published.reset();
+		this.dropped.reset();
+		this.latency.reset();
+	}
+
+	LogMetrics.HandlerSnapshot snapshot() {
+		long[] percentiles = this.latency.percentiles(0.5, 0.9, 0.99, 0.999);
+
+		return new LogMetrics.HandlerSnapshot(this.name, this.published.sum(), this.dropped.sum(), this.latency.mean(),
+				percentiles[0], percentiles[1], percentiles[2], percentiles[3], this.latency.max());
+	}
+
+}
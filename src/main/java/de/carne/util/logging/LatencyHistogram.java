@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2016-2021 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.util.logging;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free log-bucketed latency histogram (in the style of HdrHistogram).
+ * <p>
+ * Values below 16 are counted exactly. Larger values are counted in 8 linear sub-buckets per power of two. Hence the
+ * relative error of the reported percentiles is below 12.5% across the whole {@code long} range at a fixed footprint of
+ * 488 buckets.
+ * </p>
+ */
+final class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	private static final int LINEAR_LIMIT = SUB_BUCKET_COUNT << 1;
+	private static final int BUCKET_COUNT = LINEAR_LIMIT + (Long.SIZE - 2 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+	private final LongAdder total = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+	/**
+	 * Records a value.
+	 *
+	 * @param value the value to record (negative values are recorded as {@code 0}).
+	 */
+	void record(long value) {
+		long checkedValue = Math.max(value, 0);
+
+		this.counts.incrementAndGet(bucketIndex(checkedValue));
+		this.total.add(checkedValue);
+		this.max.accumulate(checkedValue);
+	}
+
+	/**
+	 * Discards all recorded values.
+	 */
+	void reset() {
+		for (int bucketIndex = 0; bucketIndex < BUCKET_COUNT; bucketIndex++) {
+			this.counts.set(bucketIndex, 0);
+		}
+		this.total.reset();
+		this.max.reset();
+	}
+
+	/**
+	 * Gets the number of recorded values.
+	 *
+	 * @return the number of recorded values.
+	 */
+	long count() {
+		long count = 0;
+
+		for (int bucketIndex = 0; bucketIndex < BUCKET_COUNT; bucketIndex++) {
+			count += this.counts.get(bucketIndex);
+		}
+		return count;
+	}
+
+	/**
+	 * Gets the mean of the recorded values.
+	 *
+	 * @return the mean of the recorded values.
+	 */
+	double mean() {
+		long count = count();
+
+		return (count > 0 ? (double) this.total.sum() / count : 0.0);
+	}
+
+	/**
+	 * Gets the maximum of the recorded values.
+	 *
+	 * @return the maximum of the recorded values.
+	 */
+	long max() {
+		return this.max.get();
+	}
+
+	/**
+	 * Gets the (approximate) values at the submitted percentiles.
+	 *
+	 * @param percentiles the percentiles to evaluate (in ascending order and in the range {@code [0.0, 1.0]}).
+	 * @return the values at the submitted percentiles.
+	 */
+	long[] percentiles(double... percentiles) {
+		long[] bucketCounts = new long[BUCKET_COUNT];
+		long count = 0;
+
+		for (int bucketIndex = 0; bucketIndex < BUCKET_COUNT; bucketIndex++) {
+			bucketCounts[bucketIndex] = this.counts.get(bucketIndex);
+			count += bucketCounts[bucketIndex];
+		}
+
+		long max = max();
+		long[] values = new long[percentiles.length];
+		long cumulatedCount = 0;
+		int bucketIndex = -1;
+
+		for (int percentileIndex = 0; percentileIndex < percentiles.length; percentileIndex++) {
+			long targetCount = Math.max((long) Math.ceil(percentiles[percentileIndex] * count), 1);
+
+			while (cumulatedCount < targetCount && bucketIndex + 1 < BUCKET_COUNT) {
+				bucketIndex++;
+				cumulatedCount += bucketCounts[bucketIndex];
+			}
+			values[percentileIndex] = (count > 0 ? Math.min(bucketUpperBound(bucketIndex), max) : 0);
+		}
+		return values;
+	}
+
+	static int bucketIndex(long value) {
+		int bucketIndex;
+
+		if (value < LINEAR_LIMIT) {
+			bucketIndex = (int) value;
+		} else {
+			int magnitude = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+			int subBucket = (int) (value >>> (magnitude - SUB_BUCKET_BITS)) - SUB_BUCKET_COUNT;
+
+			bucketIndex = LINEAR_LIMIT + (magnitude - SUB_BUCKET_BITS - 1) * SUB_BUCKET_COUNT + subBucket;
+		}
+		return bucketIndex;
+	}
+
+	static long bucketLowerBound(int bucketIndex) {
+		long lowerBound;
+
+		if (bucketIndex < LINEAR_LIMIT) {
+			lowerBound = bucketIndex;
+		} else {
+			int magnitude = (bucketIndex - LINEAR_LIMIT) / SUB_BUCKET_COUNT + SUB_BUCKET_BITS + 1;
+			int subBucket = (bucketIndex - LINEAR_LIMIT) % SUB_BUCKET_COUNT;
+
+			lowerBound = ((long) SUB_BUCKET_COUNT + subBucket) << (magnitude - SUB_BUCKET_BITS);
+		}
+		return lowerBound;
+	}
+
+	static long bucketUpperBound(int bucketIndex) {
+		return (bucketIndex + 1 < BUCKET_COUNT ? bucketLowerBound(bucketIndex + 1) - 1 : Long.MAX_VALUE);
+	}
+
+}
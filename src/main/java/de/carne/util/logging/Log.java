@@ -16,10 +16,12 @@
  */
 package de.carne.util.logging;
 
-import java.text.MessageFormat;
+import java.util.Map;
 import java.util.Objects;
 import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
+import java.util.logging.LogRecord;
 import java.util.logging.Logger;
 
 import org.eclipse.jdt.annotation.Nullable;
@@ -28,6 +30,24 @@ import de.carne.util.Lazy;
 
 /**
  * Wrapper class for the JDK's {@linkplain Logger} class to make logging easy and more efficient.
+ * <p>
+ * Message parameters are not formatted while logging. Instead the issued {@linkplain LogRecord}s carry the message
+ * pattern as well as the parameters and formatting is left to the {@linkplain java.util.logging.Formatter} in charge.
+ * Messages without parameters (or without parameter references) are passed as already formatted text.
+ * </p>
+ * <p>
+ * As a consequence, the parameters are rendered at the time the record is formatted, which may be considerably later
+ * than the time it has been logged (e.g. if the record is queued by an {@code async} handler or kept by
+ * {@linkplain LogBuffer}). A parameter modified in between is rendered in its modified state. Hence only immutable
+ * objects (or objects which are not modified any longer) should be passed as parameters. Otherwise pass their
+ * {@linkplain String} representation explicitly.
+ * </p>
+ * <p>
+ * The effective log level is cached. Level changes applied directly to the represented {@linkplain Logger} (see
+ * {@linkplain #logger()}) are detected immediately. Level changes applied directly to any of its parent
+ * {@linkplain Logger}s however are only detected after they have been signaled via {@linkplain Logs#invalidateLevels()}
+ * (as done by {@linkplain #setLevel(Level)} and any configuration change).
+ * </p>
  */
 public final class Log {
 
@@ -35,7 +55,12 @@ public final class Log {
 		Logs.initialize();
 	}
 
+	private static final Object[] NO_PARAMETERS = new Object[0];
+
 	private final Logger logger;
+	private final LoggerMetrics metrics;
+	// Immutable snapshot; final field semantics make a racy (non-volatile) publication safe
+	private LevelSnapshot levelSnapshot = LevelSnapshot.INVALID;
 
 	/**
 	 * Constructs a new {@linkplain Log} instance.
@@ -80,6 +105,7 @@ public final class Log {
 
 	private Log(Logger logger) {
 		this.logger = logger;
+		this.metrics = LogMetrics.loggerMetrics(Objects.toString(logger.getName()));
 	}
 
 	private static final Lazy<Log> rootHolder = new Lazy<>(() -> new Log(Logger.getLogger("")));
@@ -104,18 +130,25 @@ public final class Log {
 
 	/**
 	 * Gets the log level configured for this instance.
+	 * <p>
+	 * The effective level is cached and only re-evaluated after the {@linkplain Logger}'s own level has changed or a
+	 * configuration or level change has been signaled (see {@linkplain Logs#invalidateLevels()}).
+	 * </p>
 	 *
 	 * @return the log level configured for this instance.
 	 */
 	public Level level() {
-		Logger currentLogger = this.logger;
-		Level level = currentLogger.getLevel();
+		return levelSnapshot().level;
+	}
 
-		while (level == null) {
-			currentLogger = (currentLogger != null ? currentLogger.getParent() : null);
-			level = (currentLogger != null ? currentLogger.getLevel() : LogLevel.LEVEL_INFO);
-		}
-		return level;
+	/**
+	 * Sets the log level of the {@linkplain Logger} represented by this instance.
+	 *
+	 * @param level the {@linkplain Level} to set (may be {@code null} to inherit the parent's level).
+	 */
+	public void setLevel(@Nullable Level level) {
+		this.logger.setLevel(level);
+		Logs.invalidateLevels();
 	}
 
 	/**
@@ -125,7 +158,33 @@ public final class Log {
 	 * @return {@code true} if the submitted {@linkplain Level} is enabled.
 	 */
 	public boolean isLoggable(Level level) {
-		return this.logger.isLoggable(level);
+		LevelSnapshot snapshot = levelSnapshot();
+
+		return level.intValue() >= snapshot.levelValue && snapshot.levelValue != LevelSnapshot.OFF_VALUE;
+	}
+
+	private LevelSnapshot levelSnapshot() {
+		int generation = Logs.levelGeneration();
+		LevelSnapshot snapshot = this.levelSnapshot;
+		Level loggerLevel = this.logger.getLevel();
+
+		// Also catch Logger.setLevel invoked directly on our logger (parent level changes still need to be signaled)
+		if (snapshot.generation != generation || snapshot.loggerLevel != loggerLevel) {
+			snapshot = new LevelSnapshot(generation, loggerLevel, resolveLevel(loggerLevel));
+			this.levelSnapshot = snapshot;
+		}
+		return snapshot;
+	}
+
+	private Level resolveLevel(@Nullable Level loggerLevel) {
+		Logger currentLogger = this.logger;
+		Level level = loggerLevel;
+
+		while (level == null) {
+			currentLogger = (currentLogger != null ? currentLogger.getParent() : null);
+			level = (currentLogger != null ? currentLogger.getLevel() : LogLevel.LEVEL_INFO);
+		}
+		return level;
 	}
 
 	/**
@@ -137,11 +196,89 @@ public final class Log {
 	 * @param parameters the message parameters to log.
 	 */
 	public void log(Level level, @Nullable Throwable thrown, String msg, Object... parameters) {
-		if (this.logger.isLoggable(level)) {
-			this.logger.log(level, thrown, () -> MessageFormat.format(msg, parameters));
+		if (isLoggable(level)) {
+			this.metrics.count(level);
+			logRecord(level, thrown, msg, parameters);
+		}
+	}
+
+	/**
+	 * Logs a message without parameters with the given severity.
+	 *
+	 * @param level the {@linkplain Level} of the message.
+	 * @param thrown the {@linkplain Throwable} related to the message (may be {@code null}).
+	 * @param msg the message to log.
+	 */
+	public void log(Level level, @Nullable Throwable thrown, String msg) {
+		if (isLoggable(level)) {
+			this.metrics.count(level);
+			logRecord(level, thrown, msg, NO_PARAMETERS);
+		}
+	}
+
+	/**
+	 * Logs a message with a single parameter with the given severity.
+	 * <p>
+	 * For compatibility with the varargs variant an {@code Object[]} parameter is used as the parameter array.
+	 * </p>
+	 *
+	 * @param level the {@linkplain Level} of the message.
+	 * @param thrown the {@linkplain Throwable} related to the message (may be {@code null}).
+	 * @param msg the message to log.
+	 * @param parameter the message parameter to log.
+	 */
+	public void log(Level level, @Nullable Throwable thrown, String msg, Object parameter) {
+		if (isLoggable(level)) {
+			Object[] parameters = (parameter instanceof Object[] ? (Object[]) parameter : new Object[] { parameter });
+
+			this.metrics.count(level);
+			logRecord(level, thrown, msg, parameters);
+		}
+	}
+
+	/**
+	 * Logs a message with two parameters with the given severity.
+	 *
+	 * @param level the {@linkplain Level} of the message.
+	 * @param thrown the {@linkplain Throwable} related to the message (may be {@code null}).
+	 * @param msg the message to log.
+	 * @param parameter1 the first message parameter to log.
+	 * @param parameter2 the second message parameter to log.
+	 */
+	public void log(Level level, @Nullable Throwable thrown, String msg, Object parameter1, Object parameter2) {
+		if (isLoggable(level)) {
+			this.metrics.count(level);
+			logRecord(level, thrown, msg, new Object[] { parameter1, parameter2 });
 		}
 	}
 
+	private void logRecord(Level level, @Nullable Throwable thrown, String msg, Object[] parameters) {
+		Logger bundleLogger = this.logger;
+
+		// Same resource bundle lookup as Logger.log(Level, String, Object[]) (which has no Throwable variant) does
+		while (bundleLogger != null && bundleLogger.getResourceBundleName() == null) {
+			bundleLogger = bundleLogger.getParent();
+		}
+
+		LogRecord record;
+
+		// Hand over pattern and parameters unless immediate formatting makes a difference (Formatter.formatMessage
+		// only formats localized patterns and patterns referencing parameters)
+		if (parameters.length > 0 && (bundleLogger != null || MessageFormatCache.hasParameterReference(msg))) {
+			record = new LogRecord(level, msg);
+			record.setParameters(parameters);
+		} else {
+			record = new LogRecord(level, MessageFormatCache.format(msg, parameters));
+		}
+		record.setThrown(thrown);
+		record.setLoggerName(this.logger.getName());
+		if (bundleLogger != null) {
+			record.setResourceBundleName(bundleLogger.getResourceBundleName());
+			record.setResourceBundle(bundleLogger.getResourceBundle());
+		}
+		this.logger.log(record);
+	}
+
 	/**
 	 * Checks whether a {@linkplain LogLevel#LEVEL_NOTICE} message of level would be logged by this {@linkplain Log}
 	 * instance.
@@ -162,6 +299,36 @@ public final class Log {
 		log(LogLevel.LEVEL_NOTICE, null, msg, parameters);
 	}
 
+	/**
+	 * Logs a {@linkplain LogLevel#LEVEL_NOTICE} message without parameters.
+	 *
+	 * @param msg the message to log.
+	 */
+	public void notice(String msg) {
+		log(LogLevel.LEVEL_NOTICE, null, msg);
+	}
+
+	/**
+	 * Logs a {@linkplain LogLevel#LEVEL_NOTICE} message with a single parameter.
+	 *
+	 * @param msg the message to log.
+	 * @param parameter the message parameter to log.
+	 */
+	public void notice(String msg, Object parameter) {
+		log(LogLevel.LEVEL_NOTICE, null, msg, parameter);
+	}
+
+	/**
+	 * Logs a {@linkplain LogLevel#LEVEL_NOTICE} message with two parameters.
+	 *
+	 * @param msg the message to log.
+	 * @param parameter1 the first message parameter to log.
+	 * @param parameter2 the second message parameter to log.
+	 */
+	public void notice(String msg, Object parameter1, Object parameter2) {
+		log(LogLevel.LEVEL_NOTICE, null, msg, parameter1, parameter2);
+	}
+
 	/**
 	 * Logs a {@linkplain LogLevel#LEVEL_NOTICE} message.
 	 *
@@ -193,6 +360,36 @@ public final class Log {
 		log(LogLevel.LEVEL_ERROR, null, msg, parameters);
 	}
 
+	/**
+	 * Logs a {@linkplain LogLevel#LEVEL_ERROR} message without parameters.
+	 *
+	 * @param msg the message to log.
+	 */
+	public void error(String msg) {
+		log(LogLevel.LEVEL_ERROR, null, msg);
+	}
+
+	/**
+	 * Logs a {@linkplain LogLevel#LEVEL_ERROR} message with a single parameter.
+	 *
+	 * @param msg the message to log.
+	 * @param parameter the message parameter to log.
+	 */
+	public void error(String msg, Object parameter) {
+		log(LogLevel.LEVEL_ERROR, null, msg, parameter);
+	}
+
+	/**
+	 * Logs a {@linkplain LogLevel#LEVEL_ERROR} message with two parameters.
+	 *
+	 * @param msg the message to log.
+	 * @param parameter1 the first message parameter to log.
+	 * @param parameter2 the second message parameter to log.
+	 */
+	public void error(String msg, Object parameter1, Object parameter2) {
+		log(LogLevel.LEVEL_ERROR, null, msg, parameter1, parameter2);
+	}
+
 	/**
 	 * Logs a {@linkplain LogLevel#LEVEL_ERROR} message.
 	 *
@@ -224,6 +421,36 @@ public final class Log {
 		log(LogLevel.LEVEL_WARNING, null, msg, parameters);
 	}
 
+	/**
+	 * Logs a {@linkplain LogLevel#LEVEL_WARNING} message without parameters.
+	 *
+	 * @param msg the message to log.
+	 */
+	public void warning(String msg) {
+		log(LogLevel.LEVEL_WARNING, null, msg);
+	}
+
+	/**
+	 * Logs a {@linkplain LogLevel#LEVEL_WARNING} message with a single parameter.
+	 *
+	 * @param msg the message to log.
+	 * @param parameter the message parameter to log.
+	 */
+	public void warning(String msg, Object parameter) {
+		log(LogLevel.LEVEL_WARNING, null, msg, parameter);
+	}
+
+	/**
+	 * Logs a {@linkplain LogLevel#LEVEL_WARNING} message with two parameters.
+	 *
+	 * @param msg the message to log.
+	 * @param parameter1 the first message parameter to log.
+	 * @param parameter2 the second message parameter to log.
+	 */
+	public void warning(String msg, Object parameter1, Object parameter2) {
+		log(LogLevel.LEVEL_WARNING, null, msg, parameter1, parameter2);
+	}
+
 	/**
 	 * Logs a {@linkplain LogLevel#LEVEL_WARNING} message.
 	 *
@@ -255,6 +482,36 @@ public final class Log {
 		log(LogLevel.LEVEL_INFO, null, msg, parameters);
 	}
 
+	/**
+	 * Logs a {@linkplain LogLevel#LEVEL_INFO} message without parameters.
+	 *
+	 * @param msg the message to log.
+	 */
+	public void info(String msg) {
+		log(LogLevel.LEVEL_INFO, null, msg);
+	}
+
+	/**
+	 * Logs a {@linkplain LogLevel#LEVEL_INFO} message with a single parameter.
+	 *
+	 * @param msg the message to log.
+	 * @param parameter the message parameter to log.
+	 */
+	public void info(String msg, Object parameter) {
+		log(LogLevel.LEVEL_INFO, null, msg, parameter);
+	}
+
+	/**
+	 * Logs a {@linkplain LogLevel#LEVEL_INFO} message with two parameters.
+	 *
+	 * @param msg the message to log.
+	 * @param parameter1 the first message parameter to log.
+	 * @param parameter2 the second message parameter to log.
+	 */
+	public void info(String msg, Object parameter1, Object parameter2) {
+		log(LogLevel.LEVEL_INFO, null, msg, parameter1, parameter2);
+	}
+
 	/**
 	 * Logs a {@linkplain LogLevel#LEVEL_INFO} message.
 	 *
@@ -286,6 +543,36 @@ public final class Log {
 		log(LogLevel.LEVEL_DEBUG, null, msg, parameters);
 	}
 
+	/**
+	 * Logs a {@linkplain LogLevel#LEVEL_DEBUG} message without parameters.
+	 *
+	 * @param msg the message to log.
+	 */
+	public void debug(String msg) {
+		log(LogLevel.LEVEL_DEBUG, null, msg);
+	}
+
+	/**
+	 * Logs a {@linkplain LogLevel#LEVEL_DEBUG} message with a single parameter.
+	 *
+	 * @param msg the message to log.
+	 * @param parameter the message parameter to log.
+	 */
+	public void debug(String msg, Object parameter) {
+		log(LogLevel.LEVEL_DEBUG, null, msg, parameter);
+	}
+
+	/**
+	 * Logs a {@linkplain LogLevel#LEVEL_DEBUG} message with two parameters.
+	 *
+	 * @param msg the message to log.
+	 * @param parameter1 the first message parameter to log.
+	 * @param parameter2 the second message parameter to log.
+	 */
+	public void debug(String msg, Object parameter1, Object parameter2) {
+		log(LogLevel.LEVEL_DEBUG, null, msg, parameter1, parameter2);
+	}
+
 	/**
 	 * Logs a {@linkplain LogLevel#LEVEL_DEBUG} message.
 	 *
@@ -317,6 +604,36 @@ public final class Log {
 		log(LogLevel.LEVEL_TRACE, null, msg, parameters);
 	}
 
+	/**
+	 * Logs a {@linkplain LogLevel#LEVEL_TRACE} message without parameters.
+	 *
+	 * @param msg the message to log.
+	 */
+	public void trace(String msg) {
+		log(LogLevel.LEVEL_TRACE, null, msg);
+	}
+
+	/**
+	 * Logs a {@linkplain LogLevel#LEVEL_TRACE} message with a single parameter.
+	 *
+	 * @param msg the message to log.
+	 * @param parameter the message parameter to log.
+	 */
+	public void trace(String msg, Object parameter) {
+		log(LogLevel.LEVEL_TRACE, null, msg, parameter);
+	}
+
+	/**
+	 * Logs a {@linkplain LogLevel#LEVEL_TRACE} message with two parameters.
+	 *
+	 * @param msg the message to log.
+	 * @param parameter1 the first message parameter to log.
+	 * @param parameter2 the second message parameter to log.
+	 */
+	public void trace(String msg, Object parameter1, Object parameter2) {
+		log(LogLevel.LEVEL_TRACE, null, msg, parameter1, parameter2);
+	}
+
 	/**
 	 * Logs a {@linkplain LogLevel#LEVEL_TRACE} message.
 	 *
@@ -344,31 +661,91 @@ public final class Log {
 		log(level, null, getCalleeSignature());
 	}
 
+	private static final StackWalker CALLER_WALKER = StackWalker
+			.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+
+	private static final ClassValue<Map<CallSite, String>> CALLEE_SIGNATURES = new ClassValue<>() {
+
+		@Override
+		protected Map<CallSite, String> computeValue(@Nullable Class<?> type) {
+			return new ConcurrentHashMap<>();
+		}
+
+	};
+
 	private static String getCallerClassName() {
-		StackTraceElement caller = getCaller();
+		StackWalker.@Nullable StackFrame caller = getCaller();
 
 		return (caller != null ? caller.getClassName() : Log.class.getName());
 	}
 
 	private static String getCalleeSignature() {
-		StackTraceElement caller = getCaller();
+		StackWalker.@Nullable StackFrame caller = getCaller();
+		String signature;
+
+		if (caller != null) {
+			// Resolving the source position is the expensive part; hence cache it per call site
+			signature = CALLEE_SIGNATURES.get(caller.getDeclaringClass()).computeIfAbsent(new CallSite(caller),
+					callSite -> caller.toStackTraceElement().toString());
+		} else {
+			signature = "<unkown>";
+		}
+		return signature;
+	}
 
-		return (caller != null ? caller.toString() : "<unkown>");
+	private static StackWalker.@Nullable StackFrame getCaller() {
+		// The stream is evaluated lazily; only the frames up to the first non Log frame are walked
+		return CALLER_WALKER.walk(frames -> frames.dropWhile(frame -> frame.getDeclaringClass() == Log.class)
+				.findFirst().orElse(null));
 	}
 
-	@Nullable
-	private static StackTraceElement getCaller() {
-		String thisClassName = Log.class.getName();
-		StackTraceElement[] stes = Thread.currentThread().getStackTrace();
-		int steIndex = 0;
+	private static final class CallSite {
+
+		private final String methodName;
+		private final String methodDescriptor;
+		private final int byteCodeIndex;
+
+		CallSite(StackWalker.StackFrame frame) {
+			this.methodName = frame.getMethodName();
+			this.methodDescriptor = frame.getDescriptor();
+			this.byteCodeIndex = frame.getByteCodeIndex();
+		}
+
+		@Override
+		public int hashCode() {
+			return (this.methodName.hashCode() * 31 + this.methodDescriptor.hashCode()) * 31 + this.byteCodeIndex;
+		}
+
+		@Override
+		public boolean equals(@Nullable Object obj) {
+			return this == obj || (obj instanceof CallSite && equals((CallSite) obj));
+		}
 
-		while (steIndex < stes.length && !thisClassName.equals(stes[steIndex].getClassName())) {
-			steIndex++;
+		private boolean equals(CallSite callSite) {
+			return this.byteCodeIndex == callSite.byteCodeIndex && this.methodName.equals(callSite.methodName)
+					&& this.methodDescriptor.equals(callSite.methodDescriptor);
 		}
-		while (steIndex < stes.length && thisClassName.equals(stes[steIndex].getClassName())) {
-			steIndex++;
+
+	}
+
+	private static final class LevelSnapshot {
+
+		static final int OFF_VALUE = Level.OFF.intValue();
+
+		static final LevelSnapshot INVALID = new LevelSnapshot(-1, null, Level.OFF);
+
+		final int generation;
+		final @Nullable Level loggerLevel;
+		final Level level;
+		final int levelValue;
+
+		LevelSnapshot(int generation, @Nullable Level loggerLevel, Level level) {
+			this.generation = generation;
+			this.loggerLevel = loggerLevel;
+			this.level = level;
+			this.levelValue = level.intValue();
 		}
-		return (steIndex < stes.length ? stes[steIndex] : null);
+
 	}
 
 	@Override
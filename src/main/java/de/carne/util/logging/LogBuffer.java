@@ -16,33 +16,96 @@
  */
 package de.carne.util.logging;
 
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
 import java.io.Writer;
-import java.util.ArrayDeque;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashSet;
-import java.util.Queue;
+import java.util.List;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.ErrorManager;
 import java.util.logging.Handler;
 import java.util.logging.LogManager;
 import java.util.logging.LogRecord;
 import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
 
 import org.eclipse.jdt.annotation.Nullable;
 
+import de.carne.io.BufferPool;
+
 /**
  * {@linkplain Handler} implementation used to add/remove {@linkplain Handler} instances programmatically during
  * application runtime. This class keeps a buffer of published {@linkplain LogRecord}s to make them available to added
  * {@linkplain Handler} instances (e.g. to display log messages issued during application startup in UI).
+ * <p>
+ * The buffered records are kept in a fixed size lock-free ring (sized via the {@code limit} property). Hence
+ * concurrent publishers neither block nor lose records (except the oldest ones being overwritten once the limit has
+ * been reached). The registered {@linkplain Handler}s however are invoked one record at a time and are not invoked
+ * any longer once {@linkplain #removeHandler(Handler)} or {@linkplain #close()} has returned.
+ * </p>
+ * <p>
+ * If the {@code async} property is set, published {@linkplain LogRecord}s are queued in a bounded lock-free queue
+ * (sized via the {@code asyncCapacity} property) and handed to the registered {@linkplain Handler}s in batches by a
+ * dedicated dispatcher thread. Hence a slow {@linkplain Handler} no longer stalls the publishing threads. The
+ * {@code overflow} and {@code overflowLevel} properties define what happens if the queue is full (see
+ * {@linkplain OverflowPolicy}). Should the dispatcher thread terminate unexpectedly, records are dispatched
+ * synchronously again. Note that buffered and queued records keep referencing their (unformatted) parameters; see
+ * {@linkplain Log} for the consequences of passing mutable parameters.
+ * </p>
  */
 public class LogBuffer extends Handler {
 
-	private final int limit;
-	private final Queue<LogRecord> buffer;
-	private final Set<Handler> handlers = new HashSet<>();
-	private final AtomicBoolean locked = new AtomicBoolean();
+	/**
+	 * The possible policies for handling a full queue during asynchronous operation.
+	 */
+	public enum OverflowPolicy {
+
+		/**
+		 * Block the publishing thread until the queue has room for the record.
+		 */
+		BLOCK,
+
+		/**
+		 * Drop the oldest queued record to make room for the record.
+		 */
+		DROP_OLDEST,
+
+		/**
+		 * Drop the record if it's level is below the {@code overflowLevel} property. Otherwise block.
+		 */
+		DROP_BELOW_LEVEL
+
+	}
+
+	private static final long DISPATCHER_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+	private static final int EXPORT_BUFFER_SIZE = 1 << 16;
+
+	private final LogRecordRing buffer;
+	private final List<Registration> handlers = new CopyOnWriteArrayList<>();
+	private final PublishLock lock = new PublishLock();
+	private final HandlerMetrics metrics = LogMetrics.handlerMetrics(getClass());
+	private final OverflowPolicy overflowPolicy;
+	private final int overflowLevel;
+	private final LongAdder dropped = new LongAdder();
+	private final AtomicLong exportedSequence = new AtomicLong();
+	private final @Nullable AsyncDispatcher dispatcher;
 
 	/**
 	 * Constructs a new {@linkplain LogBuffer} instance.
@@ -51,10 +114,18 @@ public class LogBuffer extends Handler {
 		LogManager manager = LogManager.getLogManager();
 		String propertyBase = getClass().getName();
 
-		this.limit = Logs.getIntProperty(manager, propertyBase + ".limit", 1000);
-		this.buffer = new ArrayDeque<>(this.limit);
+		this.buffer = new LogRecordRing(Logs.getIntProperty(manager, propertyBase + ".limit", 1000));
 		setLevel(Logs.getLevelProperty(manager, propertyBase + ".level", LogLevel.LEVEL_WARNING));
 		setFilter(Logs.getFilterProperty(manager, propertyBase + ".filter", null));
+		this.overflowPolicy = Logs.getEnumProperty(manager, propertyBase + ".overflow", OverflowPolicy.BLOCK);
+		this.overflowLevel = Logs.getLevelProperty(manager, propertyBase + ".overflowLevel", LogLevel.LEVEL_WARNING)
+				.intValue();
+		if (Logs.getBooleanProperty(manager, propertyBase + ".async", false)) {
+			this.dispatcher = new AsyncDispatcher(getClass().getSimpleName() + "-dispatcher",
+					Logs.getIntProperty(manager, propertyBase + ".asyncCapacity", 1024), this.lock, new Dispatcher());
+		} else {
+			this.dispatcher = null;
+		}
 	}
 
 	/**
@@ -128,16 +199,47 @@ public class LogBuffer extends Handler {
 	/**
 	 * Adds a {@linkplain Handler} to this {@linkplain LogBuffer} instance for {@linkplain LogRecord} consuming.
 	 * <p>
-	 * Any already buffered {@linkplain LogRecord} is sent to the {@linkplain Handler} during this operation.
+	 * If requested, any already buffered {@linkplain LogRecord} is sent to the {@linkplain Handler} during this
+	 * operation. Records published concurrently to this operation are sent exactly once (either as part of the
+	 * republished buffer or as a new record).
 	 *
 	 * @param handler the {@linkplain Handler} to add.
 	 * @param republishBuffer whether to republish buffered {@linkplain LogRecord}s to the {@linkplain Handler}.
 	 */
-	public synchronized void addHandler(Handler handler, boolean republishBuffer) {
-		for (LogRecord record : this.buffer) {
-			handler.publish(record);
+	public void addHandler(Handler handler, boolean republishBuffer) {
+		Registration registration = new Registration(handler);
+		boolean added = false;
+
+		synchronized (this) {
+			if (getRegistration(handler) == null) {
+				this.handlers.add(registration);
+				added = true;
+			}
+		}
+		if (added) {
+			// Activate the registration only after it has become visible to the publishers
+			long since = this.buffer.writtenCount();
+
+			registration.since = since;
+			if (republishBuffer) {
+				for (LogRecord record : this.buffer.snapshot(since)) {
+					handler.publish(record);
+				}
+			}
+		}
+	}
+
+	@Nullable
+	private Registration getRegistration(Handler handler) {
+		Registration found = null;
+
+		for (Registration registration : this.handlers) {
+			if (registration.handler.equals(handler)) {
+				found = registration;
+				break;
+			}
 		}
-		this.handlers.add(handler);
+		return found;
 	}
 
 	/**
@@ -178,12 +280,12 @@ public class LogBuffer extends Handler {
 	 * @return the found {@linkplain Handler} or {@code null}.
 	 */
 	@Nullable
-	public synchronized <T extends Handler> T getHandler(Class<T> handlerType) {
+	public <T extends Handler> T getHandler(Class<T> handlerType) {
 		@Nullable T found = null;
 
-		for (Handler handler : this.handlers) {
-			if (handler.getClass().equals(handlerType)) {
-				found = handlerType.cast(handler);
+		for (Registration registration : this.handlers) {
+			if (registration.handler.getClass().equals(handlerType)) {
+				found = handlerType.cast(registration.handler);
 				break;
 			}
 		}
@@ -233,7 +335,7 @@ public class LogBuffer extends Handler {
 	 * @see #addHandler(Handler, boolean)
 	 */
 	public synchronized void removeHandler(Handler handler) {
-		this.handlers.remove(handler);
+		this.handlers.removeIf(registration -> registration.handler.equals(handler));
 	}
 
 	/**
@@ -270,19 +372,81 @@ public class LogBuffer extends Handler {
 
 	/**
 	 * Exports the buffered {@linkplain LogRecord}s to a {@linkplain File}.
+	 * <p>
+	 * The export works on a snapshot of the buffer. Hence publishing is not blocked during the export.
+	 * </p>
 	 *
 	 * @param file the {@linkplain File} to export to.
 	 * @param append whether to append ({@code true}) in case of an existing file or not ({@code false}).
 	 * @throws IOException if an I/O error occurs during export.
 	 */
-	public synchronized void exportTo(File file, boolean append) throws IOException {
-		try (Writer writer = new FileWriter(file, append)) {
-			LogLineFormatter formatter = new LogLineFormatter();
+	public void exportTo(File file, boolean append) throws IOException {
+		if (append) {
+			exportTo(file.toPath(), ExportOption.APPEND);
+		} else {
+			exportTo(file.toPath());
+		}
+	}
+
+	/**
+	 * Exports the buffered {@linkplain LogRecord}s to a file.
+	 * <p>
+	 * The export works on a snapshot of the buffer. Hence publishing is not blocked during the export. The records are
+	 * written UTF-8 encoded using the {@linkplain LogLineFormatter} format.
+	 * </p>
+	 *
+	 * @param file the {@linkplain Path} of the file to export to.
+	 * @param options the {@linkplain ExportOption}s to apply.
+	 * @return the number of exported {@linkplain LogRecord}s.
+	 * @throws IOException if an I/O error occurs during export.
+	 */
+	public long exportTo(Path file, ExportOption... options) throws IOException {
+		Export export = prepareExport(options);
+		long exported = export.writeTo(file);
 
-			for (LogRecord record : this.buffer) {
-				writer.write(formatter.format(record));
+		export.commit();
+		return exported;
+	}
+
+	/**
+	 * Exports the buffered {@linkplain LogRecord}s to a file asynchronously.
+	 * <p>
+	 * The buffer snapshot is taken during this call. Formatting and writing the records is performed by the submitted
+	 * {@linkplain Executor}.
+	 * </p>
+	 *
+	 * @param file the {@linkplain Path} of the file to export to.
+	 * @param executor the {@linkplain Executor} to use for writing the export.
+	 * @param options the {@linkplain ExportOption}s to apply.
+	 * @return the {@linkplain CompletableFuture} providing the number of exported {@linkplain LogRecord}s.
+	 * @see #exportTo(Path, ExportOption...)
+	 */
+	public CompletableFuture<Long> exportToAsync(Path file, Executor executor, ExportOption... options) {
+		Export export = prepareExport(options);
+
+		return CompletableFuture.supplyAsync(() -> {
+			long exported;
+
+			try {
+				exported = export.writeTo(file);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
 			}
-		}
+			export.commit();
+			return exported;
+		}, executor);
+	}
+
+	private Export prepareExport(ExportOption... options) {
+		Set<ExportOption> optionSet = EnumSet.noneOf(ExportOption.class);
+
+		Collections.addAll(optionSet, options);
+		awaitDispatcher();
+
+		long endSequence = this.buffer.writtenCount();
+		long fromSequence = (optionSet.contains(ExportOption.INCREMENTAL) ? this.exportedSequence.get() : 0);
+
+		return new Export(this.buffer.snapshot(fromSequence, endSequence), endSequence, optionSet);
 	}
 
 	/**
@@ -317,33 +481,267 @@ public class LogBuffer extends Handler {
 		}
 	}
 
+	/**
+	 * Gets the number of {@linkplain LogRecord}s dropped due to a full queue during asynchronous operation.
+	 *
+	 * @return the number of {@linkplain LogRecord}s dropped due to a full queue during asynchronous operation.
+	 */
+	public long droppedCount() {
+		return this.dropped.sum();
+	}
+
+	/**
+	 * Gets the number of {@linkplain LogRecord}s written to the buffer so far.
+	 *
+	 * @return the number of {@linkplain LogRecord}s written to the buffer so far.
+	 */
+	public long writtenCount() {
+		return this.buffer.writtenCount();
+	}
+
+	/**
+	 * Gets the number of buffered {@linkplain LogRecord}s overwritten due to the buffer limit so far.
+	 *
+	 * @return the number of buffered {@linkplain LogRecord}s overwritten due to the buffer limit so far.
+	 */
+	public long overwrittenCount() {
+		return this.buffer.overwrittenCount();
+	}
+
 	@Override
 	public void publish(@Nullable LogRecord record) {
-		if (record != null && isLoggable(record) && this.locked.compareAndSet(false, true)) {
+		long publishStart = this.metrics.publishStart();
+
+		// Records issued by our handlers while dispatching are ignored to avoid endless recursion
+		if (record != null && isLoggable(record) && this.lock.tryLock()) {
 			try {
-				synchronized (this) {
-					while (this.buffer.size() >= this.limit) {
-						this.buffer.remove();
-					}
-					this.buffer.add(record);
-					this.handlers.forEach(handler -> handler.publish(record));
+				AsyncDispatcher checkedDispatcher = this.dispatcher;
+
+				if (checkedDispatcher != null && checkedDispatcher.isRunning()) {
+					enqueue(checkedDispatcher, record);
+				} else {
+					dispatch(record);
 				}
 			} finally {
-				this.locked.set(false);
+				this.lock.unlock();
+			}
+		}
+		this.metrics.publishEnd(publishStart);
+	}
+
+	private void enqueue(AsyncDispatcher checkedDispatcher, LogRecord record) {
+		if (!checkedDispatcher.offer(record)) {
+			switch (this.overflowPolicy) {
+			case DROP_OLDEST:
+				while (!checkedDispatcher.offer(record)) {
+					if (checkedDispatcher.poll() != null) {
+						drop();
+					}
+				}
+				break;
+			case DROP_BELOW_LEVEL:
+				if (record.getLevel().intValue() < this.overflowLevel) {
+					drop();
+				} else {
+					enqueueBlocking(checkedDispatcher, record);
+				}
+				break;
+			default:
+				enqueueBlocking(checkedDispatcher, record);
+			}
+		}
+	}
+
+	private void drop() {
+		this.dropped.increment();
+		this.metrics.dropped();
+	}
+
+	private void enqueueBlocking(AsyncDispatcher checkedDispatcher, LogRecord record) {
+		// Never block while dispatching (e.g. a handler logging itself), as the queue would never be drained
+		if (Thread.holdsLock(this) || !checkedDispatcher.offerBlocking(record)) {
+			drop();
+		}
+	}
+
+	private void awaitDispatcher() {
+		AsyncDispatcher checkedDispatcher = this.dispatcher;
+
+		// Never wait while holding the monitor, as the dispatcher needs it to invoke our handlers
+		if (checkedDispatcher != null && !Thread.holdsLock(this)) {
+			checkedDispatcher.flush();
+		}
+	}
+
+	private void dispatch(LogRecord record) {
+		long sequence = this.buffer.add(record);
+
+		// Handlers are invoked under the monitor (like flush, close and removeHandler); hence they are never invoked
+		// concurrently and not any longer once they have been removed
+		if (!this.handlers.isEmpty()) {
+			synchronized (this) {
+				publishToHandlers(record, sequence);
+			}
+		}
+	}
+
+	private void dispatchBatch(AsyncDispatcher.Batch batch) {
+		LogRecord record = batch.next();
+
+		if (record != null) {
+			// Acquire the monitor only once per batch
+			synchronized (this) {
+				do {
+					publishToHandlers(record, this.buffer.add(record));
+				} while ((record = batch.next()) != null);
+			}
+		}
+	}
+
+	private void publishToHandlers(LogRecord record, long sequence) {
+		for (Registration registration : this.handlers) {
+			if (sequence >= registration.since) {
+				registration.handler.publish(record);
 			}
 		}
 	}
 
 	@Override
-	public synchronized void flush() {
-		this.handlers.forEach(Handler::flush);
-		this.buffer.clear();
+	public void flush() {
+		awaitDispatcher();
+		synchronized (this) {
+			this.handlers.forEach(registration -> registration.handler.flush());
+			this.buffer.clear();
+		}
 	}
 
 	@Override
-	public synchronized void close() {
-		this.handlers.forEach(Handler::close);
-		this.handlers.clear();
+	public void close() {
+		AsyncDispatcher checkedDispatcher = this.dispatcher;
+
+		if (checkedDispatcher != null) {
+			checkedDispatcher.close();
+		}
+		synchronized (this) {
+			this.handlers.forEach(registration -> registration.handler.close());
+			this.handlers.clear();
+		}
+	}
+
+	/**
+	 * The possible options for exporting the buffered {@linkplain LogRecord}s.
+	 */
+	public enum ExportOption {
+
+		/**
+		 * Append to an already existing export file (instead of overwriting it).
+		 */
+		APPEND,
+
+		/**
+		 * Export only the records published since the last export.
+		 */
+		INCREMENTAL,
+
+		/**
+		 * Compress the exported records using GZIP (appended exports are added as separate GZIP members).
+		 */
+		GZIP
+
+	}
+
+	private final class Export {
+
+		private final List<LogRecord> records;
+		private final long endSequence;
+		private final Set<ExportOption> options;
+
+		Export(List<LogRecord> records, long endSequence, Set<ExportOption> options) {
+			this.records = records;
+			this.endSequence = endSequence;
+			this.options = options;
+		}
+
+		long writeTo(Path file) throws IOException {
+			Set<OpenOption> openOptions = new HashSet<>();
+
+			openOptions.add(StandardOpenOption.WRITE);
+			openOptions.add(StandardOpenOption.CREATE);
+			openOptions.add(this.options.contains(ExportOption.APPEND) ? StandardOpenOption.APPEND
+					: StandardOpenOption.TRUNCATE_EXISTING);
+			try (FileChannel channel = FileChannel.open(file, openOptions);
+					Writer writer = newWriter(channel, this.options.contains(ExportOption.GZIP))) {
+				LogLineFormatter formatter = new LogLineFormatter();
+				StringBuilder buffer = BufferPool.acquireStringBuilder();
+
+				try {
+					for (LogRecord record : this.records) {
+						buffer.setLength(0);
+						try {
+							formatter.format(record, buffer);
+						} catch (Exception e) {
+							Logs.DEFAULT_ERROR_MANAGER.error("Failed to format log record", e,
+									ErrorManager.FORMAT_FAILURE);
+							buffer.setLength(0);
+							buffer.append("...");
+						}
+						FormatSupport.write(writer, buffer);
+					}
+				} finally {
+					BufferPool.release(buffer);
+				}
+			}
+			return this.records.size();
+		}
+
+		private Writer newWriter(FileChannel channel, boolean gzip) throws IOException {
+			Writer writer;
+
+			if (gzip) {
+				writer = new OutputStreamWriter(
+						new GZIPOutputStream(Channels.newOutputStream(channel), EXPORT_BUFFER_SIZE),
+						StandardCharsets.UTF_8);
+			} else {
+				writer = Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), EXPORT_BUFFER_SIZE);
+			}
+			return new BufferedWriter(writer, EXPORT_BUFFER_SIZE);
+		}
+
+		void commit() {
+			LogBuffer.this.exportedSequence.accumulateAndGet(this.endSequence, Math::max);
+		}
+
+	}
+
+	private static final class Registration {
+
+		final Handler handler;
+		// Sequence number of the first record to publish (none until the registration is activated)
+		volatile long since = Long.MAX_VALUE;
+
+		Registration(Handler handler) {
+			this.handler = handler;
+		}
+
+	}
+
+	private final class Dispatcher implements AsyncDispatcher.Sink {
+
+		@Override
+		public void dispatch(AsyncDispatcher.Batch batch) {
+			dispatchBatch(batch);
+		}
+
+		@Override
+		public void flush() {
+			// Handlers are flushed by the buffer's flush
+		}
+
+		@Override
+		public long idle() {
+			return DISPATCHER_PARK_NANOS;
+		}
+
 	}
 
 }
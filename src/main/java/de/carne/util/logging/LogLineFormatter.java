@@ -16,11 +16,6 @@
  */
 package de.carne.util.logging;
 
-import java.io.PrintWriter;
-import java.io.StringWriter;
-import java.time.Instant;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.logging.ErrorManager;
 import java.util.logging.Formatter;
@@ -28,47 +23,74 @@ import java.util.logging.LogRecord;
 
 import org.eclipse.jdt.annotation.Nullable;
 
+import de.carne.io.BufferPool;
+
 /**
  * {@linkplain Formatter} implementation providing a simple static single line (except for stack trace information) log
  * format.
  */
-public class LogLineFormatter extends Formatter {
+public class LogLineFormatter extends Formatter implements StreamingFormatter {
+
+	private static final String DATE_TIME_PATTERN = "yyyy-MM-dd HH:mm:ss,SSS";
 
 	/**
 	 * The {@linkplain DateTimeFormatter} used for record timestamp formatting.
 	 */
-	public static final DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss,SSS");
+	public static final DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormatter.ofPattern(DATE_TIME_PATTERN);
+
+	private final TimestampFormat timestampFormat = new TimestampFormat(DATE_TIME_PATTERN);
 
 	@Override
 	public String format(@Nullable LogRecord record) {
 		String message = null;
 
 		if (record != null) {
-			try (StringWriter sw = new StringWriter(); PrintWriter pw = new PrintWriter(sw)) {
-				pw.print(formatMillis(record));
-				pw.print(" [");
-				pw.print(record.getThreadID());
-				pw.print("] ");
-				pw.print(record.getLevel());
-				pw.print(" ");
-				pw.print(record.getLoggerName());
-				pw.print(": ");
-				pw.println(formatMessage(record));
-
-				Throwable thrown = record.getThrown();
-
-				if (thrown != null) {
-					thrown.printStackTrace(pw);
-				}
-				pw.flush();
-				message = sw.toString();
+			StringBuilder buffer = BufferPool.acquireStringBuilder();
+
+			try {
+				format(record, buffer);
+				message = buffer.toString();
 			} catch (Exception e) {
 				Logs.DEFAULT_ERROR_MANAGER.error("Failed to format log record", e, ErrorManager.FORMAT_FAILURE);
+			} finally {
+				BufferPool.release(buffer);
 			}
 		}
 		return (message != null ? message : "...");
 	}
 
+	@Override
+	public void format(LogRecord record, StringBuilder buffer) {
+		this.timestampFormat.formatTo(buffer, record.getMillis());
+		buffer.append(" [");
+		buffer.append(record.getThreadID());
+		buffer.append("] ");
+		buffer.append(record.getLevel());
+		buffer.append(" ");
+		buffer.append(record.getLoggerName());
+		buffer.append(": ");
+		buffer.append(formatMessage(record));
+		buffer.append(System.lineSeparator());
+
+		Throwable thrown = record.getThrown();
+
+		if (thrown != null) {
+			FormatSupport.appendStackTrace(buffer, thrown);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Resource bundle lookups and parsed message patterns are cached until the next configuration change (see
+	 * {@linkplain Logs#formatMessage(LogRecord)}).
+	 * </p>
+	 */
+	@Override
+	public String formatMessage(@Nullable LogRecord record) {
+		return (record != null ? MessageFormatCache.formatMessage(record) : "");
+	}
+
 	/**
 	 * Formats a {@linkplain LogRecord}'s time attribute.
 	 * 
@@ -77,10 +99,7 @@ public class LogLineFormatter extends Formatter {
 	 * @see LogRecord#getMillis()
 	 */
 	public String formatMillis(LogRecord record) {
-		LocalDateTime recordTimestamp = LocalDateTime.ofInstant(Instant.ofEpochMilli(record.getMillis()),
-				ZoneId.systemDefault());
-
-		return DATE_TIME_FORMAT.format(recordTimestamp);
+		return this.timestampFormat.format(record.getMillis());
 	}
 
 }
@@ -0,0 +1,413 @@
+/*
+ * Copyright (c) 2016-2021 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.util.logging;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+
+import javax.management.ConstructorParameters;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+/**
+ * Instrumentation facility providing insight into the logging subsystem's activity and costs.
+ * <p>
+ * If enabled (either via {@linkplain #setEnabled(boolean)} or via the {@code de.carne.util.logging.LogMetrics.enabled}
+ * property of the logging configuration) the following metrics are collected:
+ * </p>
+ * <ul>
+ * <li>the number of records issued via {@linkplain Log} per level and per logger</li>
+ * <li>the number of published and dropped records as well as the publish latency of the {@linkplain ConsoleHandler},
+ * {@linkplain LogBuffer} and {@linkplain ProxyHandler} handlers</li>
+ * <li>the number of suppressed re-entrant publishes</li>
+ * </ul>
+ * <p>
+ * The collected metrics are accessible via {@linkplain #snapshot()} as well as via JMX (see {@linkplain #OBJECT_NAME}).
+ * </p>
+ */
+public final class LogMetrics {
+
+	private LogMetrics() {
+		// Prevent instantiation
+	}
+
+	/**
+	 * The {@linkplain ObjectName} the {@linkplain LogMetricsMXBean} is registered with once metrics collection has
+	 * been enabled.
+	 */
+	public static final String OBJECT_NAME = "de.carne.util.logging:type=LogMetrics";
+
+	static final LogLevel[] LEVELS = { LogLevel.LEVEL_TRACE, LogLevel.LEVEL_DEBUG, LogLevel.LEVEL_INFO,
+			LogLevel.LEVEL_WARNING, LogLevel.LEVEL_ERROR, LogLevel.LEVEL_NOTICE };
+
+	private static final ConcurrentMap<String, LoggerMetrics> LOGGER_METRICS = new ConcurrentHashMap<>();
+	private static final ConcurrentMap<String, HandlerMetrics> HANDLER_METRICS = new ConcurrentHashMap<>();
+
+	private static volatile boolean enabled = false;
+	private static boolean registered = false;
+
+	/**
+	 * Checks whether metrics collection is currently enabled.
+	 *
+	 * @return {@code true} if metrics collection is currently enabled.
+	 */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Enables or disables metrics collection.
+	 * <p>
+	 * Enabling metrics collection the first time also registers the {@linkplain LogMetricsMXBean} with the platform
+	 * {@linkplain MBeanServer}.
+	 * </p>
+	 *
+	 * @param enable whether to enable or disable metrics collection.
+	 */
+	public static void setEnabled(boolean enable) {
+		if (enable) {
+			registerMXBean();
+		}
+		enabled = enable;
+	}
+
+	private static synchronized void registerMXBean() {
+		if (!registered) {
+			registered = true;
+			try {
+				MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+				server.registerMBean(new StandardMBean(new MXBean(), LogMetricsMXBean.class, true),
+						new ObjectName(OBJECT_NAME));
+			} catch (JMException | SecurityException e) {
+				Logs.DEFAULT_ERROR_MANAGER.error("Failed to register MXBean: " + OBJECT_NAME, e,
+						ErrorManager.GENERIC_FAILURE);
+			}
+		}
+	}
+
+	/**
+	 * Resets all counters and histograms.
+	 */
+	public static void reset() {
+		LOGGER_METRICS.values().forEach(LoggerMetrics::reset);
+		HANDLER_METRICS.values().forEach(HandlerMetrics::reset);
+	}
+
+	/**
+	 * Takes a snapshot of the currently collected metrics.
+	 *
+	 * @return the snapshot of the currently collected metrics.
+	 */
+	public static Snapshot snapshot() {
+		long[] levelCounts = new long[LEVELS.length];
+		Map<String, Long> loggerCounts = new TreeMap<>();
+
+		LOGGER_METRICS.forEach((loggerName, loggerMetrics) -> {
+			long loggerCount = 0;
+
+			for (int levelIndex = 0; levelIndex < LEVELS.length; levelIndex++) {
+				long levelCount = loggerMetrics.levelCount(levelIndex);
+
+				levelCounts[levelIndex] += levelCount;
+				loggerCount += levelCount;
+			}
+			if (loggerCount > 0) {
+				loggerCounts.put(loggerName, loggerCount);
+			}
+		});
+
+		Map<String, Long> levelCountMap = new LinkedHashMap<>();
+
+		for (int levelIndex = 0; levelIndex < LEVELS.length; levelIndex++) {
+			levelCountMap.put(LEVELS[levelIndex].getName(), levelCounts[levelIndex]);
+		}
+
+		List<HandlerSnapshot> handlers = new ArrayList<>();
+
+		HANDLER_METRICS.values().forEach(handlerMetrics -> handlers.add(handlerMetrics.snapshot()));
+		handlers.sort((handler1, handler2) -> handler1.getName().compareTo(handler2.getName()));
+		return new Snapshot(levelCountMap, loggerCounts, handlers, PublishLock.suppressedCount());
+	}
+
+	static LoggerMetrics loggerMetrics(String loggerName) {
+		return LOGGER_METRICS.computeIfAbsent(loggerName, key -> new LoggerMetrics());
+	}
+
+	static HandlerMetrics handlerMetrics(Class<? extends Handler> handlerClass) {
+		return HANDLER_METRICS.computeIfAbsent(handlerClass.getName(), HandlerMetrics::new);
+	}
+
+	static int levelIndex(Level level) {
+		int levelValue = level.intValue();
+		int levelIndex = 0;
+
+		while (levelIndex + 1 < LEVELS.length && levelValue > LEVELS[levelIndex].intValue()) {
+			levelIndex++;
+		}
+		return levelIndex;
+	}
+
+	/**
+	 * Snapshot of the collected metrics.
+	 *
+	 * @see LogMetrics#snapshot()
+	 */
+	public static final class Snapshot {
+
+		private final Map<String, Long> levelCounts;
+		private final Map<String, Long> loggerCounts;
+		private final List<HandlerSnapshot> handlers;
+		private final long suppressedCount;
+
+		Snapshot(Map<String, Long> levelCounts, Map<String, Long> loggerCounts, List<HandlerSnapshot> handlers,
+				long suppressedCount) {
+			this.levelCounts = Collections.unmodifiableMap(levelCounts);
+			this.loggerCounts = Collections.unmodifiableMap(loggerCounts);
+			this.handlers = Collections.unmodifiableList(handlers);
+			this.suppressedCount = suppressedCount;
+		}
+
+		/**
+		 * Gets the number of records issued via {@linkplain Log} per level.
+		 * <p>
+		 * Levels are mapped via {@linkplain LogLevel#fromLevel(Level)} and reported by their names.
+		 * </p>
+		 *
+		 * @return the number of issued records per level.
+		 */
+		public Map<String, Long> getLevelCounts() {
+			return this.levelCounts;
+		}
+
+		/**
+		 * Gets the number of records issued via {@linkplain Log} per logger (loggers without records are omitted).
+		 *
+		 * @return the number of issued records per logger.
+		 */
+		public Map<String, Long> getLoggerCounts() {
+			return this.loggerCounts;
+		}
+
+		/**
+		 * Gets the publish metrics of the instrumented {@linkplain Handler} classes.
+		 *
+		 * @return the publish metrics of the instrumented {@linkplain Handler} classes.
+		 */
+		public List<HandlerSnapshot> getHandlers() {
+			return this.handlers;
+		}
+
+		/**
+		 * Gets the number of suppressed re-entrant publishes (always collected).
+		 *
+		 * @return the number of suppressed re-entrant publishes.
+		 * @see Logs#suppressedPublishCount()
+		 */
+		public long getSuppressedCount() {
+			return this.suppressedCount;
+		}
+
+	}
+
+	/**
+	 * Snapshot of the publish metrics of a specific {@linkplain Handler} class.
+	 * <p>
+	 * All latencies are reported in nanoseconds. Percentiles are accurate within 12.5%.
+	 * </p>
+	 */
+	public static final class HandlerSnapshot {
+
+		private final String name;
+		private final long publishedCount;
+		private final long droppedCount;
+		private final double latencyMean;
+		private final long latency50;
+		private final long latency90;
+		private final long latency99;
+		private final long latency999;
+		private final long latencyMax;
+
+		/**
+		 * Constructs a new {@linkplain HandlerSnapshot} instance.
+		 *
+		 * @param name the name of the {@linkplain Handler} class.
+		 * @param publishedCount the number of measured publish calls.
+		 * @param droppedCount the number of dropped records.
+		 * @param latencyMean the mean publish latency.
+		 * @param latency50 the median publish latency.
+		 * @param latency90 the 90th percentile of the publish latency.
+		 * @param latency99 the 99th percentile of the publish latency.
+		 * @param latency999 the 99.9th percentile of the publish latency.
+		 * @param latencyMax the maximum publish latency.
+		 */
+		// The annotation is only evaluated by the JMX runtime; consumers don't need to read java.management
+		@SuppressWarnings("exports")
+		@ConstructorParameters({ "name", "publishedCount", "droppedCount", "latencyMean", "latency50", "latency90",
+				"latency99", "latency999", "latencyMax" })
+		public HandlerSnapshot(String name, long publishedCount, long droppedCount, double latencyMean, long latency50,
+				long latency90, long latency99, long latency999, long latencyMax) {
+			this.name = name;
+			this.publishedCount = publishedCount;
+			this.droppedCount = droppedCount;
+			this.latencyMean = latencyMean;
+			this.latency50 = latency50;
+			this.latency90 = latency90;
+			this.latency99 = latency99;
+			this.latency999 = latency999;
+			this.latencyMax = latencyMax;
+		}
+
+		/**
+		 * Gets the name of the {@linkplain Handler} class.
+		 *
+		 * @return the name of the {@linkplain Handler} class.
+		 */
+		public String getName() {
+			return this.name;
+		}
+
+		/**
+		 * Gets the number of measured publish calls.
+		 *
+		 * @return the number of measured publish calls.
+		 */
+		public long getPublishedCount() {
+			return this.publishedCount;
+		}
+
+		/**
+		 * Gets the number of dropped records.
+		 *
+		 * @return the number of dropped records.
+		 */
+		public long getDroppedCount() {
+			return this.droppedCount;
+		}
+
+		/**
+		 * Gets the mean publish latency.
+		 *
+		 * @return the mean publish latency.
+		 */
+		public double getLatencyMean() {
+			return this.latencyMean;
+		}
+
+		/**
+		 * Gets the median publish latency.
+		 *
+		 * @return the median publish latency.
+		 */
+		public long getLatency50() {
+			return this.latency50;
+		}
+
+		/**
+		 * Gets the 90th percentile of the publish latency.
+		 *
+		 * @return the 90th percentile of the publish latency.
+		 */
+		public long getLatency90() {
+			return this.latency90;
+		}
+
+		/**
+		 * Gets the 99th percentile of the publish latency.
+		 *
+		 * @return the 99th percentile of the publish latency.
+		 */
+		public long getLatency99() {
+			return this.latency99;
+		}
+
+		/**
+		 * Gets the 99.9th percentile of the publish latency.
+		 *
+		 * @return the 99.9th percentile of the publish latency.
+		 */
+		public long getLatency999() {
+			return this.latency999;
+		}
+
+		/**
+		 * Gets the maximum publish latency.
+		 *
+		 * @return the maximum publish latency.
+		 */
+		public long getLatencyMax() {
+			return this.latencyMax;
+		}
+
+	}
+
+	private static final class MXBean implements LogMetricsMXBean {
+
+		MXBean() {
+			// Nothing to do here
+		}
+
+		@Override
+		public boolean isEnabled() {
+			return LogMetrics.isEnabled();
+		}
+
+		@Override
+		public void setEnabled(boolean enabled) {
+			LogMetrics.setEnabled(enabled);
+		}
+
+		@Override
+		public Map<String, Long> getLevelCounts() {
+			return snapshot().getLevelCounts();
+		}
+
+		@Override
+		public Map<String, Long> getLoggerCounts() {
+			return snapshot().getLoggerCounts();
+		}
+
+		@Override
+		public List<HandlerSnapshot> getHandlers() {
+			return snapshot().getHandlers();
+		}
+
+		@Override
+		public long getSuppressedCount() {
+			return PublishLock.suppressedCount();
+		}
+
+		@Override
+		public void reset() {
+			LogMetrics.reset();
+		}
+
+	}
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2016-2021 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.util.logging;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JMX interface of the {@linkplain LogMetrics} facility (registered as {@value LogMetrics#OBJECT_NAME}).
+ */
+public interface LogMetricsMXBean {
+
+	/**
+	 * Checks whether metrics collection is currently enabled.
+	 *
+	 * @return {@code true} if metrics collection is currently enabled.
+	 * @see LogMetrics#isEnabled()
+	 */
+	boolean isEnabled();
+
+	/**
+	 * Enables or disables metrics collection.
+	 *
+	 * @param enabled whether to enable or disable metrics collection.
+	 * @see LogMetrics#setEnabled(boolean)
+	 */
+	void setEnabled(boolean enabled);
+
+	/**
+	 * Gets the number of issued records per level.
+	 *
+	 * @return the number of issued records per level.
+	 * @see LogMetrics.Snapshot#getLevelCounts()
+	 */
+	Map<String, Long> getLevelCounts();
+
+	/**
+	 * Gets the number of issued records per logger.
+	 *
+	 * @return the number of issued records per logger.
+	 * @see LogMetrics.Snapshot#getLoggerCounts()
+	 */
+	Map<String, Long> getLoggerCounts();
+
+	/**
+	 * Gets the publish metrics of the instrumented handlers.
+	 *
+	 * @return the publish metrics of the instrumented handlers.
+	 * @see LogMetrics.Snapshot#getHandlers()
+	 */
+	List<LogMetrics.HandlerSnapshot> getHandlers();
+
+	/**
+	 * Gets the number of suppressed re-entrant publishes.
+	 *
+	 * @return the number of suppressed re-entrant publishes.
+	 * @see LogMetrics.Snapshot#getSuppressedCount()
+	 */
+	long getSuppressedCount();
+
+	/**
+	 * Resets all counters and histograms.
+	 *
+	 * @see LogMetrics#reset()
+	 */
+	void reset();
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2016-2021 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.util.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.LogRecord;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Bounded lock-free queue for {@linkplain LogRecord}s.
+ * <p>
+ * Every slot carries a sequence number which tells producers and consumers whether the slot is ready for writing or
+ * reading. Hence producers and consumers only contend on the position counters and never block each other.
+ * </p>
+ */
+final class LogRecordQueue {
+
+	private final int mask;
+	private final AtomicReferenceArray<@Nullable LogRecord> records;
+	private final AtomicLongArray sequences;
+	private final AtomicLong head = new AtomicLong();
+	private final AtomicLong tail = new AtomicLong();
+
+	LogRecordQueue(int capacity) {
+		int actualCapacity = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+
+		this.mask = actualCapacity - 1;
+		this.records = new AtomicReferenceArray<>(actualCapacity);
+		this.sequences = new AtomicLongArray(actualCapacity);
+		for (int slotIndex = 0; slotIndex < actualCapacity; slotIndex++) {
+			this.sequences.set(slotIndex, slotIndex);
+		}
+	}
+
+	int capacity() {
+		return this.mask + 1;
+	}
+
+	boolean offer(LogRecord record) {
+		boolean offered = false;
+		long position = this.tail.get();
+
+		while (!offered) {
+			int slotIndex = (int) position & this.mask;
+			long difference = this.sequences.getAcquire(slotIndex) - position;
+
+			if (difference == 0) {
+				if (this.tail.compareAndSet(position, position + 1)) {
+					this.records.setPlain(slotIndex, record);
+					this.sequences.setRelease(slotIndex, position + 1);
+					offered = true;
+				} else {
+					position = this.tail.get();
+				}
+			} else if (difference < 0) {
+				// Queue is full
+				break;
+			} else {
+				position = this.tail.get();
+			}
+		}
+		return offered;
+	}
+
+	@Nullable
+	LogRecord poll() {
+		LogRecord record = null;
+		long position = this.head.get();
+
+		while (record == null) {
+			int slotIndex = (int) position & this.mask;
+			long difference = this.sequences.getAcquire(slotIndex) - (position + 1);
+
+			if (difference == 0) {
+				if (this.head.compareAndSet(position, position + 1)) {
+					record = this.records.getPlain(slotIndex);
+					this.records.setPlain(slotIndex, null);
+					this.sequences.setRelease(slotIndex, position + this.mask + 1);
+				} else {
+					position = this.head.get();
+				}
+			} else if (difference < 0) {
+				// Queue is empty
+				break;
+			} else {
+				position = this.head.get();
+			}
+		}
+		return record;
+	}
+
+	boolean isEmpty() {
+		return this.head.get() >= this.tail.get();
+	}
+
+}
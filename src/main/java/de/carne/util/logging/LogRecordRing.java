@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2016-2021 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.util.logging;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.LogRecord;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Fixed capacity lock-free ring of {@linkplain LogRecord}s.
+ * <p>
+ * Every added record gets a unique sequence number. Once the ring is full, adding a record overwrites the oldest one.
+ * Snapshots can be taken at any time without blocking concurrent writers.
+ * </p>
+ */
+final class LogRecordRing {
+
+	private final int capacity;
+	private final AtomicReferenceArray<@Nullable Entry> entries;
+	private final AtomicLong written = new AtomicLong();
+	private final LongAdder overwritten = new LongAdder();
+	private volatile long clearedSequence = 0;
+
+	LogRecordRing(int capacity) {
+		this.capacity = Math.max(capacity, 0);
+		this.entries = new AtomicReferenceArray<>(Math.max(capacity, 1));
+	}
+
+	/**
+	 * Adds a record.
+	 *
+	 * @param record the record to add.
+	 * @return the sequence number assigned to the record.
+	 */
+	long add(LogRecord record) {
+		long sequence = this.written.getAndIncrement();
+
+		if (this.capacity > 0) {
+			int entryIndex = (int) (sequence % this.capacity);
+			Entry entry = new Entry(sequence, record);
+			Entry current = this.entries.get(entryIndex);
+			boolean stored = false;
+
+			// A concurrent writer may have already stored a newer record in the same slot
+			while (!stored && (current == null || current.sequence < sequence)) {
+				stored = this.entries.compareAndSet(entryIndex, current, entry);
+				if (!stored) {
+					current = this.entries.get(entryIndex);
+				}
+			}
+
+			Entry displaced = (stored ? current : entry);
+
+			if (displaced != null && displaced.sequence >= this.clearedSequence) {
+				this.overwritten.increment();
+			}
+		}
+		return sequence;
+	}
+
+	/**
+	 * Gets the retained records with sequence numbers below the submitted one (in sequence order).
+	 *
+	 * @param endSequence the sequence number to stop at (exclusive).
+	 * @return the retained records.
+	 */
+	List<LogRecord> snapshot(long endSequence) {
+		return snapshot(0, endSequence);
+	}
+
+	/**
+	 * Gets the retained records within the submitted sequence number range (in sequence order).
+	 *
+	 * @param fromSequence the sequence number to start at (inclusive).
+	 * @param endSequence the sequence number to stop at (exclusive).
+	 * @return the retained records.
+	 */
+	List<LogRecord> snapshot(long fromSequence, long endSequence) {
+		long startSequence = Math.max(Math.max(endSequence - this.capacity, fromSequence), this.clearedSequence);
+		List<LogRecord> records = new ArrayList<>((int) Math.max(endSequence - startSequence, 0));
+
+		for (long sequence = startSequence; sequence < endSequence; sequence++) {
+			int entryIndex = (int) (sequence % this.capacity);
+			Entry entry;
+
+			// Wait for an in-flight writer that already got its sequence number but did not yet store it's record
+			while ((entry = this.entries.get(entryIndex)) == null || entry.sequence < sequence) {
+				Thread.onSpinWait();
+			}
+			if (entry.sequence == sequence) {
+				records.add(entry.record);
+			}
+		}
+		return records;
+	}
+
+	/**
+	 * Gets all currently retained records (in sequence order).
+	 *
+	 * @return the retained records.
+	 */
+	List<LogRecord> snapshot() {
+		return snapshot(this.written.get());
+	}
+
+	/**
+	 * Discards all currently retained records.
+	 */
+	void clear() {
+		this.clearedSequence = this.written.get();
+	}
+
+	long writtenCount() {
+		return this.written.get();
+	}
+
+	long overwrittenCount() {
+		return this.overwritten.sum();
+	}
+
+	private static final class Entry {
+
+		final long sequence;
+		final LogRecord record;
+
+		Entry(long sequence, LogRecord record) {
+			this.sequence = sequence;
+			this.record = record;
+		}
+
+	}
+
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2016-2021 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.util.logging;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.logging.LogRecord;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Bounded and indexed store of {@linkplain LogRecord}s.
+ * <p>
+ * Records are kept in a ring of fixed size segments. Once the store is full, the oldest segment is discarded as a
+ * whole. Hence at least the configured number of latest records is retained. Every record gets a sequence number which
+ * is registered in a per-level as well as in a per-logger and level index. Level and logger queries therefore only
+ * touch the matching records.
+ * </p>
+ */
+final class LogRecordStore {
+
+	private static final int MAX_SEGMENT_SIZE = 4096;
+
+	private final int segmentSize;
+	private final @Nullable LogRecord[] @Nullable [] segments;
+	private final LevelIndex levelIndex = new LevelIndex();
+	private final Map<String, LevelIndex> loggerIndex = new HashMap<>();
+	private long firstSequence = 0;
+	private long nextSequence = 0;
+
+	LogRecordStore(int limit) {
+		int checkedLimit = Math.max(limit, 1);
+
+		this.segmentSize = Math.min(MAX_SEGMENT_SIZE, Math.max(Integer.highestOneBit(checkedLimit - 1) << 1, 1));
+		this.segments = new LogRecord[(checkedLimit + this.segmentSize - 1) / this.segmentSize + 1][];
+	}
+
+	/**
+	 * Adds a record.
+	 *
+	 * @param record the record to add.
+	 */
+	synchronized void add(LogRecord record) {
+		long sequence = this.nextSequence;
+		int segmentOffset = (int) (sequence % this.segmentSize);
+		@Nullable LogRecord @Nullable [] segment = segment(sequence);
+
+		if (segmentOffset == 0) {
+			if (segment == null) {
+				segment = new LogRecord[this.segmentSize];
+				this.segments[segmentIndex(sequence)] = segment;
+			} else {
+				// Discard the oldest segment
+				Arrays.fill(segment, null);
+				this.firstSequence += this.segmentSize;
+			}
+		}
+		Objects.requireNonNull(segment)[segmentOffset] = record;
+		this.nextSequence = sequence + 1;
+
+		int levelValue = record.getLevel().intValue();
+		String loggerName = Objects.toString(record.getLoggerName(), "");
+
+		this.levelIndex.add(levelValue, sequence, this.firstSequence);
+		this.loggerIndex.computeIfAbsent(loggerName, key -> new LevelIndex()).add(levelValue, sequence,
+				this.firstSequence);
+	}
+
+	/**
+	 * Gets the number of records discarded so far due to the store's limit.
+	 *
+	 * @return the number of records discarded so far.
+	 */
+	synchronized long discardedCount() {
+		return this.firstSequence;
+	}
+
+	/**
+	 * Gets the number of currently retained records.
+	 *
+	 * @return the number of currently retained records.
+	 */
+	synchronized int size() {
+		return (int) (this.nextSequence - this.firstSequence);
+	}
+
+	/**
+	 * Gets all currently retained records (in publishing order).
+	 *
+	 * @return the retained records.
+	 */
+	synchronized List<LogRecord> records() {
+		List<LogRecord> records = new ArrayList<>(size());
+
+		for (long sequence = this.firstSequence; sequence < this.nextSequence; sequence++) {
+			records.add(get(sequence));
+		}
+		return records;
+	}
+
+	/**
+	 * Gets the currently retained records matching the submitted minimum level and (optional) logger name (in
+	 * publishing order).
+	 *
+	 * @param loggerName the name of the logger to select the records for ({@code null} for any logger).
+	 * @param minimumLevelValue the minimum level value of the records to select.
+	 * @return the matching records.
+	 */
+	synchronized List<LogRecord> select(@Nullable String loggerName, int minimumLevelValue) {
+		LevelIndex index = (loggerName != null ? this.loggerIndex.get(loggerName) : this.levelIndex);
+		List<LogRecord> records = new ArrayList<>();
+
+		if (index != null) {
+			List<SequenceList> matches = index.select(minimumLevelValue, this.firstSequence);
+			int[] positions = new int[matches.size()];
+			int nextMatch;
+
+			for (int matchIndex = 0; matchIndex < positions.length; matchIndex++) {
+				positions[matchIndex] = matches.get(matchIndex).start;
+			}
+			// Merge the per-level sequences (there are only a few levels; hence a linear scan for the minimum is fine)
+			do {
+				long nextMatchSequence = Long.MAX_VALUE;
+
+				nextMatch = -1;
+				for (int matchIndex = 0; matchIndex < positions.length; matchIndex++) {
+					SequenceList match = matches.get(matchIndex);
+					int position = positions[matchIndex];
+
+					if (position < match.end && match.values[position] < nextMatchSequence) {
+						nextMatch = matchIndex;
+						nextMatchSequence = match.values[position];
+					}
+				}
+				if (nextMatch >= 0) {
+					records.add(get(nextMatchSequence));
+					positions[nextMatch]++;
+				}
+			} while (nextMatch >= 0);
+		}
+		return records;
+	}
+
+	private LogRecord get(long sequence) {
+		return Objects.requireNonNull(Objects.requireNonNull(segment(sequence))[(int) (sequence % this.segmentSize)]);
+	}
+
+	private @Nullable LogRecord @Nullable [] segment(long sequence) {
+		return this.segments[segmentIndex(sequence)];
+	}
+
+	private int segmentIndex(long sequence) {
+		return (int) ((sequence / this.segmentSize) % this.segments.length);
+	}
+
+	private static final class LevelIndex {
+
+		private int[] levelValues = new int[0];
+		private SequenceList[] sequences = new SequenceList[0];
+
+		LevelIndex() {
+			// Nothing to do here
+		}
+
+		void add(int levelValue, long sequence, long firstSequence) {
+			int levelIndex = 0;
+
+			while (levelIndex < this.levelValues.length && this.levelValues[levelIndex] != levelValue) {
+				levelIndex++;
+			}
+			if (levelIndex == this.levelValues.length) {
+				this.levelValues = Arrays.copyOf(this.levelValues, levelIndex + 1);
+				this.levelValues[levelIndex] = levelValue;
+				this.sequences = Arrays.copyOf(this.sequences, levelIndex + 1);
+				this.sequences[levelIndex] = new SequenceList();
+			}
+			this.sequences[levelIndex].add(sequence, firstSequence);
+		}
+
+		List<SequenceList> select(int minimumLevelValue, long firstSequence) {
+			List<SequenceList> selected = new ArrayList<>(this.levelValues.length);
+
+			for (int levelIndex = 0; levelIndex < this.levelValues.length; levelIndex++) {
+				if (this.levelValues[levelIndex] >= minimumLevelValue) {
+					SequenceList sequenceList = this.sequences[levelIndex];
+
+					sequenceList.discard(firstSequence);
+					selected.add(sequenceList);
+				}
+			}
+			return selected;
+		}
+
+	}
+
+	private static final class SequenceList {
+
+		long[] values = new long[16];
+		int start = 0;
+		int end = 0;
+
+		SequenceList() {
+			// Nothing to do here
+		}
+
+		void add(long sequence, long firstSequence) {
+			if (this.end == this.values.length) {
+				discard(firstSequence);
+				if (this.start > this.values.length / 2) {
+					// Reclaim the space of the discarded sequences
+					System.arraycopy(this.values, this.start, this.values, 0, this.end - this.start);
+					this.end -= this.start;
+					this.start = 0;
+				} else {
+					this.values = Arrays.copyOf(this.values, this.values.length * 2);
+				}
+			}
+			this.values[this.end] = sequence;
+			this.end++;
+		}
+
+		void discard(long firstSequence) {
+			if (this.start < this.end && this.values[this.start] < firstSequence) {
+				int firstIndex = Arrays.binarySearch(this.values, this.start, this.end, firstSequence);
+
+				this.start = (firstIndex >= 0 ? firstIndex : -firstIndex - 1);
+			}
+		}
+
+	}
+
+}
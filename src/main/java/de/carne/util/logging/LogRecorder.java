@@ -20,9 +20,6 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Predicate;
 import java.util.logging.Handler;
 import java.util.logging.Level;
@@ -34,11 +31,18 @@ import org.eclipse.jdt.annotation.Nullable;
 /**
  * This class is used to record {@linkplain LogRecord}s in a selective manner (e.g. to display detailed results of long
  * running operations).
+ * <p>
+ * The recorded {@linkplain LogRecord}s are kept in a bounded buffer (see {@linkplain #limitRecords(int)}) and are
+ * indexed by level and logger. Hence level and logger specific queries only touch the matching records. All queries
+ * return snapshots (not live views) of the recorded {@linkplain LogRecord}s.
  */
 public final class LogRecorder {
 
-	private final List<Predicate<LogRecord>> includeRecords = new ArrayList<>();
-	private final List<Predicate<LogRecord>> excludeRecords = new ArrayList<>();
+	private static final int DEFAULT_LIMIT = 1 << 20;
+
+	private final int levelValue;
+	private final Selector<LogRecord> recordSelector = new Selector<>();
+	private int limit = DEFAULT_LIMIT;
 
 	private final List<Logger> loggers = new ArrayList<>();
 
@@ -49,7 +53,7 @@ public final class LogRecorder {
 	 * below this level are ignored).
 	 */
 	public LogRecorder(Level level) {
-		excludeRecord(record -> record.getLevel().intValue() < level.intValue());
+		this.levelValue = level.intValue();
 	}
 
 	/**
@@ -61,7 +65,7 @@ public final class LogRecorder {
 	 * @return The updated {@linkplain LogRecorder}.
 	 */
 	public LogRecorder includeRecord(Predicate<LogRecord> include) {
-		this.includeRecords.add(include);
+		this.recordSelector.include(include);
 		return this;
 	}
 
@@ -74,7 +78,23 @@ public final class LogRecorder {
 	 * @return The updated {@linkplain LogRecorder}.
 	 */
 	public LogRecorder excludeRecord(Predicate<LogRecord> exclude) {
-		this.excludeRecords.add(exclude);
+		this.recordSelector.exclude(exclude);
+		return this;
+	}
+
+	/**
+	 * Set the maximum number of {@linkplain LogRecord}s to retain per {@linkplain Session}.
+	 * <p>
+	 * Once the limit is exceeded, the oldest records are discarded (at least the latest {@code limit} records are
+	 * retained). The default limit is 1048576 records. A limit below 1 is treated as 1. The limit applies to sessions
+	 * started afterwards.
+	 * </p>
+	 *
+	 * @param limit The maximum number of {@linkplain LogRecord}s to retain.
+	 * @return The updated {@linkplain LogRecorder}.
+	 */
+	public LogRecorder limitRecords(int limit) {
+		this.limit = limit;
 		return this;
 	}
 
@@ -114,20 +134,19 @@ public final class LogRecorder {
 	 * @return The started {@linkplain Session}.
 	 */
 	public Session start(boolean currentThreadOnly) {
-		return new Session(currentThreadOnly);
+		return new Session(currentThreadOnly, this.limit);
 	}
 
 	void startSession(Session session) {
-		this.loggers.stream().forEach(logger -> logger.addHandler(session));
+		this.loggers.forEach(logger -> logger.addHandler(session));
 	}
 
 	void stopSession(Session session) {
-		this.loggers.stream().forEach(logger -> logger.removeHandler(session));
+		this.loggers.forEach(logger -> logger.removeHandler(session));
 	}
 
 	boolean testRecord(LogRecord record) {
-		return this.excludeRecords.stream().noneMatch(exclude -> exclude.test(record)) && (this.includeRecords.isEmpty()
-				|| this.includeRecords.stream().anyMatch(include -> include.test(record)));
+		return record.getLevel().intValue() >= this.levelValue && this.recordSelector.test(record);
 	}
 
 	/**
@@ -138,19 +157,16 @@ public final class LogRecorder {
 	 */
 	public class Session extends Handler implements AutoCloseable {
 
-		private final List<Predicate<Thread>> includeThreads = new ArrayList<>();
-		private final List<Predicate<Thread>> excludeThreads = new ArrayList<>();
+		private final @Nullable Thread recordingThread;
+		private final Selector<Thread> threadSelector = new Selector<>();
 
-		private final Queue<LogRecord> buffer = new ConcurrentLinkedQueue<>();
+		private final LogRecordStore buffer;
 
-		private final AtomicBoolean locked = new AtomicBoolean();
+		private final PublishLock lock = new PublishLock();
 
-		Session(boolean currentThreadOnly) {
-			if (currentThreadOnly) {
-				Thread currentThread = Thread.currentThread();
-
-				excludeThread(thread -> !thread.equals(currentThread));
-			}
+		Session(boolean currentThreadOnly, int limit) {
+			this.recordingThread = (currentThreadOnly ? Thread.currentThread() : null);
+			this.buffer = new LogRecordStore(limit);
 			startSession(this);
 		}
 
@@ -164,7 +180,7 @@ public final class LogRecorder {
 		 * @return The updated {@linkplain Session}.
 		 */
 		public Session includeThread(Predicate<Thread> include) {
-			this.includeThreads.add(include);
+			this.threadSelector.include(include);
 			return this;
 		}
 
@@ -178,32 +194,81 @@ public final class LogRecorder {
 		 * @return The updated {@linkplain Session}.
 		 */
 		public Session excludeThread(Predicate<Thread> exclude) {
-			this.excludeThreads.add(exclude);
+			this.threadSelector.exclude(exclude);
 			return this;
 		}
 
 		/**
 		 * Get the {@linkplain LogRecord}s that have been recorded by this {@linkplain Session} so far.
+		 * <p>
+		 * The returned collection is an unmodifiable snapshot of the records at the time of the call (creating it
+		 * copies all recorded records). Unlike in previous versions (which returned a live view) records recorded
+		 * afterwards are not reflected. Call this function again to get an updated snapshot.
+		 * </p>
 		 *
-		 * @return The recorded {@linkplain LogRecord}s.
+		 * @return The recorded {@linkplain LogRecord}s (in publishing order).
 		 */
 		public Collection<LogRecord> getRecords() {
-			return Collections.unmodifiableCollection(this.buffer);
+			return Collections.unmodifiableList(this.buffer.records());
+		}
+
+		/**
+		 * Get the {@linkplain LogRecord}s of the given minimum {@linkplain Level} that have been recorded by this
+		 * {@linkplain Session} so far.
+		 * <p>
+		 * Like {@linkplain #getRecords()} this function returns an unmodifiable snapshot.
+		 * </p>
+		 *
+		 * @param minimumLevel The minimum {@linkplain Level} of the {@linkplain LogRecord}s to get.
+		 * @return The matching {@linkplain LogRecord}s (in publishing order).
+		 */
+		public Collection<LogRecord> getRecords(Level minimumLevel) {
+			return Collections.unmodifiableList(this.buffer.select(null, minimumLevel.intValue()));
+		}
+
+		/**
+		 * Get the {@linkplain LogRecord}s of the given {@linkplain Logger} and minimum {@linkplain Level} that have
+		 * been recorded by this {@linkplain Session} so far.
+		 * <p>
+		 * Like {@linkplain #getRecords()} this function returns an unmodifiable snapshot.
+		 * </p>
+		 *
+		 * @param loggerName The name of the {@linkplain Logger} to get the {@linkplain LogRecord}s for.
+		 * @param minimumLevel The minimum {@linkplain Level} of the {@linkplain LogRecord}s to get.
+		 * @return The matching {@linkplain LogRecord}s (in publishing order).
+		 */
+		public Collection<LogRecord> getRecords(String loggerName, Level minimumLevel) {
+			return Collections.unmodifiableList(this.buffer.select(loggerName, minimumLevel.intValue()));
+		}
 
+		/**
+		 * Get the number of {@linkplain LogRecord}s that have been discarded so far due to the recording limit.
+		 *
+		 * @return The number of discarded {@linkplain LogRecord}s.
+		 * @see LogRecorder#limitRecords(int)
+		 */
+		public long getDiscardedCount() {
+			return this.buffer.discardedCount();
 		}
 
 		private boolean testThread(Thread thread) {
-			return this.excludeThreads.stream().noneMatch(exclude -> exclude.test(thread))
-					&& (this.includeThreads.isEmpty()
-							|| this.includeThreads.stream().anyMatch(include -> include.test(thread)));
+			Thread checkedRecordingThread = this.recordingThread;
+
+			return (checkedRecordingThread == null || checkedRecordingThread == thread)
+					&& this.threadSelector.test(thread);
 		}
 
 		@Override
 		public void publish(@Nullable LogRecord record) {
-			if (record != null && this.locked.compareAndSet(false, true) && testThread(Thread.currentThread())
-					&& testRecord(record)) {
-				this.buffer.add(record);
-				this.locked.set(false);
+			if (record != null && this.lock.tryLock()) {
+				// Records issued by the session's predicates are ignored to avoid endless recursion
+				try {
+					if (testThread(Thread.currentThread()) && testRecord(record)) {
+						this.buffer.add(record);
+					}
+				} finally {
+					this.lock.unlock();
+				}
 			}
 		}
 
@@ -219,4 +284,61 @@ public final class LogRecorder {
 
 	}
 
+	/**
+	 * Include/exclude predicate lists compiled into a single immutable check.
+	 */
+	private static final class Selector<T> {
+
+		private final List<Predicate<T>> includes = new ArrayList<>();
+		private final List<Predicate<T>> excludes = new ArrayList<>();
+		private volatile Check<T> check = new Check<>(this.includes, this.excludes);
+
+		Selector() {
+			// Nothing to do here
+		}
+
+		synchronized void include(Predicate<T> include) {
+			this.includes.add(include);
+			this.check = new Check<>(this.includes, this.excludes);
+		}
+
+		synchronized void exclude(Predicate<T> exclude) {
+			this.excludes.add(exclude);
+			this.check = new Check<>(this.includes, this.excludes);
+		}
+
+		boolean test(T value) {
+			return this.check.test(value);
+		}
+
+	}
+
+	private static final class Check<T> {
+
+		private final Object[] includes;
+		private final Object[] excludes;
+
+		Check(List<Predicate<T>> includes, List<Predicate<T>> excludes) {
+			this.includes = includes.toArray();
+			this.excludes = excludes.toArray();
+		}
+
+		@SuppressWarnings("unchecked")
+		boolean test(T value) {
+			boolean excluded = false;
+
+			for (int excludeIndex = 0; !excluded && excludeIndex < this.excludes.length; excludeIndex++) {
+				excluded = ((Predicate<T>) this.excludes[excludeIndex]).test(value);
+			}
+
+			boolean included = !excluded && this.includes.length == 0;
+
+			for (int includeIndex = 0; !excluded && !included && includeIndex < this.includes.length; includeIndex++) {
+				included = ((Predicate<T>) this.includes[includeIndex]).test(value);
+			}
+			return included;
+		}
+
+	}
+
 }
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2016-2021 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.util.logging;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+/**
+ * Per level record counters of a specific {@linkplain java.util.logging.Logger}.
+ *
+ * @see LogMetrics#loggerMetrics(String)
+ */
+final class LoggerMetrics {
+
+	private final LongAdder[] levelCounts = new LongAdder[LogMetrics.LEVELS.length];
+
+	LoggerMetrics() {
+		for (int levelIndex = 0; levelIndex < this.levelCounts.length; levelIndex++) {
+			this.levelCounts[levelIndex] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Counts an issued record.
+	 *
+	 * @param level the level of the issued record.
+	 */
+	void count(Level level) {
+		if (LogMetrics.isEnabled()) {
+			this.levelCounts[LogMetrics.levelIndex(level)].increment();
+		}
+	}
+
+	long levelCount(int levelIndex) {
+		return this.levelCounts[levelIndex].sum();
+	}
+
+	void reset() {
+		for (LongAdder levelCount : this.levelCounts) {
+			levelCount.reset();
+		}
+	}
+
+}
@@ -20,18 +20,24 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.ErrorManager;
 import java.util.logging.Filter;
 import java.util.logging.Formatter;
 import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.LogManager;
+import java.util.logging.LogRecord;
 import java.util.logging.Logger;
 
 import org.eclipse.jdt.annotation.NonNull;
@@ -58,9 +64,14 @@ public final class Logs {
 	 */
 	public static final ErrorManager DEFAULT_ERROR_MANAGER = new ErrorManager();
 
+	private static final AtomicInteger LEVEL_GENERATION = new AtomicInteger();
+
 	static {
 		// Touch our custom level class to make sure the level names are registered
 		LogLevel.LEVEL_NOTICE.getName();
+		// Invalidate cached levels and messages whenever the LogManager configuration is (re-)read by whomever
+		LogManager.getLogManager().addConfigurationListener(Logs::invalidateLevels);
+		LogManager.getLogManager().addConfigurationListener(MessageFormatCache::clear);
 		// Make sure the {@linkplain LogManager} is configured in a minimal way (unless a specific configuration has
 		// been configured or we are not run by the System ClassLoader).
 		if (System.getProperty("java.util.logging.config.class") == null
@@ -79,6 +90,64 @@ public final class Logs {
 		// Nothing to do here; loading this class is sufficient
 	}
 
+	static int levelGeneration() {
+		return LEVEL_GENERATION.get();
+	}
+
+	/**
+	 * Invalidates the effective levels cached by all {@linkplain Log} instances.
+	 * <p>
+	 * Configuration changes applied via this class or the {@linkplain LogManager} as well as level changes applied via
+	 * {@linkplain Log#setLevel(Level)} invalidate the cached levels automatically. This function only needs to be
+	 * invoked after calling {@linkplain Logger#setLevel(Level)} directly.
+	 * </p>
+	 */
+	public static void invalidateLevels() {
+		LEVEL_GENERATION.incrementAndGet();
+	}
+
+	/**
+	 * Formats the message of a {@linkplain LogRecord}.
+	 * <p>
+	 * The result is the same as the one of {@linkplain Formatter#formatMessage(LogRecord)}, but resource bundle
+	 * lookups and parsed message patterns are cached until the next configuration change.
+	 * </p>
+	 *
+	 * @param record the {@linkplain LogRecord} to format.
+	 * @return the formatted message.
+	 */
+	public static String formatMessage(LogRecord record) {
+		return MessageFormatCache.formatMessage(record);
+	}
+
+	/**
+	 * Gets the (localized) message pattern of a {@linkplain LogRecord}.
+	 * <p>
+	 * If the {@linkplain LogRecord} carries a resource bundle, the message is looked up in the bundle (with the lookup
+	 * result being cached until the next configuration change). Otherwise the message is returned as is.
+	 * </p>
+	 *
+	 * @param record the {@linkplain LogRecord} to get the message pattern for.
+	 * @return the (localized) message pattern.
+	 */
+	public static String localizeMessage(LogRecord record) {
+		return MessageFormatCache.localizePattern(record);
+	}
+
+	/**
+	 * Checks whether a message pattern references any parameter.
+	 * <p>
+	 * This is the same check {@linkplain Formatter#formatMessage(LogRecord)} uses to decide whether a message is
+	 * subject to {@linkplain java.text.MessageFormat} formatting (any '{' followed by a digit).
+	 * </p>
+	 *
+	 * @param pattern the message pattern to check.
+	 * @return {@code true} if the pattern references any parameter.
+	 */
+	public static boolean hasParameterReference(String pattern) {
+		return MessageFormatCache.hasParameterReference(pattern);
+	}
+
 	/**
 	 * FLushs all currently configured {@linkplain Handler} instance (e.g. during application exit).
 	 */
@@ -101,6 +170,16 @@ public final class Logs {
 		}
 	}
 
+	/**
+	 * Gets the number of {@linkplain java.util.logging.LogRecord}s suppressed so far, because they have been issued
+	 * while the issuing thread was already publishing a record to the same {@linkplain Handler}.
+	 *
+	 * @return the number of suppressed re-entrant publishes.
+	 */
+	public static long suppressedPublishCount() {
+		return PublishLock.suppressedCount();
+	}
+
 	/**
 	 * Standard name for default logging config.
 	 */
@@ -129,6 +208,8 @@ public final class Logs {
 			manager.readConfiguration(configInputStream);
 		}
 		applyApplicationConfig(manager);
+		applyMetricsConfig(manager);
+		invalidateLevels();
 	}
 
 	/**
@@ -144,6 +225,8 @@ public final class Logs {
 			manager.readConfiguration(configInputStream);
 		}
 		applyApplicationConfig(manager);
+		applyMetricsConfig(manager);
+		invalidateLevels();
 	}
 
 	private static InputStream openConfig(String config) throws FileNotFoundException {
@@ -189,6 +272,11 @@ public final class Logs {
 		}
 	}
 
+	private static void applyMetricsConfig(LogManager manager) {
+		LogMetrics.setEnabled(
+				getBooleanProperty(manager, LogMetrics.class.getName() + ".enabled", LogMetrics.isEnabled()));
+	}
+
 	/**
 	 * Applies individual level configuration to the current configuration.
 	 * <p>
@@ -225,6 +313,7 @@ public final class Logs {
 						ErrorManager.GENERIC_FAILURE);
 			}
 		}
+		invalidateLevels();
 	}
 
 	/**
@@ -307,6 +396,32 @@ public final class Logs {
 		return propertyValue;
 	}
 
+	/**
+	 * Gets a {@code enum} property from a {@linkplain LogManager}'s current configuration.
+	 * <p>
+	 * The property value is matched case-insensitive against the {@code enum} constant names.
+	 * </p>
+	 *
+	 * @param <E> the actual {@code enum} type.
+	 * @param manager the {@linkplain LogManager} to get the configuration from.
+	 * @param name the property name to evaluate.
+	 * @param defaultValue the the default value to return in case the property is undefined.
+	 * @return the defined value or the default value if the property is undefined.
+	 */
+	public static <E extends Enum<E>> E getEnumProperty(LogManager manager, String name, E defaultValue) {
+		String property = manager.getProperty(name);
+		E propertyValue = defaultValue;
+
+		if (property != null) {
+			try {
+				propertyValue = Enum.valueOf(defaultValue.getDeclaringClass(), property.trim().toUpperCase(Locale.ROOT));
+			} catch (IllegalArgumentException e) {
+				DEFAULT_ERROR_MANAGER.error("Invalid enum property " + name, e, ErrorManager.GENERIC_FAILURE);
+			}
+		}
+		return propertyValue;
+	}
+
 	/**
 	 * Gets a {@linkplain Level} property from a {@linkplain LogManager}'s current configuration.
 	 *
@@ -352,6 +467,31 @@ public final class Logs {
 		return propertyValue;
 	}
 
+	/**
+	 * Gets a file {@linkplain Path} property from a {@linkplain LogManager}'s current configuration.
+	 * <p>
+	 * The placeholders {@code %h} and {@code %t} are substituted by the user's home and the temporary directory.
+	 * </p>
+	 *
+	 * @param manager the {@linkplain LogManager} to get the configuration from.
+	 * @param name the property name to evaluate.
+	 * @param defaultValue the the default value to return in case the property is undefined.
+	 * @return the defined value or the default value if the property is undefined.
+	 */
+	public static Path getPathProperty(LogManager manager, String name, String defaultValue) {
+		String property = getStringProperty(manager, name, defaultValue);
+		Path propertyValue;
+
+		try {
+			propertyValue = Paths.get(property.replace("%h", System.getProperty("user.home")).replace("%t",
+					System.getProperty("java.io.tmpdir")));
+		} catch (InvalidPathException e) {
+			DEFAULT_ERROR_MANAGER.error("Invalid path property " + name, e, ErrorManager.GENERIC_FAILURE);
+			propertyValue = Paths.get(defaultValue);
+		}
+		return propertyValue;
+	}
+
 	/**
 	 * Gets a {@linkplain Formatter} property from a {@linkplain LogManager}'s current configuration.
 	 *
@@ -0,0 +1,461 @@
+/*
+ * Copyright (c) 2016-2021 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.util.logging;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.ErrorManager;
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+import java.util.logging.LogManager;
+import java.util.logging.LogRecord;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import de.carne.io.BufferPool;
+import de.carne.util.Exceptions;
+
+/**
+ * {@linkplain Handler} implementation writing the formatted {@linkplain LogRecord}s UTF-8 encoded into memory-mapped
+ * file segments.
+ * <p>
+ * Records are appended to the file defined by the {@code file} property (default: {@code java.log}; {@code %h} and
+ * {@code %t} are substituted by the user's home and the temporary directory). The file is mapped in segments of
+ * {@code segmentSize} bytes (default: 16 MiB). Once a segment is full or older than {@code rollInterval} milliseconds
+ * (default: 0 = no time based rolling), the file is truncated to its actual content and rolled by renaming it to
+ * {@code <file>.<timestamp>}. If the {@code gzip} property is set, rolled files are compressed in the background. At
+ * most {@code maxSegments} rolled files (default: 10) are kept. The {@code level}, {@code filter} and {@code formatter}
+ * properties are evaluated the same way as for the other handlers of this package.
+ * </p>
+ * <p>
+ * As records are written into the mapped memory, they are visible to other readers of the file immediately and
+ * without any explicit flushing. Until the segment is rolled or the handler is closed, the file is padded with zero
+ * bytes up to the segment size. An already existing file is continued at the first padding byte. If a record does not
+ * fit into the remaining segment space, the segment is rolled first and the record is written to the next segment.
+ * Only records larger than a whole segment are continued across segments (and therefore rolled files).
+ * </p>
+ */
+public class MappedFileHandler extends Handler {
+
+	private static final String GZIP_SUFFIX = ".gz";
+	private static final long COMPRESSOR_SHUTDOWN_TIMEOUT = 60;
+	private static final @Nullable Unmapper UNMAPPER = Unmapper.getInstance();
+
+	private final Path file;
+	private final int segmentSize;
+	private final long rollInterval;
+	private final int maxSegments;
+	private final boolean gzip;
+	private final PublishLock lock = new PublishLock();
+	private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+			.onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+	private @Nullable FileChannel channel = null;
+	private @Nullable MappedByteBuffer segment = null;
+	private long segmentStart = 0;
+	private @Nullable ExecutorService compressor = null;
+	private boolean closed = false;
+
+	/**
+	 * Constructs a new {@linkplain MappedFileHandler} instance.
+	 */
+	public MappedFileHandler() {
+		LogManager manager = LogManager.getLogManager();
+		String propertyBase = getClass().getName();
+
+		this.file = Logs.getPathProperty(manager, propertyBase + ".file", "java.log");
+		this.segmentSize = Math.max(Logs.getIntProperty(manager, propertyBase + ".segmentSize", 16 << 20), 1024);
+		this.rollInterval = Logs.getIntProperty(manager, propertyBase + ".rollInterval", 0);
+		this.maxSegments = Logs.getIntProperty(manager, propertyBase + ".maxSegments", 10);
+		this.gzip = Logs.getBooleanProperty(manager, propertyBase + ".gzip", false);
+		setLevel(Logs.getLevelProperty(manager, propertyBase + ".level", LogLevel.LEVEL_INFO));
+		setFilter(Logs.getFilterProperty(manager, propertyBase + ".filter", null));
+		setFormatter(Logs.getFormatterProperty(manager, propertyBase + ".formatter", new LogLineFormatter()));
+	}
+
+	/**
+	 * Gets the {@linkplain Path} of the file currently written.
+	 *
+	 * @return the {@linkplain Path} of the file currently written.
+	 */
+	public Path file() {
+		return this.file;
+	}
+
+	@Override
+	public void publish(@Nullable LogRecord record) {
+		// Records issued while formatting are ignored to avoid endless recursion
+		if (record != null && isLoggable(record) && this.lock.tryLock()) {
+			StringBuilder buffer = BufferPool.acquireStringBuilder();
+
+			try {
+				// Format outside of the lock; only the copy into the mapped segment is serialized
+				if (formatRecord(record, buffer)) {
+					write(buffer, record.getMillis());
+				}
+			} finally {
+				BufferPool.release(buffer);
+				this.lock.unlock();
+			}
+		}
+	}
+
+	private boolean formatRecord(LogRecord record, StringBuilder buffer) {
+		Formatter formatter = getFormatter();
+		boolean formatted = false;
+
+		try {
+			if (formatter instanceof StreamingFormatter) {
+				((StreamingFormatter) formatter).format(record, buffer);
+			} else {
+				buffer.append(formatter.format(record));
+			}
+			formatted = true;
+		} catch (Exception e) {
+			reportError(null, e, ErrorManager.FORMAT_FAILURE);
+		}
+		return formatted;
+	}
+
+	private synchronized void write(StringBuilder buffer, long millis) {
+		if (!this.closed) {
+			try {
+				CharBuffer chars = CharBuffer.wrap(buffer);
+				MappedByteBuffer checkedSegment = currentSegment(millis);
+				long maxLength = (long) Math.ceil(this.encoder.maxBytesPerChar() * (double) buffer.length());
+
+				if (maxLength <= checkedSegment.remaining()) {
+					// The record fits in any case; encode it directly into the segment
+					encode(chars, checkedSegment);
+				} else {
+					writeEncoded(chars, (int) Math.min(maxLength, Integer.MAX_VALUE - 8), checkedSegment, millis);
+				}
+			} catch (IOException e) {
+				reportError(null, e, ErrorManager.WRITE_FAILURE);
+			} catch (InternalError e) {
+				// Thrown if the mapped file cannot be backed by the file system (e.g. disk full); give up the segment
+				reportError(null, new IOException("Failed to write mapped segment", e), ErrorManager.WRITE_FAILURE);
+				discardSegment();
+			}
+		}
+	}
+
+	private void writeEncoded(CharBuffer chars, int maxLength, MappedByteBuffer segment, long millis)
+			throws IOException {
+		byte[] bytes = BufferPool.acquireBytes(maxLength);
+
+		try {
+			ByteBuffer encoded = ByteBuffer.wrap(bytes);
+			MappedByteBuffer checkedSegment = segment;
+
+			encode(chars, encoded);
+			encoded.flip();
+			// Roll before writing, to keep the record within a single file (unless it exceeds a whole segment)
+			if (encoded.remaining() > checkedSegment.remaining() && checkedSegment.position() > 0) {
+				rollSegment();
+				checkedSegment = currentSegment(millis);
+			}
+			while (encoded.remaining() > checkedSegment.remaining()) {
+				int limit = encoded.limit();
+
+				encoded.limit(encoded.position() + checkedSegment.remaining());
+				checkedSegment.put(encoded);
+				encoded.limit(limit);
+				rollSegment();
+				checkedSegment = currentSegment(millis);
+			}
+			checkedSegment.put(encoded);
+		} finally {
+			BufferPool.release(bytes);
+		}
+	}
+
+	private void encode(CharBuffer chars, ByteBuffer out) {
+		// The caller ensures sufficient space; hence no overflow is possible
+		this.encoder.reset();
+		this.encoder.encode(chars, out, true);
+		this.encoder.flush(out);
+	}
+
+	private void discardSegment() {
+		try {
+			closeSegment();
+		} catch (IOException | InternalError e) {
+			reportError(null, new IOException("Failed to close mapped segment", e), ErrorManager.CLOSE_FAILURE);
+		}
+	}
+
+	private MappedByteBuffer currentSegment(long millis) throws IOException {
+		MappedByteBuffer checkedSegment = this.segment;
+
+		if (checkedSegment != null && this.rollInterval > 0 && checkedSegment.position() > 0
+				&& millis - this.segmentStart >= this.rollInterval) {
+			rollSegment();
+			checkedSegment = null;
+		}
+		if (checkedSegment == null) {
+			checkedSegment = openSegment(millis);
+		}
+		return checkedSegment;
+	}
+
+	private MappedByteBuffer openSegment(long millis) throws IOException {
+		if (Files.exists(this.file) && Files.size(this.file) > this.segmentSize) {
+			rollFile();
+		}
+
+		Path parent = this.file.toAbsolutePath().getParent();
+
+		if (parent != null) {
+			Files.createDirectories(parent);
+		}
+
+		FileChannel openedChannel = FileChannel.open(this.file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		MappedByteBuffer mappedSegment;
+
+		try {
+			long contentSize = openedChannel.size();
+
+			mappedSegment = openedChannel.map(FileChannel.MapMode.READ_WRITE, 0, this.segmentSize);
+			mappedSegment.position(contentEnd(mappedSegment, (int) Math.min(contentSize, this.segmentSize)));
+		} catch (IOException | RuntimeException e) {
+			openedChannel.close();
+			throw e;
+		}
+		this.channel = openedChannel;
+		this.segment = mappedSegment;
+		this.segmentStart = millis;
+		return mappedSegment;
+	}
+
+	private static int contentEnd(MappedByteBuffer mappedSegment, int contentSize) {
+		int end = contentSize;
+
+		while (end > 0 && mappedSegment.get(end - 1) == 0) {
+			end--;
+		}
+		return end;
+	}
+
+	private void closeSegment() throws IOException {
+		MappedByteBuffer checkedSegment = this.segment;
+		FileChannel checkedChannel = this.channel;
+
+		this.segment = null;
+		this.channel = null;
+		if (checkedChannel != null) {
+			try {
+				if (checkedSegment != null) {
+					int contentSize = checkedSegment.position();
+
+					// Release the mapping before truncating; some platforms (e.g. Windows) refuse to truncate or rename
+					// mapped files and the mapping would otherwise be held until garbage collection
+					unmap(checkedSegment);
+					checkedChannel.truncate(contentSize);
+				}
+			} finally {
+				checkedChannel.close();
+			}
+		}
+	}
+
+	private static void unmap(MappedByteBuffer mappedSegment) {
+		Unmapper unmapper = UNMAPPER;
+
+		if (unmapper != null) {
+			unmapper.unmap(mappedSegment);
+		}
+	}
+
+	private void rollSegment() throws IOException {
+		closeSegment();
+		rollFile();
+	}
+
+	private void rollFile() throws IOException {
+		long rollTimestamp = System.currentTimeMillis();
+		Path rolledFile = rolledFile(rollTimestamp);
+
+		while (Files.exists(rolledFile) || Files.exists(compressedFile(rolledFile))) {
+			rollTimestamp++;
+			rolledFile = rolledFile(rollTimestamp);
+		}
+		Files.move(this.file, rolledFile);
+		if (this.gzip) {
+			submitCompress(rolledFile);
+		} else {
+			deleteExpiredSegments();
+		}
+	}
+
+	private Path rolledFile(long rollTimestamp) {
+		return this.file.resolveSibling(this.file.getFileName() + "." + rollTimestamp);
+	}
+
+	private static Path compressedFile(Path rolledFile) {
+		return rolledFile.resolveSibling(rolledFile.getFileName() + GZIP_SUFFIX);
+	}
+
+	private void submitCompress(Path rolledFile) {
+		ExecutorService checkedCompressor = this.compressor;
+
+		if (checkedCompressor == null) {
+			checkedCompressor = Executors.newSingleThreadExecutor(runnable -> {
+				Thread compressorThread = new Thread(runnable, getClass().getSimpleName() + "-gzip");
+
+				compressorThread.setDaemon(true);
+				return compressorThread;
+			});
+			this.compressor = checkedCompressor;
+		}
+		try {
+			checkedCompressor.execute(() -> compress(rolledFile));
+		} catch (RejectedExecutionException e) {
+			reportError("Failed to compress rolled log file " + rolledFile, e, ErrorManager.GENERIC_FAILURE);
+		}
+	}
+
+	private void compress(Path rolledFile) {
+		Path compressedFile = compressedFile(rolledFile);
+
+		// Skip files which already expired while waiting for compression
+		if (Files.exists(rolledFile)) {
+			try {
+				try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(compressedFile))) {
+					Files.copy(rolledFile, out);
+				}
+				Files.delete(rolledFile);
+			} catch (IOException e) {
+				reportError("Failed to compress rolled log file " + rolledFile, e, ErrorManager.GENERIC_FAILURE);
+			}
+			deleteExpiredSegments();
+		}
+	}
+
+	private void deleteExpiredSegments() {
+		Path directory = this.file.toAbsolutePath().getParent();
+
+		if (directory != null && this.maxSegments >= 0) {
+			String rolledPrefix = this.file.getFileName() + ".";
+			List<Path> rolledFiles = new ArrayList<>();
+
+			try (Stream<Path> files = Files.list(directory)) {
+				files.filter(path -> path.getFileName().toString().startsWith(rolledPrefix)).forEach(rolledFiles::add);
+				// Rolled files are named by their roll timestamp; hence name order is roll order
+				Collections.sort(rolledFiles);
+				for (int fileIndex = 0; fileIndex < rolledFiles.size() - this.maxSegments; fileIndex++) {
+					Files.deleteIfExists(rolledFiles.get(fileIndex));
+				}
+			} catch (IOException e) {
+				reportError("Failed to delete expired log files", e, ErrorManager.GENERIC_FAILURE);
+			}
+		}
+	}
+
+	@Override
+	public void flush() {
+		// Nothing to do; records are visible to readers as soon as they have been copied into the mapped segment
+	}
+
+	@Override
+	public void close() {
+		ExecutorService checkedCompressor;
+
+		synchronized (this) {
+			this.closed = true;
+			try {
+				closeSegment();
+			} catch (IOException e) {
+				reportError(null, e, ErrorManager.CLOSE_FAILURE);
+			}
+			checkedCompressor = this.compressor;
+			this.compressor = null;
+		}
+		if (checkedCompressor != null) {
+			checkedCompressor.shutdown();
+			try {
+				checkedCompressor.awaitTermination(COMPRESSOR_SHUTDOWN_TIMEOUT, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Explicitly releases a mapped buffer (via sun.misc.Unsafe#invokeCleaner, which is the only way to do so in Java 11).
+	 * Core reflection is used to avoid a static dependency on the jdk.unsupported module. The buffer must not be accessed
+	 * after it has been released.
+	 */
+	private static final class Unmapper {
+
+		private final Object unsafe;
+		private final Method invokeCleaner;
+
+		private Unmapper(Object unsafe, Method invokeCleaner) {
+			this.unsafe = unsafe;
+			this.invokeCleaner = invokeCleaner;
+		}
+
+		static @Nullable Unmapper getInstance() {
+			Unmapper unmapper = null;
+
+			try {
+				Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+				Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+
+				theUnsafe.setAccessible(true);
+				unmapper = new Unmapper(theUnsafe.get(null), unsafeClass.getMethod("invokeCleaner", ByteBuffer.class));
+			} catch (ReflectiveOperationException | RuntimeException e) {
+				// Not available; mappings are released by the garbage collector
+				Exceptions.ignore(e);
+			}
+			return unmapper;
+		}
+
+		void unmap(MappedByteBuffer buffer) {
+			try {
+				this.invokeCleaner.invoke(this.unsafe, buffer);
+			} catch (ReflectiveOperationException | RuntimeException e) {
+				// Leave it to the garbage collector
+				Exceptions.ignore(e);
+			}
+		}
+
+	}
+
+}
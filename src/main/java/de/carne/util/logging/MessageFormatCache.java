@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2016-2021 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.util.logging;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.LogRecord;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Bounded cache of parsed {@linkplain MessageFormat} patterns used to format log messages.
+ * <p>
+ * {@linkplain MessageFormat} instances are not thread-safe. Therefore the cached instances are only used as
+ * prototypes and cloned for every format call (which is still considerably cheaper than parsing the pattern again).
+ * Patterns consisting of plain argument references only (e.g. {@code "Message {0}"}) are additionally split into their
+ * literal parts, allowing them to be formatted without any {@linkplain MessageFormat} involvement as long as no
+ * locale specific (number or date) arguments are referenced. Once the cache limit has been reached, additional
+ * patterns are parsed on every call.
+ * </p>
+ * <p>
+ * In addition the translations of localized log messages are cached per {@linkplain ResourceBundle} instance (and
+ * therefore per {@linkplain Locale}). All cached data is discarded whenever the {@linkplain java.util.logging.LogManager}
+ * configuration is (re-)read.
+ * </p>
+ */
+final class MessageFormatCache {
+
+	private MessageFormatCache() {
+		// Prevent instantiation
+	}
+
+	private static final int CACHE_LIMIT = 1024;
+
+	private static final ConcurrentHashMap<String, CompiledPattern> CACHE = new ConcurrentHashMap<>();
+
+	private static final int BUNDLE_LIMIT = 64;
+
+	private static final ConcurrentHashMap<ResourceBundle, ConcurrentHashMap<String, String>> TRANSLATIONS = new ConcurrentHashMap<>();
+
+	/**
+	 * Discards all cached patterns and translations.
+	 */
+	static void clear() {
+		CACHE.clear();
+		TRANSLATIONS.clear();
+	}
+
+	/**
+	 * Formats the message of a {@linkplain LogRecord} the same way
+	 * {@linkplain java.util.logging.Formatter#formatMessage(LogRecord)} does.
+	 *
+	 * @param record the {@linkplain LogRecord} to format.
+	 * @return the formatted message.
+	 */
+	static String formatMessage(LogRecord record) {
+		String pattern = localizePattern(record);
+		Object[] parameters = record.getParameters();
+		String formatted = pattern;
+
+		if (parameters != null && parameters.length > 0 && hasParameterReference(pattern)) {
+			try {
+				formatted = getFormat(pattern).format(parameters);
+			} catch (RuntimeException e) {
+				// Use the unformatted pattern (like java.util.logging.Formatter does)
+			}
+		}
+		return formatted;
+	}
+
+	/**
+	 * Gets the (localized) message pattern of a {@linkplain LogRecord}.
+	 *
+	 * @param record the {@linkplain LogRecord} to get the pattern for.
+	 * @return the (localized) message pattern.
+	 */
+	static String localizePattern(LogRecord record) {
+		String pattern = String.valueOf(record.getMessage());
+		ResourceBundle bundle = record.getResourceBundle();
+
+		if (bundle != null) {
+			ConcurrentHashMap<String, String> translations = TRANSLATIONS.get(bundle);
+
+			if (translations == null && TRANSLATIONS.size() < BUNDLE_LIMIT) {
+				translations = TRANSLATIONS.computeIfAbsent(bundle, key -> new ConcurrentHashMap<>());
+			}
+
+			String translation = (translations != null ? translations.get(pattern) : null);
+
+			if (translation == null) {
+				translation = translate(bundle, pattern);
+				if (translations != null && translations.size() < CACHE_LIMIT) {
+					translations.put(pattern, translation);
+				}
+			}
+			pattern = translation;
+		}
+		return pattern;
+	}
+
+	private static String translate(ResourceBundle bundle, String key) {
+		String translation;
+
+		try {
+			translation = bundle.getString(key);
+		} catch (MissingResourceException | ClassCastException e) {
+			translation = key;
+		}
+		return translation;
+	}
+
+	/**
+	 * Checks whether a message pattern references any parameter (and is therefore subject to formatting).
+	 *
+	 * @param pattern the message pattern to check.
+	 * @return {@code true} if the pattern references any parameter.
+	 */
+	static boolean hasParameterReference(String pattern) {
+		// Same check as java.util.logging.Formatter: look for any '{' followed by a digit
+		int fence = pattern.length() - 1;
+		int index = pattern.indexOf('{');
+		boolean found = false;
+
+		while (!found && 0 <= index && index < fence) {
+			char digit = pattern.charAt(index + 1);
+
+			found = '0' <= digit && digit <= '9';
+			index = pattern.indexOf('{', index + 1);
+		}
+		return found;
+	}
+
+	/**
+	 * Formats a message pattern the same way {@linkplain MessageFormat#format(String, Object...)} does.
+	 *
+	 * @param pattern the message pattern to format.
+	 * @param parameters the message parameters to use.
+	 * @return the formatted message.
+	 */
+	static String format(String pattern, Object... parameters) {
+		String formatted;
+
+		if (isLiteral(pattern)) {
+			formatted = pattern;
+		} else {
+			formatted = getFormat(pattern).format(parameters);
+		}
+		return formatted;
+	}
+
+	private static boolean isLiteral(String pattern) {
+		// Without placeholders and quotes the pattern formats to itself
+		return pattern.indexOf('{') < 0 && pattern.indexOf('\'') < 0;
+	}
+
+	private static CompiledPattern getFormat(String pattern) {
+		Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+		CompiledPattern format = CACHE.get(pattern);
+
+		if (format == null || !locale.equals(format.locale())) {
+			format = new CompiledPattern(pattern, locale);
+			if (CACHE.size() < CACHE_LIMIT || CACHE.containsKey(pattern)) {
+				CACHE.put(pattern, format);
+			}
+		}
+		return format;
+	}
+
+	private static final class CompiledPattern {
+
+		private final MessageFormat prototype;
+		private final String @Nullable [] literals;
+		private final int[] arguments;
+
+		CompiledPattern(String pattern, Locale locale) {
+			this.prototype = new MessageFormat(pattern, locale);
+
+			List<String> literalList = new ArrayList<>();
+			List<Integer> argumentList = new ArrayList<>();
+			boolean simple = pattern.indexOf('\'') < 0;
+			int patternLength = pattern.length();
+			int literalStart = 0;
+			int index = 0;
+
+			// Split patterns consisting of plain argument references ({0}, {1}, ...) only into their literal parts
+			while (simple && index < patternLength) {
+				char c = pattern.charAt(index);
+
+				if (c == '{') {
+					int argumentEnd = index + 1;
+
+					while (argumentEnd < patternLength && Character.isDigit(pattern.charAt(argumentEnd))) {
+						argumentEnd++;
+					}
+					simple = argumentEnd > index + 1 && argumentEnd < patternLength
+							&& pattern.charAt(argumentEnd) == '}';
+					if (simple) {
+						literalList.add(pattern.substring(literalStart, index));
+						argumentList.add(Integer.valueOf(pattern.substring(index + 1, argumentEnd)));
+						literalStart = index = argumentEnd + 1;
+					}
+				} else {
+					simple = c != '}';
+					index++;
+				}
+			}
+			literalList.add(pattern.substring(literalStart));
+			this.literals = (simple ? literalList.toArray(new String[0]) : null);
+			this.arguments = argumentList.stream().mapToInt(Integer::intValue).toArray();
+		}
+
+		Locale locale() {
+			return this.prototype.getLocale();
+		}
+
+		String format(Object[] parameters) {
+			String[] checkedLiterals = this.literals;
+			String formatted;
+
+			if (checkedLiterals != null && isPlain(parameters)) {
+				StringBuilder buffer = new StringBuilder(checkedLiterals[0]);
+
+				for (int argumentIndex = 0; argumentIndex < this.arguments.length; argumentIndex++) {
+					int argument = this.arguments[argumentIndex];
+
+					if (argument < parameters.length) {
+						buffer.append(parameters[argument]);
+					} else {
+						buffer.append('{').append(argument).append('}');
+					}
+					buffer.append(checkedLiterals[argumentIndex + 1]);
+				}
+				formatted = buffer.toString();
+			} else {
+				formatted = ((MessageFormat) this.prototype.clone()).format(parameters);
+			}
+			return formatted;
+		}
+
+		private boolean isPlain(Object[] parameters) {
+			boolean plain = true;
+
+			// Numbers and dates are formatted locale specific; leave them to MessageFormat
+			for (int argumentIndex = 0; plain && argumentIndex < this.arguments.length; argumentIndex++) {
+				int argument = this.arguments[argumentIndex];
+				Object parameter = (argument < parameters.length ? parameters[argument] : null);
+
+				plain = !(parameter instanceof Number || parameter instanceof Date);
+			}
+			return plain;
+		}
+
+	}
+
+}
@@ -16,6 +16,7 @@
  */
 package de.carne.util.logging;
 
+import java.util.concurrent.TimeUnit;
 import java.util.logging.ErrorManager;
 import java.util.logging.Formatter;
 import java.util.logging.Handler;
@@ -31,6 +32,15 @@ import de.carne.util.logging.proxy.Slf4jProxy;
 
 /**
  * A {@linkplain Handler} implementation used to forward log records to a 3rd party logging framework.
+ * <p>
+ * If no {@linkplain Formatter} is configured, the message formatting is left to the target logging framework. If the
+ * {@code async} property is set, published {@linkplain LogRecord}s are queued in a bounded queue (sized via the
+ * {@code asyncCapacity} property) and forwarded by a dedicated thread. If the queue is full, publishing threads wait
+ * for the forwarder to catch up. Should the forwarder thread terminate unexpectedly, records are forwarded
+ * synchronously again. Queued records are formatted by the forwarder thread (or even later by the target framework);
+ * a mutable message parameter modified in the meantime is therefore rendered in its modified state (see
+ * {@linkplain Log}).
+ * </p>
  */
 public class ProxyHandler extends Handler {
 
@@ -71,17 +81,12 @@ public class ProxyHandler extends Handler {
 
 	}
 
-	private static final Formatter DEFAULT_FORMATTER = new Formatter() {
-
-		@Override
-		public String format(@Nullable LogRecord record) {
-			return formatMessage(record);
-		}
-
-	};
+	private static final long FORWARDER_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
 
 	private final PublishLock lock = PublishLock.getInstance();
+	private final HandlerMetrics metrics = LogMetrics.handlerMetrics(getClass());
 	private final Proxy proxy;
+	private final @Nullable AsyncDispatcher dispatcher;
 
 	/**
 	 * Constructs {@linkplain ProxyHandler}.
@@ -92,28 +97,67 @@ public class ProxyHandler extends Handler {
 		Type type = getTypeProperty(manager, propertyBase + ".type", Type.AUTO);
 
 		this.proxy = getProxyInstance(type.proxyClass());
+		if (Logs.getBooleanProperty(manager, propertyBase + ".async", false)) {
+			// The forwarder keeps the publish lock to ignore any records issued by the target framework
+			this.dispatcher = new AsyncDispatcher(getClass().getSimpleName() + "-forwarder",
+					Logs.getIntProperty(manager, propertyBase + ".asyncCapacity", 1024), this.lock, new Forwarder());
+		} else {
+			this.dispatcher = null;
+		}
 	}
 
 	@Override
 	public void publish(@Nullable LogRecord record) {
-		this.lock.ifNotLocked(() -> publish0(record));
+		long publishStart = this.metrics.publishStart();
+
+		if (record != null && isLoggable(record) && this.lock.tryLock()) {
+			try {
+				AsyncDispatcher checkedDispatcher = this.dispatcher;
+
+				if (checkedDispatcher != null && checkedDispatcher.isRunning()) {
+					if (getFormatter() != null) {
+						// Infer the caller while still running on the publishing thread
+						record.getSourceClassName();
+					}
+					if (!checkedDispatcher.offerBlocking(record)) {
+						publish0(record);
+					}
+				} else {
+					publish0(record);
+				}
+			} finally {
+				this.lock.unlock();
+			}
+		}
+		this.metrics.publishEnd(publishStart);
 	}
 
-	private void publish0(@Nullable LogRecord record) {
-		if (record != null) {
-			Formatter formatter = getFormatter();
+	private void publish0(LogRecord record) {
+		Formatter formatter = getFormatter();
 
-			this.proxy.publish(record, (formatter != null ? formatter : DEFAULT_FORMATTER));
+		try {
+			this.proxy.publish(record, (formatter != null ? formatter : Proxy.MESSAGE_FORMATTER));
+		} catch (RuntimeException e) {
+			reportError(null, e, ErrorManager.WRITE_FAILURE);
 		}
 	}
 
 	@Override
 	public void flush() {
-		// Nothing to do here
+		AsyncDispatcher checkedDispatcher = this.dispatcher;
+
+		if (checkedDispatcher != null) {
+			checkedDispatcher.flush();
+		}
 	}
 
 	@Override
 	public void close() {
+		AsyncDispatcher checkedDispatcher = this.dispatcher;
+
+		if (checkedDispatcher != null) {
+			checkedDispatcher.close();
+		}
 		this.lock.close();
 	}
 
@@ -142,4 +186,27 @@ public class ProxyHandler extends Handler {
 		return proxy;
 	}
 
+	private final class Forwarder implements AsyncDispatcher.Sink {
+
+		@Override
+		public void dispatch(AsyncDispatcher.Batch batch) {
+			LogRecord record;
+
+			while ((record = batch.next()) != null) {
+				publish0(record);
+			}
+		}
+
+		@Override
+		public void flush() {
+			// Records are forwarded immediately
+		}
+
+		@Override
+		public long idle() {
+			return FORWARDER_PARK_NANOS;
+		}
+
+	}
+
 }
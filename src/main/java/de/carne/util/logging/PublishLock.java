@@ -16,36 +16,92 @@
  */
 package de.carne.util.logging;
 
+import java.util.concurrent.atomic.LongAdder;
+
 import de.carne.util.Lazy;
 
+/**
+ * Re-entrancy guard for {@linkplain java.util.logging.LogRecord} publishing.
+ * <p>
+ * Publishing a record may call into foreign code (e.g. formatters or 3rd party logging frameworks) which may issue log
+ * records itself. Such re-entrant publishes are suppressed to avoid endless recursion and counted for diagnostics. The
+ * lock state is kept in a mutable per-thread depth counter. Hence acquiring and releasing the lock neither boxes nor
+ * allocates.
+ * </p>
+ */
 final class PublishLock implements AutoCloseable {
 
 	private static final Lazy<PublishLock> INSTANCE_HOLDER = new Lazy<>(PublishLock::new);
 
-	private final ThreadLocal<Boolean> locked = ThreadLocal.withInitial(() -> Boolean.FALSE);
+	private static final LongAdder SUPPRESSED = new LongAdder();
 
-	private PublishLock() {
-		// Prevent instantiation outside this class
+	private final ThreadLocal<Depth> depth = ThreadLocal.withInitial(Depth::new);
+
+	/**
+	 * Constructs a new {@linkplain PublishLock} instance independent of the shared one.
+	 *
+	 * @see #getInstance()
+	 */
+	PublishLock() {
+		// Nothing to do here
 	}
 
+	/**
+	 * Gets the {@linkplain PublishLock} instance shared by all handlers forwarding records to an outside destination.
+	 *
+	 * @return the shared {@linkplain PublishLock} instance.
+	 */
 	public static PublishLock getInstance() {
 		return INSTANCE_HOLDER.get();
 	}
 
-	public void ifNotLocked(Runnable publisher) {
-		if (!this.locked.get().booleanValue()) {
-			try {
-				this.locked.set(Boolean.TRUE);
-				publisher.run();
-			} finally {
-				this.locked.set(Boolean.FALSE);
-			}
+	/**
+	 * Gets the number of suppressed re-entrant publishes (across all {@linkplain PublishLock} instances).
+	 *
+	 * @return the number of suppressed re-entrant publishes.
+	 */
+	public static long suppressedCount() {
+		return SUPPRESSED.sum();
+	}
+
+	/**
+	 * Acquires the lock for the current thread unless the current thread already holds it.
+	 *
+	 * @return {@code true} if the lock has been acquired and must be released via {@linkplain #unlock()}.
+	 */
+	public boolean tryLock() {
+		Depth threadDepth = this.depth.get();
+		boolean locked = threadDepth.value == 0;
+
+		if (locked) {
+			threadDepth.value++;
+		} else {
+			SUPPRESSED.increment();
+		}
+		return locked;
+	}
+
+	/**
+	 * Releases the lock previously acquired via {@linkplain #tryLock()}.
+	 */
+	public void unlock() {
+		Depth threadDepth = this.depth.get();
+
+		// Stop at 0, as a close while holding the lock has already reset the thread's state
+		if (threadDepth.value > 0) {
+			threadDepth.value--;
 		}
 	}
 
 	@Override
 	public void close() {
-		this.locked.remove();
+		this.depth.remove();
+	}
+
+	private static final class Depth {
+
+		int value = 0;
+
 	}
 
 }
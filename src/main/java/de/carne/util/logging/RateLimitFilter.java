@@ -0,0 +1,252 @@
+/*
+ * Copyright (c) 2016-2021 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.util.logging;
+
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Filter;
+import java.util.logging.Level;
+import java.util.logging.LogManager;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * {@linkplain Filter} limiting the rate of similar log records.
+ * <p>
+ * Records are considered similar if they are issued via the same logger and with the same message pattern (records
+ * issued via {@linkplain Log} carry the unformatted pattern and their parameters). Every such call site is limited via
+ * a token bucket permitting up to {@code rate} records per second and bursts of up to {@code burst} records. The
+ * bucket state is kept in a single atomic value; hence the filter is lock-free on the accept path. The number of
+ * distinct call sites tracked is limited via the {@code maxSites} property. Records of any additional call site are
+ * not limited until idle call sites have been evicted. A call site is considered idle and is evicted by a background
+ * thread, if it has not issued any records for {@code idleTimeout} milliseconds (default: 10000) and no summary is
+ * pending for it.
+ * </p>
+ * <p>
+ * Suppressed records are counted and a summary record ("Suppressed N similar records: ...") is issued via the call
+ * site's logger every {@code summaryInterval} milliseconds (by the same background thread and only if records have
+ * been suppressed). Setting {@code summaryInterval} to {@code 0} disables the summary records.
+ * </p>
+ */
+public class RateLimitFilter implements Filter {
+
+	/**
+	 * The message pattern of the summary records issued for suppressed records.
+	 */
+	public static final String SUMMARY_MESSAGE = "Suppressed {0} similar records: {1}";
+
+	private final long emissionIntervalNanos;
+	private final long burstToleranceNanos;
+	private final long summaryIntervalNanos;
+	private final long idleTimeoutNanos;
+	private final int maxSites;
+	private final ConcurrentMap<String, ConcurrentMap<String, Site>> sites = new ConcurrentHashMap<>();
+	private final AtomicInteger siteCount = new AtomicInteger();
+	private volatile long lastSummary = System.nanoTime();
+
+	/**
+	 * Constructs a new {@linkplain RateLimitFilter} instance using the current {@linkplain LogManager} configuration.
+	 */
+	public RateLimitFilter() {
+		LogManager manager = LogManager.getLogManager();
+		String propertyBase = getClass().getName();
+
+		this.emissionIntervalNanos = TimeUnit.SECONDS.toNanos(1)
+				/ Math.max(Logs.getIntProperty(manager, propertyBase + ".rate", 10), 1);
+		this.burstToleranceNanos = (Math.max(Logs.getIntProperty(manager, propertyBase + ".burst", 100), 1) - 1)
+				* this.emissionIntervalNanos;
+		this.summaryIntervalNanos = TimeUnit.MILLISECONDS
+				.toNanos(Math.max(Logs.getIntProperty(manager, propertyBase + ".summaryInterval", 10000), 0));
+		this.idleTimeoutNanos = TimeUnit.MILLISECONDS
+				.toNanos(Math.max(Logs.getIntProperty(manager, propertyBase + ".idleTimeout", 10000), 0));
+		this.maxSites = Math.max(Logs.getIntProperty(manager, propertyBase + ".maxSites", 1024), 1);
+		// Idle sites have to be evicted regardless of whether summaries are enabled
+		Sweeper.register(this);
+	}
+
+	@Override
+	public boolean isLoggable(@Nullable LogRecord record) {
+		boolean loggable = false;
+
+		if (record != null) {
+			String pattern = record.getMessage();
+
+			// Our own summary records are never limited (there is at most one per site and interval)
+			if (SUMMARY_MESSAGE.equals(pattern)) {
+				loggable = true;
+			} else {
+				Site site = getSite(Objects.toString(record.getLoggerName(), ""), Objects.toString(pattern, ""));
+
+				loggable = site == null || site.tryAcquire(record.getLevel());
+			}
+		}
+		return loggable;
+	}
+
+	private @Nullable Site getSite(String loggerName, String pattern) {
+		ConcurrentMap<String, Site> loggerSites = this.sites.get(loggerName);
+		Site site = (loggerSites != null ? loggerSites.get(pattern) : null);
+
+		if (site == null && this.siteCount.get() < this.maxSites) {
+			site = this.sites.computeIfAbsent(loggerName, key -> new ConcurrentHashMap<>()).computeIfAbsent(pattern,
+					key -> {
+						this.siteCount.incrementAndGet();
+						return new Site(loggerName, key);
+					});
+		}
+		return site;
+	}
+
+	/**
+	 * Issues the summary records for all call sites with suppressed records.
+	 * <p>
+	 * This function is invoked periodically in the background and may be invoked explicitly (e.g. during shutdown) to
+	 * report any pending suppressions immediately.
+	 * </p>
+	 */
+	public void emitSummaries() {
+		this.lastSummary = System.nanoTime();
+		this.sites.values().forEach(loggerSites -> loggerSites.values().forEach(Site::emitSummary));
+	}
+
+	void sweep() {
+		long now = System.nanoTime();
+
+		if (this.summaryIntervalNanos > 0 && now - this.lastSummary >= this.summaryIntervalNanos) {
+			emitSummaries();
+		}
+		this.sites.values().forEach(loggerSites -> loggerSites.values().removeIf(site -> site.evictIfIdle(now)));
+	}
+
+	private final class Site {
+
+		private final String loggerName;
+		private final String pattern;
+		private final AtomicLong theoreticalArrival = new AtomicLong(System.nanoTime());
+		private final LongAdder suppressed = new LongAdder();
+		private volatile Level suppressedLevel = Level.ALL;
+
+		Site(String loggerName, String pattern) {
+			this.loggerName = loggerName;
+			this.pattern = pattern;
+		}
+
+		boolean tryAcquire(Level level) {
+			long now = System.nanoTime();
+			long arrival = this.theoreticalArrival.get();
+			boolean acquired = false;
+
+			// Generic cell rate algorithm: a record conforms if it does not arrive earlier than the burst tolerance
+			// permits. Conforming records advance the theoretical arrival time by the emission interval.
+			while (!acquired && now - (arrival - RateLimitFilter.this.burstToleranceNanos) >= 0) {
+				long nextArrival = Math.max(arrival - now, 0) + now + RateLimitFilter.this.emissionIntervalNanos;
+
+				acquired = this.theoreticalArrival.compareAndSet(arrival, nextArrival);
+				if (!acquired) {
+					arrival = this.theoreticalArrival.get();
+				}
+			}
+			if (!acquired) {
+				this.suppressed.increment();
+				// Avoid contended writes for the (common) case of an unchanged level
+				if (this.suppressedLevel != level) {
+					this.suppressedLevel = level;
+				}
+			}
+			return acquired;
+		}
+
+		void emitSummary() {
+			long suppressedCount = this.suppressed.sumThenReset();
+
+			if (suppressedCount > 0) {
+				LogRecord summary = new LogRecord(this.suppressedLevel, SUMMARY_MESSAGE);
+
+				summary.setLoggerName(this.loggerName);
+				summary.setParameters(new Object[] { suppressedCount, this.pattern });
+				Logger.getLogger(this.loggerName).log(summary);
+			}
+		}
+
+		boolean evictIfIdle(long now) {
+			// Without summaries any suppressed records are only reported on request; hence do not wait for them
+			boolean idle = now - this.theoreticalArrival.get() >= RateLimitFilter.this.idleTimeoutNanos
+					&& (RateLimitFilter.this.summaryIntervalNanos == 0 || this.suppressed.sum() == 0);
+
+			if (idle) {
+				// Forget about call sites which have been silent for a while
+				RateLimitFilter.this.siteCount.decrementAndGet();
+			}
+			return idle;
+		}
+
+	}
+
+	private static final class Sweeper implements Runnable {
+
+		private static final long SWEEP_PERIOD_MILLIS = 1000;
+
+		private static final Set<RateLimitFilter> FILTERS = Collections.newSetFromMap(new WeakHashMap<>());
+
+		private static @Nullable Thread sweeper = null;
+
+		private Sweeper() {
+			// Prevent instantiation outside this class
+		}
+
+		static synchronized void register(RateLimitFilter filter) {
+			FILTERS.add(filter);
+			if (sweeper == null) {
+				Thread sweeperThread = new Thread(new Sweeper(), RateLimitFilter.class.getSimpleName());
+
+				sweeperThread.setDaemon(true);
+				sweeper = sweeperThread;
+				sweeperThread.start();
+			}
+		}
+
+		private static synchronized RateLimitFilter[] filters() {
+			return FILTERS.toArray(new RateLimitFilter[0]);
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (!Thread.currentThread().isInterrupted()) {
+					Thread.sleep(SWEEP_PERIOD_MILLIS);
+					for (RateLimitFilter filter : filters()) {
+						filter.sweep();
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2016-2021 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.util.logging;
+
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+
+/**
+ * Interface for {@linkplain Formatter} implementations capable of formatting a {@linkplain LogRecord} directly into a
+ * caller supplied buffer.
+ * <p>
+ * {@linkplain Handler} implementations use this interface to write formatted records without creating an intermediate
+ * {@linkplain String} per record.
+ * </p>
+ */
+public interface StreamingFormatter {
+
+	/**
+	 * Formats a {@linkplain LogRecord} by appending it to the given buffer.
+	 * <p>
+	 * The resulting text is the same as the one returned by {@linkplain Formatter#format(LogRecord)}.
+	 * </p>
+	 *
+	 * @param record the {@linkplain LogRecord} to format.
+	 * @param buffer the buffer to append the formatted record to.
+	 */
+	void format(LogRecord record, StringBuilder buffer);
+
+}
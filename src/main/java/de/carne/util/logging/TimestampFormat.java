@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2016-2021 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.util.logging;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Caching timestamp formatter for log records.
+ * <p>
+ * Log records arrive in timestamp order most of the time. Hence the last formatted timestamp is cached and reused as
+ * long as the record timestamps fall into the same second (if the pattern ends with a plain milliseconds field
+ * {@code SSS} which is then appended manually) or the same millisecond (for all other patterns).
+ * </p>
+ */
+final class TimestampFormat {
+
+	private static final String MILLIS_FIELD = "SSS";
+	private static final String SUB_SECOND_FIELDS = "SnNA";
+
+	private final DateTimeFormatter format;
+	private final boolean appendMillis;
+	private volatile Entry cached = new Entry(Long.MIN_VALUE, "");
+
+	TimestampFormat(String pattern) {
+		String prefixPattern = pattern.substring(0, Math.max(pattern.length() - MILLIS_FIELD.length(), 0));
+
+		this.appendMillis = pattern.endsWith(MILLIS_FIELD) && !containsAny(prefixPattern, SUB_SECOND_FIELDS);
+		this.format = DateTimeFormatter.ofPattern(this.appendMillis ? prefixPattern : pattern);
+	}
+
+	private static boolean containsAny(String pattern, String chars) {
+		boolean found = false;
+
+		for (int charIndex = 0; charIndex < chars.length() && !found; charIndex++) {
+			found = pattern.indexOf(chars.charAt(charIndex)) >= 0;
+		}
+		return found;
+	}
+
+	String format(long millis) {
+		return formatTo(new StringBuilder(), millis).toString();
+	}
+
+	StringBuilder formatTo(StringBuilder buffer, long millis) {
+		long key = (this.appendMillis ? Math.floorDiv(millis, 1000L) : millis);
+		Entry entry = this.cached;
+
+		if (entry.key != key) {
+			Instant instant = Instant.ofEpochMilli(this.appendMillis ? key * 1000L : millis);
+			LocalDateTime timestamp = LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
+
+			entry = new Entry(key, this.format.format(timestamp));
+			this.cached = entry;
+		}
+		buffer.append(entry.text);
+		if (this.appendMillis) {
+			int millisOfSecond = (int) Math.floorMod(millis, 1000L);
+
+			buffer.append((char) ('0' + millisOfSecond / 100));
+			buffer.append((char) ('0' + (millisOfSecond / 10) % 10));
+			buffer.append((char) ('0' + millisOfSecond % 10));
+		}
+		return buffer;
+	}
+
+	private static final class Entry {
+
+		final long key;
+		final String text;
+
+		Entry(long key, String text) {
+			this.key = key;
+			this.text = text;
+		}
+
+	}
+
+}
@@ -16,52 +16,97 @@
  */
 package de.carne.util.logging.proxy;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Formatter;
 import java.util.logging.LogRecord;
 
+import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.Marker;
 import org.apache.logging.log4j.MarkerManager;
+import org.apache.logging.log4j.message.Message;
+import org.apache.logging.log4j.message.MessageFormatMessage;
+import org.apache.logging.log4j.message.ObjectMessage;
+import org.apache.logging.log4j.message.SimpleMessage;
+import org.eclipse.jdt.annotation.Nullable;
 
 import de.carne.util.logging.LogLevel;
+import de.carne.util.logging.Logs;
 import de.carne.util.logging.ProxyHandler;
 
 /**
  * Log4j 2 (<a href= "https://logging.apache.org/log4j/2.x/">https://logging.apache.org/log4j/2.x/</a>) proxy.
+ * <p>
+ * Records are forwarded to the Log4j 2 {@linkplain Logger} named after the record's logger and marked with a
+ * {@linkplain Marker} of the same name. Message formatting is deferred to Log4j 2.
+ * </p>
  */
 public class Log4j2Proxy implements Proxy {
 
-	@SuppressWarnings("squid:S3416")
-	private final Logger logger = LogManager.getLogger(ProxyHandler.class);
+	private final Map<String, Target> targets = new ConcurrentHashMap<>();
 
 	@Override
 	public void publish(LogRecord logRecord, Formatter formatter) {
-		int levelValue = logRecord.getLevel().intValue();
+		Target target = getTarget(logRecord.getLoggerName());
+		Level level = toLevel(logRecord.getLevel().intValue());
+
+		if (target.logger.isEnabled(level, target.marker)) {
+			target.logger.log(level, target.marker, toMessage(logRecord, formatter), logRecord.getThrown());
+		}
+	}
+
+	private Target getTarget(@Nullable String loggerName) {
+		return this.targets.computeIfAbsent((loggerName != null ? loggerName : ProxyHandler.class.getName()),
+				Target::new);
+	}
+
+	private static Level toLevel(int levelValue) {
+		Level level;
 
 		if (levelValue <= LogLevel.LEVEL_TRACE.intValue()) {
-			if (this.logger.isTraceEnabled()) {
-				this.logger.trace(MarkerManager.getMarker(logRecord.getLoggerName()), formatter.format(logRecord),
-						logRecord.getThrown());
-			}
+			level = Level.TRACE;
 		} else if (levelValue <= LogLevel.LEVEL_DEBUG.intValue()) {
-			if (this.logger.isDebugEnabled()) {
-				this.logger.debug(MarkerManager.getMarker(logRecord.getLoggerName()), formatter.format(logRecord),
-						logRecord.getThrown());
-			}
+			level = Level.DEBUG;
 		} else if (levelValue <= LogLevel.LEVEL_INFO.intValue()) {
-			if (this.logger.isInfoEnabled()) {
-				this.logger.info(MarkerManager.getMarker(logRecord.getLoggerName()), formatter.format(logRecord),
-						logRecord.getThrown());
-			}
+			level = Level.INFO;
 		} else if (levelValue <= LogLevel.LEVEL_WARNING.intValue()) {
-			if (this.logger.isWarnEnabled()) {
-				this.logger.warn(MarkerManager.getMarker(logRecord.getLoggerName()), formatter.format(logRecord),
-						logRecord.getThrown());
+			level = Level.WARN;
+		} else {
+			level = Level.ERROR;
+		}
+		return level;
+	}
+
+	private static Message toMessage(LogRecord logRecord, Formatter formatter) {
+		Message message;
+
+		if (formatter == MESSAGE_FORMATTER) {
+			String pattern = ProxyMessage.pattern(logRecord);
+			Object[] parameters = logRecord.getParameters();
+
+			if (parameters != null && parameters.length > 0 && Logs.hasParameterReference(pattern)) {
+				message = new MessageFormatMessage(pattern, parameters);
+			} else {
+				message = new SimpleMessage(pattern);
 			}
-		} else if (this.logger.isErrorEnabled()) {
-			this.logger.error(MarkerManager.getMarker(logRecord.getLoggerName()), formatter.format(logRecord),
-					logRecord.getThrown());
+		} else {
+			message = new ObjectMessage(new ProxyMessage(logRecord, formatter));
+		}
+		return message;
+	}
+
+	private static final class Target {
+
+		final Logger logger;
+		final Marker marker;
+
+		Target(String name) {
+			this.logger = LogManager.getLogger(name);
+			this.marker = MarkerManager.getMarker(name);
 		}
+
 	}
 
 }
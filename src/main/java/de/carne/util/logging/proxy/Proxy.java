@@ -19,12 +19,32 @@ package de.carne.util.logging.proxy;
 import java.util.logging.Formatter;
 import java.util.logging.LogRecord;
 
+import org.eclipse.jdt.annotation.Nullable;
+
+import de.carne.util.logging.Logs;
+
 /**
  * Proxy interface for log record forwarding.
  */
 @FunctionalInterface
 public interface Proxy {
 
+	/**
+	 * {@linkplain Formatter} formatting the message of a {@linkplain LogRecord} only.
+	 * <p>
+	 * If this formatter is submitted to {@linkplain #publish(LogRecord, Formatter)}, a proxy may hand the raw message
+	 * pattern and parameters to the target logging framework and leave the actual formatting to it.
+	 * </p>
+	 */
+	Formatter MESSAGE_FORMATTER = new Formatter() {
+
+		@Override
+		public String format(@Nullable LogRecord record) {
+			return (record != null ? Logs.formatMessage(record) : "");
+		}
+
+	};
+
 	/**
 	 * Publishes the submitted {@linkplain LogRecord}.
 	 *
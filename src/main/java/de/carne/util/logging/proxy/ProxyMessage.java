@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2018-2020 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.util.logging.proxy;
+
+import java.util.logging.Formatter;
+import java.util.logging.LogRecord;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import de.carne.util.logging.Logs;
+
+/**
+ * Message object deferring the actual {@linkplain LogRecord} formatting until the message's {@linkplain #toString()}
+ * function is invoked by the target logging framework.
+ */
+final class ProxyMessage {
+
+	/**
+	 * Message pattern to use for passing a {@linkplain ProxyMessage} as a parameter.
+	 */
+	static final String PATTERN = "{}";
+
+	private final LogRecord logRecord;
+	private final Formatter formatter;
+	private @Nullable String message = null;
+
+	ProxyMessage(LogRecord logRecord, Formatter formatter) {
+		this.logRecord = logRecord;
+		this.formatter = formatter;
+	}
+
+	/**
+	 * Gets the (localized) message pattern of a {@linkplain LogRecord}.
+	 *
+	 * @param logRecord the {@linkplain LogRecord} to get the message pattern for.
+	 * @return the (localized) message pattern.
+	 */
+	static String pattern(LogRecord logRecord) {
+		return (logRecord.getMessage() != null ? Logs.localizeMessage(logRecord) : "");
+	}
+
+	@Override
+	public String toString() {
+		String checkedMessage = this.message;
+
+		if (checkedMessage == null) {
+			checkedMessage = this.formatter.format(this.logRecord);
+			this.message = checkedMessage;
+		}
+		return checkedMessage;
+	}
+
+}
@@ -16,11 +16,15 @@
  */
 package de.carne.util.logging.proxy;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Formatter;
 import java.util.logging.LogRecord;
 
+import org.eclipse.jdt.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.Marker;
 import org.slf4j.MarkerFactory;
 
 import de.carne.util.logging.LogLevel;
@@ -28,40 +32,60 @@ import de.carne.util.logging.ProxyHandler;
 
 /**
  * SLF4J (<a href= "https://www.slf4j.org">https://www.slf4j.org</a>) proxy.
+ * <p>
+ * Records are forwarded to the SLF4J {@linkplain Logger} named after the record's logger and marked with a
+ * {@linkplain Marker} of the same name. The message is passed as a parameter, which is formatted only if the SLF4J
+ * backend actually renders it.
+ * </p>
  */
 public class Slf4jProxy implements Proxy {
 
-	@SuppressWarnings("squid:S3416")
-	private final Logger logger = LoggerFactory.getLogger(ProxyHandler.class);
+	private final Map<String, Target> targets = new ConcurrentHashMap<>();
 
 	@Override
 	public void publish(LogRecord logRecord, Formatter formatter) {
+		Target target = getTarget(logRecord.getLoggerName());
+		Logger logger = target.logger;
+		Marker marker = target.marker;
 		int levelValue = logRecord.getLevel().intValue();
+		Throwable thrown = logRecord.getThrown();
 
 		if (levelValue <= LogLevel.LEVEL_TRACE.intValue()) {
-			if (this.logger.isTraceEnabled()) {
-				this.logger.trace(MarkerFactory.getMarker(logRecord.getLoggerName()), formatter.format(logRecord),
-						logRecord.getThrown());
+			if (logger.isTraceEnabled(marker)) {
+				logger.trace(marker, ProxyMessage.PATTERN, new ProxyMessage(logRecord, formatter), thrown);
 			}
 		} else if (levelValue <= LogLevel.LEVEL_DEBUG.intValue()) {
-			if (this.logger.isDebugEnabled()) {
-				this.logger.debug(MarkerFactory.getMarker(logRecord.getLoggerName()), formatter.format(logRecord),
-						logRecord.getThrown());
+			if (logger.isDebugEnabled(marker)) {
+				logger.debug(marker, ProxyMessage.PATTERN, new ProxyMessage(logRecord, formatter), thrown);
 			}
 		} else if (levelValue <= LogLevel.LEVEL_INFO.intValue()) {
-			if (this.logger.isInfoEnabled()) {
-				this.logger.info(MarkerFactory.getMarker(logRecord.getLoggerName()), formatter.format(logRecord),
-						logRecord.getThrown());
+			if (logger.isInfoEnabled(marker)) {
+				logger.info(marker, ProxyMessage.PATTERN, new ProxyMessage(logRecord, formatter), thrown);
 			}
 		} else if (levelValue <= LogLevel.LEVEL_WARNING.intValue()) {
-			if (this.logger.isWarnEnabled()) {
-				this.logger.warn(MarkerFactory.getMarker(logRecord.getLoggerName()), formatter.format(logRecord),
-						logRecord.getThrown());
+			if (logger.isWarnEnabled(marker)) {
+				logger.warn(marker, ProxyMessage.PATTERN, new ProxyMessage(logRecord, formatter), thrown);
 			}
-		} else if (this.logger.isErrorEnabled()) {
-			this.logger.error(MarkerFactory.getMarker(logRecord.getLoggerName()), formatter.format(logRecord),
-					logRecord.getThrown());
+		} else if (logger.isErrorEnabled(marker)) {
+			logger.error(marker, ProxyMessage.PATTERN, new ProxyMessage(logRecord, formatter), thrown);
 		}
 	}
 
+	private Target getTarget(@Nullable String loggerName) {
+		return this.targets.computeIfAbsent((loggerName != null ? loggerName : ProxyHandler.class.getName()),
+				Target::new);
+	}
+
+	private static final class Target {
+
+		final Logger logger;
+		final Marker marker;
+
+		Target(String name) {
+			this.logger = LoggerFactory.getLogger(name);
+			this.marker = MarkerFactory.getMarker(name);
+		}
+
+	}
+
 }
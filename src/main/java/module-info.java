@@ -5,6 +5,7 @@
  */
 module de.carne {
 	requires transitive java.logging;
+	requires java.management;
 	requires transitive java.prefs;
 	requires transitive org.eclipse.jdt.annotation;
 
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2016-2021 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.io;
+
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import de.carne.io.BufferPool;
+import de.carne.io.Defaults;
+
+/**
+ * Test {@linkplain BufferPool} class.
+ */
+class BufferPoolTest {
+
+	@Test
+	void testBytes() {
+		byte[] buffer1 = BufferPool.acquireBytes(1);
+
+		Assertions.assertEquals(Defaults.DEFAULT_BUFFER_SIZE, buffer1.length);
+
+		byte[] buffer2 = BufferPool.acquireBytes(Defaults.DEFAULT_BUFFER_SIZE + 1);
+
+		Assertions.assertEquals(Defaults.DEFAULT_BUFFER_SIZE << 1, buffer2.length);
+
+		BufferPool.release(buffer1);
+		BufferPool.release(buffer2);
+
+		long hitCount = BufferPool.hitCount();
+
+		Assertions.assertSame(buffer1, BufferPool.acquireBytes(Defaults.DEFAULT_BUFFER_SIZE));
+		Assertions.assertSame(buffer2, BufferPool.acquireBytes(Defaults.DEFAULT_BUFFER_SIZE + 2));
+		Assertions.assertEquals(hitCount + 2, BufferPool.hitCount());
+
+		long missCount = BufferPool.missCount();
+		byte[] unpooled = BufferPool.acquireBytes(Defaults.MAX_BUFFER_SIZE + 1);
+
+		Assertions.assertEquals(Defaults.MAX_BUFFER_SIZE + 1, unpooled.length);
+		Assertions.assertEquals(missCount + 1, BufferPool.missCount());
+		BufferPool.release(unpooled);
+		BufferPool.release(new byte[Defaults.DEFAULT_BUFFER_SIZE + 1]);
+		Assertions.assertNotSame(unpooled, BufferPool.acquireBytes(Defaults.MAX_BUFFER_SIZE + 1));
+	}
+
+	@Test
+	void testDirect() {
+		ByteBuffer buffer = BufferPool.acquireDirect(100);
+
+		Assertions.assertTrue(buffer.isDirect());
+		Assertions.assertEquals(0, buffer.position());
+		Assertions.assertEquals(100, buffer.limit());
+		Assertions.assertEquals(Defaults.DEFAULT_BUFFER_SIZE, buffer.capacity());
+		buffer.put((byte) 1);
+		BufferPool.release(buffer);
+
+		ByteBuffer pooled = BufferPool.acquireDirect(200);
+
+		Assertions.assertSame(buffer, pooled);
+		Assertions.assertEquals(0, pooled.position());
+		Assertions.assertEquals(200, pooled.limit());
+		BufferPool.release(ByteBuffer.allocate(Defaults.DEFAULT_BUFFER_SIZE));
+		Assertions.assertTrue(BufferPool.acquireDirect(100).isDirect());
+	}
+
+	@Test
+	void testCacheLimit() {
+		ByteBuffer buffer = BufferPool.acquireDirect(Defaults.BUFFER_POOL_CACHE_LIMIT + 1);
+
+		BufferPool.release(buffer);
+
+		Assertions.assertNotSame(buffer, BufferPool.acquireDirect(Defaults.BUFFER_POOL_CACHE_LIMIT + 1));
+
+		byte[] bytes = BufferPool.acquireBytes(Defaults.BUFFER_POOL_CACHE_LIMIT + 1);
+
+		BufferPool.release(bytes);
+
+		Assertions.assertNotSame(bytes, BufferPool.acquireBytes(Defaults.BUFFER_POOL_CACHE_LIMIT + 1));
+	}
+
+	@Test
+	void testClear() {
+		ByteBuffer buffer = BufferPool.acquireDirect(100);
+
+		BufferPool.release(buffer);
+		BufferPool.clear();
+
+		Assertions.assertNotSame(buffer, BufferPool.acquireDirect(100));
+	}
+
+	@Test
+	void testStringBuilder() {
+		StringBuilder buffer = BufferPool.acquireStringBuilder();
+
+		buffer.append("test");
+		BufferPool.release(buffer);
+
+		StringBuilder pooled = BufferPool.acquireStringBuilder();
+
+		Assertions.assertSame(buffer, pooled);
+		Assertions.assertEquals(0, pooled.length());
+		// Nested use gets a separate instance
+		Assertions.assertNotSame(pooled, BufferPool.acquireStringBuilder());
+	}
+
+}
@@ -17,25 +17,47 @@
 package de.carne.test.io;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
 
+import de.carne.io.Adler32Checksum;
+import de.carne.io.CRC32CChecksum;
 import de.carne.io.Checksum;
 import de.carne.io.ChecksumInputStream;
 import de.carne.io.ChecksumOutputStream;
 import de.carne.io.IOUtil;
+import de.carne.io.LongChecksum;
 import de.carne.io.MD5Checksum;
+import de.carne.io.MultiChecksum;
 import de.carne.io.NullOutputStream;
 import de.carne.io.SHA256Checksum;
+import de.carne.io.TreeChecksum;
+import de.carne.io.XXHash64Checksum;
+import de.carne.test.annotation.io.TempFile;
+import de.carne.test.extension.io.TempPathExtension;
 import de.carne.text.HexBytes;
 
 /**
  * Test {@linkplain Checksum} implementations.
  */
+@ExtendWith(TempPathExtension.class)
 class ChecksumTest {
 
 	private static final byte[] TEST_DATA = new byte[256];
@@ -48,6 +70,9 @@ class ChecksumTest {
 
 	private static final String TEST_DATA_SHA256 = "40aff2e9d2d8922e47afd4648e6967497158785fbd1da870e7110266bf944880";
 	private static final String TEST_DATA_MD5 = "e2c865db4162bed963bfaa9ef6ac18f0";
+	private static final String TEST_DATA_CRC32C = "9c44184b";
+	private static final String TEST_DATA_ADLER32 = "adf67f81";
+	private static final String TEST_DATA_XXHASH64 = "1facbe8406cd904b";
 
 	@Test
 	void testSHA256Checksum() throws Exception {
@@ -75,6 +100,198 @@ class ChecksumTest {
 		testChecksumOutputStream(md5, TEST_DATA_MD5);
 	}
 
+	@Test
+	void testCRC32CChecksum() throws Exception {
+		CRC32CChecksum crc32c = CRC32CChecksum.getInstance();
+
+		testChecksumBulked(crc32c, TEST_DATA_CRC32C);
+		testChecksumChunked(crc32c, TEST_DATA_CRC32C);
+		testChecksumInputStream(crc32c, TEST_DATA_CRC32C);
+		testChecksumOutputStream(crc32c, TEST_DATA_CRC32C);
+		testLongChecksum(crc32c, TEST_DATA_CRC32C);
+	}
+
+	@Test
+	void testAdler32Checksum() throws Exception {
+		Adler32Checksum adler32 = Adler32Checksum.getInstance();
+
+		testChecksumBulked(adler32, TEST_DATA_ADLER32);
+		testChecksumChunked(adler32, TEST_DATA_ADLER32);
+		testChecksumInputStream(adler32, TEST_DATA_ADLER32);
+		testChecksumOutputStream(adler32, TEST_DATA_ADLER32);
+		testLongChecksum(adler32, TEST_DATA_ADLER32);
+	}
+
+	@Test
+	void testXXHash64Checksum() throws Exception {
+		XXHash64Checksum xxhash64 = XXHash64Checksum.getInstance();
+
+		Assertions.assertEquals(0xef46db3751d8e999L, xxhash64.getValueAsLong());
+		testChecksumBulked(xxhash64, TEST_DATA_XXHASH64);
+		testChecksumChunked(xxhash64, TEST_DATA_XXHASH64);
+		testChecksumInputStream(xxhash64, TEST_DATA_XXHASH64);
+		testChecksumOutputStream(xxhash64, TEST_DATA_XXHASH64);
+		testLongChecksum(xxhash64, TEST_DATA_XXHASH64);
+		Assertions.assertNotEquals(xxhash64.getValueAsLong(), XXHash64Checksum.getInstance(1).getValueAsLong());
+	}
+
+	private void testLongChecksum(LongChecksum checksum, String expected) {
+		long expectedValue = Long.parseUnsignedLong(expected, 16);
+		ByteBuffer directData = ByteBuffer.allocateDirect(TEST_DATA.length + 3);
+
+		// Feed an unaligned direct buffer in uneven pieces
+		directData.put((byte) 0).put(TEST_DATA).put((byte) 0).put((byte) 0).flip();
+		directData.position(1);
+		checksum.reset();
+		for (int limit = 1; limit < TEST_DATA.length; limit += 17) {
+			directData.limit(1 + limit);
+			checksum.update(directData);
+		}
+		directData.limit(1 + TEST_DATA.length);
+		checksum.update(directData);
+		Assertions.assertEquals(expectedValue, checksum.getValueAsLong());
+		checksum.update(TEST_DATA, 0, 7);
+		checksum.update(TEST_DATA, 7, TEST_DATA.length - 7);
+		Assertions.assertEquals(expectedValue, checksum.getValueAsLong());
+	}
+
+	@Test
+	void testTreeChecksum(@TempFile File file) throws Exception {
+		int segmentSize = 100;
+		XXHash64Checksum expectedRoot = XXHash64Checksum.getInstance();
+
+		for (int segmentOffset = 0; segmentOffset < TEST_DATA.length; segmentOffset += segmentSize) {
+			XXHash64Checksum segment = XXHash64Checksum.getInstance();
+
+			segment.update(Arrays.copyOfRange(TEST_DATA, segmentOffset,
+					Math.min(segmentOffset + segmentSize, TEST_DATA.length)));
+			expectedRoot.update(segment.getValue());
+		}
+
+		String expected = HexBytes.toStringL(expectedRoot.getValue());
+
+		testChecksumBulked(new TreeChecksum(XXHash64Checksum::getInstance, segmentSize), expected);
+		testChecksumChunked(new TreeChecksum(XXHash64Checksum::getInstance, segmentSize), expected);
+
+		ForkJoinPool pool = new ForkJoinPool(2);
+
+		try {
+			TreeChecksum parallel = new TreeChecksum(XXHash64Checksum::getInstance, 10, pool);
+			TreeChecksum sequential = new TreeChecksum(XXHash64Checksum::getInstance, 10);
+
+			sequential.update(TEST_DATA);
+			testChecksumInputStream(parallel, HexBytes.toStringL(sequential.getValue()));
+			testChecksumOutputStream(new TreeChecksum(XXHash64Checksum::getInstance, segmentSize, pool), expected);
+			Files.write(file.toPath(), TEST_DATA);
+			try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+				Assertions.assertEquals(expected, HexBytes
+						.toStringL(TreeChecksum.checksum(channel, XXHash64Checksum::getInstance, segmentSize, pool)));
+				Assertions.assertEquals(0L, channel.position());
+			}
+		} finally {
+			pool.shutdown();
+		}
+		Assertions.assertThrows(IllegalArgumentException.class,
+				() -> new TreeChecksum(XXHash64Checksum::getInstance, 0));
+	}
+
+	@Test
+	void testChecksumInputStreamMarkReset() throws Exception {
+		Checksum sha256 = SHA256Checksum.getInstance();
+
+		try (ChecksumInputStream in = new ChecksumInputStream(new ByteArrayInputStream(TEST_DATA), sha256)) {
+			Assertions.assertTrue(in.markSupported());
+			Assertions.assertThrows(IOException.class, in::reset);
+
+			byte[] buffer = new byte[TEST_DATA.length];
+
+			in.mark(64);
+			Assertions.assertEquals(0, in.read());
+			Assertions.assertEquals(31, in.read(buffer, 1, 31));
+			in.reset();
+			Assertions.assertEquals(TEST_DATA.length, in.available());
+			Assertions.assertEquals(16, in.skip(16));
+			in.mark(48);
+			Assertions.assertEquals(16, in.read(buffer, 16, 16));
+			Assertions.assertEquals(32, in.read(buffer, 32, 32));
+			in.reset();
+			Assertions.assertEquals(16, in.read(buffer, 16, 16));
+			Assertions.assertEquals(32, in.read(buffer, 32, 32));
+			// Exceeding the read limit invalidates the mark
+			in.mark(8);
+			Assertions.assertEquals(16, in.read(buffer, 64, 16));
+			Assertions.assertThrows(IOException.class, in::reset);
+			Assertions.assertEquals(TEST_DATA.length - 80, in.transferTo(new NullOutputStream()));
+			Assertions.assertEquals(-1, in.read());
+			Assertions.assertEquals(TEST_DATA_SHA256, HexBytes.toStringL(in.getChecksumValue()));
+		}
+	}
+
+	@Test
+	void testChecksumOutputStreamTransferFrom() throws Exception {
+		try (InputStream in = new ByteArrayInputStream(TEST_DATA);
+				ChecksumOutputStream out = new ChecksumOutputStream(new NullOutputStream(),
+						SHA256Checksum.getInstance())) {
+			Assertions.assertEquals(TEST_DATA.length, out.transferFrom(in));
+			Assertions.assertEquals(TEST_DATA_SHA256, HexBytes.toStringL(out.getChecksumValue()));
+		}
+	}
+
+	@Test
+	void testMultiChecksum() throws Exception {
+		MultiChecksum multi = new MultiChecksum(MD5Checksum.getInstance(), SHA256Checksum.getInstance());
+
+		testChecksumBulked(multi, TEST_DATA_MD5 + TEST_DATA_SHA256);
+		testChecksumChunked(multi, TEST_DATA_MD5 + TEST_DATA_SHA256);
+		testChecksumInputStream(multi, TEST_DATA_MD5 + TEST_DATA_SHA256);
+		testMultiChecksumValues(multi);
+	}
+
+	@Test
+	void testParallelMultiChecksum() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+
+		try {
+			MultiChecksum multi = new MultiChecksum(executor, 2, 16, MD5Checksum.getInstance(),
+					SHA256Checksum.getInstance());
+
+			testChecksumBulked(multi, TEST_DATA_MD5 + TEST_DATA_SHA256);
+			testChecksumChunked(multi, TEST_DATA_MD5 + TEST_DATA_SHA256);
+			testChecksumInputStream(multi, TEST_DATA_MD5 + TEST_DATA_SHA256);
+			testChecksumOutputStream(multi, TEST_DATA_MD5 + TEST_DATA_SHA256);
+			testMultiChecksumValues(multi);
+		} finally {
+			executor.shutdown();
+		}
+		Assertions.assertThrows(IllegalArgumentException.class, () -> new MultiChecksum(executor, 0, 16));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> new MultiChecksum(executor, 2, 0));
+	}
+
+	@Test
+	void testRejectedMultiChecksum() throws Exception {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+
+		executor.shutdown();
+
+		MultiChecksum multi = new MultiChecksum(executor, 2, 16, MD5Checksum.getInstance());
+
+		Assertions.assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+			multi.update(TEST_DATA);
+			Assertions.assertThrows(RejectedExecutionException.class, multi::getValue);
+		});
+	}
+
+	private void testMultiChecksumValues(MultiChecksum multi) {
+		multi.reset();
+		multi.update(ByteBuffer.wrap(TEST_DATA));
+
+		List<byte[]> values = multi.getValues();
+
+		Assertions.assertEquals(2, values.size());
+		Assertions.assertEquals(TEST_DATA_MD5, HexBytes.toStringL(values.get(0)));
+		Assertions.assertEquals(TEST_DATA_SHA256, HexBytes.toStringL(values.get(1)));
+	}
+
 	private void testChecksumBulked(Checksum checksum, String expected) {
 		checksum.reset();
 		checksum.update(TEST_DATA);
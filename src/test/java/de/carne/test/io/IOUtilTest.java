@@ -20,19 +20,32 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.net.URL;
 import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.Objects;
 
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
+import de.carne.io.Checksum;
+import de.carne.io.Defaults;
 import de.carne.io.IOUtil;
+import de.carne.io.MappedFile;
+import de.carne.io.SHA256Checksum;
 import de.carne.test.annotation.io.TempFile;
 import de.carne.test.extension.io.TempPathExtension;
 
@@ -99,6 +112,64 @@ class IOUtilTest {
 		Assertions.assertArrayEquals(bufferBytes, fileDataOutputStream.toByteArray());
 	}
 
+	@Test
+	void testCopyChannelPositions(@TempFile File file1, @TempFile File file2) throws IOException {
+		byte[] resourceData = IOUtil.readAllBytes(Objects.requireNonNull(getClass().getResource("data.bin")));
+		int srcOffset = resourceData.length / 3;
+		int dstOffset = 7;
+
+		IOUtil.copyStream(file1, new ByteArrayInputStream(resourceData));
+
+		// Test file to file channel copy starting at the current channel positions
+		try (FileChannel file1Channel = FileChannel.open(file1.toPath(), StandardOpenOption.READ);
+				FileChannel file2Channel = FileChannel.open(file2.toPath(), StandardOpenOption.WRITE,
+						StandardOpenOption.TRUNCATE_EXISTING)) {
+			file1Channel.position(srcOffset);
+			file2Channel.position(dstOffset);
+
+			Assertions.assertEquals(resourceData.length - srcOffset, IOUtil.copyChannel(file2Channel, file1Channel));
+			Assertions.assertEquals(resourceData.length, file1Channel.position());
+			Assertions.assertEquals(dstOffset + resourceData.length - srcOffset, file2Channel.position());
+		}
+
+		byte[] file2Data = IOUtil.readAllBytes(file2);
+
+		Assertions.assertArrayEquals(Arrays.copyOfRange(resourceData, srcOffset, resourceData.length),
+				Arrays.copyOfRange(file2Data, dstOffset, file2Data.length));
+
+		// Test file to arbitrary channel copy
+		ByteArrayOutputStream dataOutputStream = new ByteArrayOutputStream();
+
+		try (FileChannel file1Channel = FileChannel.open(file1.toPath(), StandardOpenOption.READ)) {
+			file1Channel.position(srcOffset);
+
+			Assertions.assertEquals(resourceData.length - srcOffset,
+					IOUtil.copyChannel(Channels.newChannel(dataOutputStream), file1Channel));
+		}
+
+		Assertions.assertArrayEquals(Arrays.copyOfRange(resourceData, srcOffset, resourceData.length),
+				dataOutputStream.toByteArray());
+	}
+
+	@Test
+	void testCopyChannelUnknownSize() throws IOException {
+		// Files in /proc report a size of 0 but are still readable
+		Path procFile = Paths.get("/proc/self/status");
+
+		Assumptions.assumeTrue(Files.isReadable(procFile));
+
+		ByteArrayOutputStream dataOutputStream = new ByteArrayOutputStream();
+
+		try (FileChannel procChannel = FileChannel.open(procFile, StandardOpenOption.READ)) {
+			Assumptions.assumeTrue(procChannel.size() == 0);
+
+			long copied = IOUtil.copyChannel(Channels.newChannel(dataOutputStream), procChannel);
+
+			Assertions.assertTrue(copied > 0);
+			Assertions.assertEquals(copied, dataOutputStream.size());
+		}
+	}
+
 	@Test
 	void testReadAllBytes(@TempFile File file) throws IOException {
 		// Prepare file
@@ -124,6 +195,75 @@ class IOUtilTest {
 		});
 	}
 
+	@Test
+	void testReadAllBytesLimit() throws IOException {
+		byte[] bytes = new byte[(Defaults.DEFAULT_BUFFER_SIZE * 3) + 1];
+
+		for (int byteIndex = 0; byteIndex < bytes.length; byteIndex++) {
+			bytes[byteIndex] = (byte) byteIndex;
+		}
+
+		// Test with exact size hint
+		Assertions.assertArrayEquals(bytes, IOUtil.readAllBytes(new ByteArrayInputStream(bytes)));
+		Assertions.assertArrayEquals(bytes, IOUtil.readAllBytes(new ByteArrayInputStream(bytes), bytes.length));
+
+		// Test without size hint (buffer growth)
+		Assertions.assertArrayEquals(bytes, IOUtil.readAllBytes(new UnsizedInputStream(bytes)));
+		Assertions.assertArrayEquals(bytes, IOUtil.readAllBytes(new UnsizedInputStream(bytes), bytes.length));
+		Assertions.assertArrayEquals(new byte[0], IOUtil.readAllBytes(new UnsizedInputStream(new byte[0]), 0));
+
+		InterruptedIOException limitException = Assertions.assertThrows(InterruptedIOException.class, () -> {
+			IOUtil.readAllBytes(new UnsizedInputStream(bytes), bytes.length - 1);
+		});
+
+		Assertions.assertEquals(bytes.length, limitException.bytesTransferred);
+	}
+
+	private static class UnsizedInputStream extends FilterInputStream {
+
+		UnsizedInputStream(byte[] bytes) {
+			super(new ByteArrayInputStream(bytes));
+		}
+
+		@Override
+		public int available() throws IOException {
+			return 0;
+		}
+
+	}
+
+	@Test
+	void testMap(@TempFile File file) throws IOException, NoSuchAlgorithmException {
+		byte[] resourceData = IOUtil.readAllBytes(Objects.requireNonNull(getClass().getResource("data.bin")));
+		int windowSize = 1000;
+
+		IOUtil.copyStream(file, new ByteArrayInputStream(resourceData));
+
+		// Test windowed access
+		ByteArrayOutputStream mappedDataOutputStream = new ByteArrayOutputStream();
+
+		try (MappedFile mappedFile = IOUtil.map(file.toPath(), windowSize)) {
+			Assertions.assertEquals(resourceData.length, mappedFile.size());
+			Assertions.assertEquals(windowSize, mappedFile.windowSize());
+			Assertions.assertEquals((resourceData.length + windowSize - 1) / windowSize, mappedFile.windowCount());
+
+			for (long windowIndex = 0; windowIndex < mappedFile.windowCount(); windowIndex++) {
+				IOUtil.copyBuffer(mappedDataOutputStream, mappedFile.window(windowIndex));
+			}
+			Assertions.assertThrows(IndexOutOfBoundsException.class, () -> mappedFile.window(mappedFile.windowCount()));
+		}
+		Assertions.assertArrayEquals(resourceData, mappedDataOutputStream.toByteArray());
+
+		// Test mapped checksum calculation
+		Checksum expectedChecksum = SHA256Checksum.getInstance();
+		Checksum actualChecksum = SHA256Checksum.getInstance();
+
+		expectedChecksum.update(resourceData);
+
+		Assertions.assertEquals(resourceData.length, IOUtil.checksumFile(actualChecksum, file.toPath()));
+		Assertions.assertArrayEquals(expectedChecksum.getValue(), actualChecksum.getValue());
+	}
+
 	@Test
 	void testReadBlocking(@TempFile File file) throws IOException {
 		// Prepare file
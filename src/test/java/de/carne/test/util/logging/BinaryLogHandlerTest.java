@@ -0,0 +1,457 @@
+/*
+ * Copyright (c) 2016-2021 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.util.logging;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.ErrorManager;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.carne.util.logging.BinaryLogDecoder;
+import de.carne.util.logging.BinaryLogHandler;
+import de.carne.util.logging.LogLevel;
+import de.carne.util.logging.LogLineFormatter;
+import de.carne.util.logging.Logs;
+
+/**
+ * Test {@linkplain BinaryLogHandler} and {@linkplain BinaryLogDecoder} classes.
+ */
+class BinaryLogHandlerTest {
+
+	private static final int INTERN_TEST_RECORD_COUNT = 5000;
+
+	private Path file = Path.of("");
+
+	@BeforeEach
+	void readConfig() throws IOException {
+		Logs.readConfig("logging-binary.properties");
+		this.file = new BinaryLogHandler().file();
+		Files.deleteIfExists(this.file);
+	}
+
+	@AfterEach
+	void resetConfig() throws IOException {
+		Files.deleteIfExists(this.file);
+		Logs.readConfig(Logs.CONFIG_DEFAULT);
+	}
+
+	@Test
+	void testEncodeDecode() throws IOException {
+		List<LogRecord> records = testRecords();
+		BinaryLogHandler handler = new BinaryLogHandler();
+
+		try {
+			records.forEach(handler::publish);
+		} finally {
+			handler.close();
+		}
+
+		StringBuilder expected = new StringBuilder();
+		LogLineFormatter formatter = new LogLineFormatter();
+
+		records.forEach(record -> formatter.format(record, expected));
+
+		StringWriter decoded = new StringWriter();
+
+		try (InputStream in = Files.newInputStream(this.file)) {
+			Assertions.assertEquals(records.size(), BinaryLogDecoder.decode(in, decoded));
+		}
+		Assertions.assertEquals(expected.toString(), decoded.toString());
+		Assertions.assertTrue(Files.size(this.file) < expected.length());
+	}
+
+	@Test
+	void testAppendAndTruncation() throws IOException {
+		for (int run = 0; run < 2; run++) {
+			BinaryLogHandler handler = new BinaryLogHandler();
+
+			try {
+				handler.publish(new LogRecord(LogLevel.LEVEL_INFO, "Run {0}"));
+			} finally {
+				handler.close();
+			}
+		}
+		Assertions.assertEquals(1, countRecords(Files.readAllBytes(this.file)));
+		Logs.readConfig("logging-binary-append.properties");
+		for (int run = 0; run < 2; run++) {
+			BinaryLogHandler handler = new BinaryLogHandler();
+
+			try {
+				handler.publish(new LogRecord(LogLevel.LEVEL_INFO, "Run {0}"));
+				handler.publish(new LogRecord(LogLevel.LEVEL_INFO, "Run {0}"));
+			} finally {
+				handler.close();
+			}
+		}
+
+		byte[] log = Files.readAllBytes(this.file);
+
+		Assertions.assertEquals(5, countRecords(log));
+		Assertions.assertEquals(4, countRecords(Arrays.copyOf(log, log.length - 1)));
+		Assertions.assertThrows(IOException.class, () -> countRecords(new byte[] { 3, 0, 0 }));
+	}
+
+	@Test
+	void testAppendAfterCrash() throws IOException {
+		Logs.readConfig("logging-binary-append.properties");
+		for (int run = 0; run < 3; run++) {
+			BinaryLogHandler handler = new BinaryLogHandler();
+
+			try {
+				handler.publish(newRecord(LogLevel.LEVEL_INFO, "Run {0}", Integer.valueOf(run)));
+				handler.publish(newRecord(LogLevel.LEVEL_INFO, "Run {0}", Integer.valueOf(run)));
+			} finally {
+				handler.close();
+			}
+
+			// Simulate a crash while writing the last record
+			byte[] log = Files.readAllBytes(this.file);
+
+			Files.write(this.file, Arrays.copyOf(log, log.length - 2));
+		}
+		Assertions.assertEquals(3, countRecords(Files.readAllBytes(this.file)));
+	}
+
+	@Test
+	void testAppendToUnrecognizedFile() throws IOException {
+		byte[] foreignLog = "Not a binary log".getBytes(StandardCharsets.US_ASCII);
+
+		Files.write(this.file, foreignLog);
+		Logs.readConfig("logging-binary-append.properties");
+
+		BinaryLogHandler handler = new BinaryLogHandler();
+		ErrorCollector errors = new ErrorCollector();
+
+		handler.setErrorManager(errors);
+		try {
+			handler.publish(newRecord(LogLevel.LEVEL_INFO, "Run {0}", Integer.valueOf(0)));
+			handler.publish(newRecord(LogLevel.LEVEL_INFO, "Run {0}", Integer.valueOf(1)));
+		} finally {
+			handler.close();
+		}
+		Assertions.assertEquals(Arrays.asList(Integer.valueOf(ErrorManager.OPEN_FAILURE)), errors.codes());
+		Assertions.assertArrayEquals(foreignLog, Files.readAllBytes(this.file));
+	}
+
+	@Test
+	void testPlainMessagesNotInterned() throws IOException {
+		String loggerName = getClass().getName() + ".".repeat(200);
+		BinaryLogHandler handler = new BinaryLogHandler();
+		long plainSize;
+
+		try {
+			for (int recordIndex = 0; recordIndex < INTERN_TEST_RECORD_COUNT; recordIndex++) {
+				handler.publish(newRecord(LogLevel.LEVEL_INFO, "Plain message " + recordIndex));
+			}
+			handler.flush();
+			plainSize = Files.size(this.file);
+			for (int recordIndex = 0; recordIndex < 1000; recordIndex++) {
+				LogRecord record = newRecord(LogLevel.LEVEL_INFO, "Plain message");
+
+				record.setLoggerName(loggerName);
+				handler.publish(record);
+			}
+		} finally {
+			handler.close();
+		}
+		// The logger name is still interned (i.e. not written per record)
+		Assertions.assertTrue(Files.size(this.file) - plainSize < 1000 * loggerName.length());
+		try (InputStream in = Files.newInputStream(this.file)) {
+			Assertions.assertEquals(INTERN_TEST_RECORD_COUNT + 1000L, BinaryLogDecoder.decode(in, new StringWriter()));
+		}
+	}
+
+	@Test
+	void testWriteFailureRecovery() throws IOException {
+		FailingBinaryLogHandler handler = new FailingBinaryLogHandler();
+		ErrorCollector errors = new ErrorCollector();
+
+		handler.setErrorManager(errors);
+		try {
+			handler.publish(newRecord(LogLevel.LEVEL_INFO, "Written {0}", Integer.valueOf(0)));
+			handler.publish(newRecord(LogLevel.LEVEL_INFO, "Written {0}", Integer.valueOf(1)));
+			handler.flush();
+			handler.failNextWrite();
+			// Exceeds the buffer size and therefore fails in the middle of the record
+			handler.publish(newRecord(LogLevel.LEVEL_WARNING, "Failing {0}", "x".repeat(1000)));
+			handler.publish(newRecord(LogLevel.LEVEL_WARNING, "Failing {0}", "y"));
+			handler.publish(newRecord(LogLevel.LEVEL_INFO, "Written {0}", Integer.valueOf(2)));
+		} finally {
+			handler.close();
+		}
+		Assertions.assertEquals(Arrays.asList(Integer.valueOf(ErrorManager.WRITE_FAILURE)), errors.codes());
+
+		StringWriter decoded = new StringWriter();
+
+		try (InputStream in = Files.newInputStream(this.file)) {
+			Assertions.assertEquals(4, BinaryLogDecoder.decode(in, decoded));
+		}
+		Assertions.assertFalse(decoded.toString().contains("x"));
+		Assertions.assertTrue(decoded.toString().contains("Failing y"));
+		Assertions.assertTrue(decoded.toString().contains("Written 2"));
+	}
+
+	@Test
+	void testFailingParameter() throws IOException {
+		BinaryLogHandler handler = new BinaryLogHandler();
+		ErrorCollector errors = new ErrorCollector();
+		Object failingParameter = new Object() {
+
+			@Override
+			public String toString() {
+				throw new IllegalStateException("Failing toString");
+			}
+
+		};
+
+		handler.setErrorManager(errors);
+		try {
+			handler.publish(newRecord(LogLevel.LEVEL_INFO, "Failing parameter {0} {1}", failingParameter, "ok"));
+		} finally {
+			handler.close();
+		}
+		Assertions.assertEquals(Arrays.asList(Integer.valueOf(ErrorManager.FORMAT_FAILURE)), errors.codes());
+
+		StringWriter decoded = new StringWriter();
+
+		try (InputStream in = Files.newInputStream(this.file)) {
+			Assertions.assertEquals(1, BinaryLogDecoder.decode(in, decoded));
+		}
+		Assertions.assertTrue(decoded.toString().contains(
+				"Failing parameter " + failingParameter.getClass().getName() + "@"));
+		Assertions.assertTrue(decoded.toString().contains(" ok"));
+	}
+
+	private static long countRecords(byte[] log) throws IOException {
+		long recordCount = 0;
+
+		try (BinaryLogDecoder decoder = new BinaryLogDecoder(new ByteArrayInputStream(log))) {
+			while (decoder.read() != null) {
+				recordCount++;
+			}
+		}
+		return recordCount;
+	}
+
+	private List<LogRecord> testRecords() {
+		List<LogRecord> records = new ArrayList<>();
+
+		records.add(newRecord(LogLevel.LEVEL_INFO, "Plain message"));
+		records.add(newRecord(Level.INFO, "Plain message"));
+		records.add(newRecord(LogLevel.LEVEL_DEBUG, "Parameters {0} {1} {2} {3} {4} {5} {6} {7} {8} {9} {10}", "string",
+				Integer.valueOf(-42), Long.valueOf(Long.MIN_VALUE), Double.valueOf(Math.PI), Float.valueOf(-1.5f),
+				Boolean.TRUE, Character.valueOf('ä'), Byte.valueOf((byte) 7), Short.valueOf((short) -7),
+				new Date(1612345678901L), getClass()));
+		records.add(newRecord(LogLevel.LEVEL_WARNING, "Null parameter {0}", (Object) null));
+
+		LogRecord thrownRecord = newRecord(LogLevel.LEVEL_ERROR, "Thrown message");
+
+		thrownRecord.setThrown(new IOException("Test exception", new IllegalStateException()));
+		records.add(thrownRecord);
+
+		LogRecord anonymousRecord = new LogRecord(LogLevel.LEVEL_NOTICE, null);
+
+		records.add(anonymousRecord);
+		for (int recordIndex = 0; recordIndex < INTERN_TEST_RECORD_COUNT; recordIndex++) {
+			records.add(newRecord(LogLevel.LEVEL_TRACE, "Distinct message " + recordIndex + " {0}",
+					Integer.valueOf(recordIndex)));
+		}
+		return records;
+	}
+
+	private LogRecord newRecord(Level level, String message, Object... parameters) {
+		LogRecord record = new LogRecord(level, message);
+
+		record.setLoggerName(getClass().getName());
+		if (parameters.length > 0) {
+			record.setParameters(parameters);
+		}
+		return record;
+	}
+
+	private static class FailingBinaryLogHandler extends BinaryLogHandler {
+
+		private boolean failNextWrite = false;
+
+		FailingBinaryLogHandler() {
+			// Just to make this class accessible to the outer class
+		}
+
+		void failNextWrite() {
+			this.failNextWrite = true;
+		}
+
+		@Override
+		protected FileChannel openChannel(Path path, OpenOption... options) throws IOException {
+			return new FailingFileChannel(FileChannel.open(path, options));
+		}
+
+		private class FailingFileChannel extends FileChannel {
+
+			private final FileChannel channel;
+
+			FailingFileChannel(FileChannel channel) {
+				this.channel = channel;
+			}
+
+			@Override
+			public int read(ByteBuffer dst) throws IOException {
+				return this.channel.read(dst);
+			}
+
+			@Override
+			public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+				return this.channel.read(dsts, offset, length);
+			}
+
+			@Override
+			public int write(ByteBuffer src) throws IOException {
+				int written;
+
+				if (FailingBinaryLogHandler.this.failNextWrite) {
+					int limit = src.limit();
+
+					FailingBinaryLogHandler.this.failNextWrite = false;
+					// Write some bytes before failing to leave an incomplete record behind
+					src.limit(src.position() + Math.min(src.remaining(), 8));
+					this.channel.write(src);
+					src.limit(limit);
+					throw new IOException("Injected write failure");
+				}
+				written = this.channel.write(src);
+				return written;
+			}
+
+			@Override
+			public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+				return this.channel.write(srcs, offset, length);
+			}
+
+			@Override
+			public long position() throws IOException {
+				return this.channel.position();
+			}
+
+			@Override
+			public FileChannel position(long newPosition) throws IOException {
+				this.channel.position(newPosition);
+				return this;
+			}
+
+			@Override
+			public long size() throws IOException {
+				return this.channel.size();
+			}
+
+			@Override
+			public FileChannel truncate(long size) throws IOException {
+				this.channel.truncate(size);
+				return this;
+			}
+
+			@Override
+			public void force(boolean metaData) throws IOException {
+				this.channel.force(metaData);
+			}
+
+			@Override
+			public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+				return this.channel.transferTo(position, count, target);
+			}
+
+			@Override
+			public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+				return this.channel.transferFrom(src, position, count);
+			}
+
+			@Override
+			public int read(ByteBuffer dst, long position) throws IOException {
+				return this.channel.read(dst, position);
+			}
+
+			@Override
+			public int write(ByteBuffer src, long position) throws IOException {
+				return this.channel.write(src, position);
+			}
+
+			@Override
+			public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+				return this.channel.map(mode, position, size);
+			}
+
+			@Override
+			public FileLock lock(long position, long size, boolean shared) throws IOException {
+				return this.channel.lock(position, size, shared);
+			}
+
+			@Override
+			public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+				return this.channel.tryLock(position, size, shared);
+			}
+
+			@Override
+			protected void implCloseChannel() throws IOException {
+				this.channel.close();
+			}
+
+		}
+
+	}
+
+	private static class ErrorCollector extends ErrorManager {
+
+		private final List<Integer> codes = new CopyOnWriteArrayList<>();
+
+		ErrorCollector() {
+			// Just to make this class accessible to the outer class
+		}
+
+		List<Integer> codes() {
+			return this.codes;
+		}
+
+		@Override
+		public void error(String msg, Exception ex, int code) {
+			this.codes.add(Integer.valueOf(code));
+		}
+
+	}
+
+}
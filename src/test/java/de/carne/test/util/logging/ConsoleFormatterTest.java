@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2016-2021 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.util.logging;
+
+import java.io.IOException;
+import java.util.logging.LogRecord;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import de.carne.util.Exceptions;
+import de.carne.util.logging.ConsoleFormatter;
+import de.carne.util.logging.LogLevel;
+
+/**
+ * Test {@linkplain ConsoleFormatter} class.
+ */
+class ConsoleFormatterTest {
+
+	@Test
+	void testFormat() {
+		ConsoleFormatter formatter = new ConsoleFormatter();
+		LogRecord record = new LogRecord(LogLevel.LEVEL_DEBUG, "Debug message {0}");
+
+		record.setLoggerName(getClass().getName());
+		record.setParameters(new Object[] { "parameter" });
+
+		String formatted = formatter.format(record);
+		StringBuilder buffer = new StringBuilder();
+
+		formatter.format(record, buffer);
+
+		Assertions.assertEquals(formatted, buffer.toString());
+		Assertions.assertTrue(formatted.contains("DEBUG  "));
+		Assertions.assertTrue(formatted.endsWith(getClass().getName() + ": Debug message parameter"
+				+ System.lineSeparator()));
+	}
+
+	@Test
+	void testFormatThrown() {
+		ConsoleFormatter formatter = new ConsoleFormatter();
+		LogRecord record = new LogRecord(LogLevel.LEVEL_ERROR, "Error message");
+		IOException thrown = new IOException("Test exception", new IllegalStateException("Test cause"));
+
+		record.setThrown(thrown);
+
+		String formatted = formatter.format(record);
+
+		Assertions.assertTrue(formatted.contains("ERROR  "));
+		Assertions.assertTrue(formatted.contains(Exceptions.getStackTrace(thrown)));
+		Assertions.assertEquals("", formatter.format(null));
+	}
+
+	@Test
+	void testFormatMessageOverride() {
+		ConsoleFormatter formatter = new ConsoleFormatter() {
+
+			@Override
+			public String formatMessage(@Nullable LogRecord record) {
+				return "Overridden message";
+			}
+
+		};
+		LogRecord record = new LogRecord(LogLevel.LEVEL_INFO, "Info message");
+
+		Assertions.assertTrue(formatter.format(record).contains(": Overridden message"));
+	}
+
+}
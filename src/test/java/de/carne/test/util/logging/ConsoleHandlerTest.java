@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2016-2021 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.util.logging;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.util.logging.LogRecord;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+
+import de.carne.util.logging.ConsoleHandler;
+import de.carne.util.logging.LogLevel;
+import de.carne.util.logging.Logs;
+
+/**
+ * Test {@linkplain ConsoleHandler} class.
+ */
+class ConsoleHandlerTest {
+
+	private static final int TEST_RECORD_COUNT = 100;
+
+	@Test
+	void testAsyncConsoleHandler() throws IOException, InterruptedException {
+		Assumptions.assumeTrue(System.console() == null);
+
+		PrintStream systemOut = System.out;
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		try {
+			System.setOut(new PrintStream(out, true, Charset.defaultCharset().name()));
+			Logs.readConfig("logging-console-async.properties");
+
+			ConsoleHandler handler = new ConsoleHandler();
+
+			try {
+				for (int recordIndex = 0; recordIndex < TEST_RECORD_COUNT; recordIndex++) {
+					handler.publish(new LogRecord(LogLevel.LEVEL_DEBUG, "Debug message " + recordIndex));
+				}
+				handler.flush();
+
+				String flushed = out.toString(Charset.defaultCharset().name());
+
+				for (int recordIndex = 0; recordIndex < TEST_RECORD_COUNT; recordIndex++) {
+					Assertions.assertTrue(flushed.contains("Debug message " + recordIndex + System.lineSeparator()));
+				}
+				Assertions.assertTrue(flushed.indexOf("Debug message 0" + System.lineSeparator()) < flushed
+						.indexOf("Debug message " + (TEST_RECORD_COUNT - 1) + System.lineSeparator()));
+
+				// Error records are written without waiting for the flush interval
+				handler.publish(new LogRecord(LogLevel.LEVEL_ERROR, "Error message"));
+
+				long timeout = System.currentTimeMillis() + 5000;
+
+				while (!out.toString(Charset.defaultCharset().name()).contains("Error message")
+						&& System.currentTimeMillis() < timeout) {
+					Thread.sleep(10);
+				}
+				Assertions.assertTrue(out.toString(Charset.defaultCharset().name()).contains("Error message"));
+				handler.publish(new LogRecord(LogLevel.LEVEL_INFO, "Info message"));
+			} finally {
+				handler.close();
+			}
+			Assertions.assertTrue(out.toString(Charset.defaultCharset().name()).contains("Info message"));
+		} finally {
+			System.setOut(systemOut);
+			Logs.readConfig(Logs.CONFIG_DEFAULT);
+		}
+	}
+
+}
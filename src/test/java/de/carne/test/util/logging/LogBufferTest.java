@@ -18,6 +18,22 @@ package de.carne.test.util.logging;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.zip.GZIPInputStream;
+
+import org.eclipse.jdt.annotation.Nullable;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -101,4 +117,340 @@ class LogBufferTest {
 		}
 	}
 
+	@Test
+	void testExport() throws IOException, InterruptedException, ExecutionException {
+		Logs.readConfig(Logs.CONFIG_DEFAULT);
+
+		Log log = new Log();
+		LogBuffer logBuffer = LogBuffer.get(log);
+
+		Assertions.assertNotNull(logBuffer);
+
+		if (logBuffer != null) {
+			Path exportFile = Files.createTempFile(getClass().getName(), ".log");
+			Path gzipExportFile = Files.createTempFile(getClass().getName(), ".log.gz");
+
+			try {
+				LogBuffer.flush(log);
+				logMessages(log, 0, 3);
+				Assertions.assertEquals(3, logBuffer.exportTo(exportFile));
+				logMessages(log, 3, 2);
+				Assertions.assertEquals(2, logBuffer.exportTo(exportFile, LogBuffer.ExportOption.APPEND,
+						LogBuffer.ExportOption.INCREMENTAL));
+				Assertions.assertEquals(0, logBuffer.exportTo(exportFile, LogBuffer.ExportOption.APPEND,
+						LogBuffer.ExportOption.INCREMENTAL));
+				assertExportedMessages(new String(Files.readAllBytes(exportFile), StandardCharsets.UTF_8), 0, 5);
+
+				logMessages(log, 5, 1);
+				Assertions.assertEquals(1,
+						logBuffer.exportToAsync(exportFile, ForkJoinPool.commonPool(),
+								LogBuffer.ExportOption.INCREMENTAL).get().longValue());
+				assertExportedMessages(new String(Files.readAllBytes(exportFile), StandardCharsets.UTF_8), 5, 1);
+
+				Assertions.assertEquals(5, logBuffer.exportTo(gzipExportFile, LogBuffer.ExportOption.GZIP));
+				try (InputStream gzipIn = new GZIPInputStream(Files.newInputStream(gzipExportFile))) {
+					assertExportedMessages(new String(gzipIn.readAllBytes(), StandardCharsets.UTF_8), 1, 5);
+				}
+			} finally {
+				Files.delete(exportFile);
+				Files.delete(gzipExportFile);
+			}
+		}
+	}
+
+	private static void logMessages(Log log, int first, int count) {
+		for (int messageIndex = first; messageIndex < first + count; messageIndex++) {
+			log.warning("Export message #{0}#", messageIndex);
+		}
+	}
+
+	private static void assertExportedMessages(String export, int first, int count) {
+		for (int messageIndex = first; messageIndex < first + count; messageIndex++) {
+			Assertions.assertTrue(export.contains("Export message #" + messageIndex + "#"));
+		}
+		Assertions.assertEquals(count, export.split("Export message #").length - 1);
+	}
+
+	@Test
+	void testConcurrentLogBuffer() throws IOException, InterruptedException {
+		Logs.readConfig(Logs.CONFIG_DEFAULT);
+
+		Log log = new Log();
+		LogBuffer logBuffer = LogBuffer.get(log);
+
+		Assertions.assertNotNull(logBuffer);
+
+		if (logBuffer != null) {
+			AtomicInteger published = new AtomicInteger();
+
+			LogBuffer.flush(log);
+			LogBuffer.addHandler(log, new Handler() {
+
+				@Override
+				public void publish(@Nullable LogRecord record) {
+					published.incrementAndGet();
+				}
+
+				@Override
+				public void flush() {
+					// Nothing to do here
+				}
+
+				@Override
+				public void close() {
+					// Nothing to do here
+				}
+
+			}, true);
+
+			long writtenCount = logBuffer.writtenCount();
+			long overwrittenCount = logBuffer.overwrittenCount();
+			Thread[] threads = new Thread[4];
+
+			for (int threadIndex = 0; threadIndex < threads.length; threadIndex++) {
+				threads[threadIndex] = new Thread(() -> {
+					for (int messageIndex = 0; messageIndex < 1000; messageIndex++) {
+						log.warning("Message {0}", messageIndex);
+					}
+				});
+				threads[threadIndex].start();
+			}
+			for (Thread thread : threads) {
+				thread.join();
+			}
+			Assertions.assertEquals(4000, published.get());
+			Assertions.assertEquals(writtenCount + 4000, logBuffer.writtenCount());
+			// The first 5 records (limit) only overwrite already flushed ones
+			Assertions.assertEquals(overwrittenCount + 4000 - 5, logBuffer.overwrittenCount());
+
+			LogRecordCounter counter = new LogRecordCounter();
+
+			LogBuffer.addHandler(log, counter, true);
+
+			Assertions.assertEquals(5, counter.getPublishCount());
+		}
+	}
+
+	@Test
+	void testSerializedHandlers() throws IOException, InterruptedException {
+		Logs.readConfig(Logs.CONFIG_DEFAULT);
+
+		Log log = new Log();
+		AtomicInteger active = new AtomicInteger();
+		AtomicInteger overlapping = new AtomicInteger();
+		AtomicInteger published = new AtomicInteger();
+		Handler handler = new Handler() {
+
+			@Override
+			public void publish(@Nullable LogRecord record) {
+				if (active.incrementAndGet() > 1) {
+					overlapping.incrementAndGet();
+				}
+				Thread.yield();
+				published.incrementAndGet();
+				active.decrementAndGet();
+			}
+
+			@Override
+			public void flush() {
+				// Nothing to do here
+			}
+
+			@Override
+			public void close() {
+				// Nothing to do here
+			}
+
+		};
+
+		LogBuffer.addHandler(log, handler, false);
+
+		Thread[] threads = new Thread[4];
+
+		for (int threadIndex = 0; threadIndex < threads.length; threadIndex++) {
+			threads[threadIndex] = new Thread(() -> {
+				for (int messageIndex = 0; messageIndex < 1000; messageIndex++) {
+					log.warning("Message {0}", messageIndex);
+				}
+			});
+			threads[threadIndex].start();
+		}
+		while (published.get() < 1000) {
+			Thread.yield();
+		}
+		LogBuffer.removeHandler(log, handler);
+
+		int removedPublished = published.get();
+
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		Assertions.assertEquals(0, overlapping.get());
+		Assertions.assertEquals(removedPublished, published.get());
+	}
+
+	@Test
+	void testAsyncLogBuffer() throws IOException, InterruptedException {
+		Logs.readConfig("logging-async.properties");
+		try {
+			Log log = new Log();
+			LogBuffer logBuffer = LogBuffer.get(log);
+
+			Assertions.assertNotNull(logBuffer);
+
+			CountDownLatch blocked = new CountDownLatch(1);
+			CountDownLatch release = new CountDownLatch(1);
+			AtomicInteger published = new AtomicInteger();
+
+			LogBuffer.addHandler(log, new Handler() {
+
+				@Override
+				public void publish(@Nullable LogRecord record) {
+					blocked.countDown();
+					try {
+						release.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					published.incrementAndGet();
+				}
+
+				@Override
+				public void flush() {
+					// Nothing to do here
+				}
+
+				@Override
+				public void close() {
+					// Nothing to do here
+				}
+
+			}, false);
+
+			// Stall the dispatcher thread and overflow the queue (capacity 4)
+			log.info("Message 0");
+			Assertions.assertTrue(blocked.await(10, TimeUnit.SECONDS));
+			for (int messageIndex = 1; messageIndex < 20; messageIndex++) {
+				log.info("Message {0}", messageIndex);
+			}
+
+			long droppedCount = (logBuffer != null ? logBuffer.droppedCount() : 0);
+
+			Assertions.assertEquals(15, droppedCount);
+			release.countDown();
+			LogBuffer.flush(log);
+			Assertions.assertEquals(20 - droppedCount, published.get());
+		} finally {
+			Logs.readConfig(Logs.CONFIG_DEFAULT);
+		}
+	}
+
+	@Test
+	void testDeadDispatcher() throws IOException, InterruptedException {
+		Logs.readConfig("logging-async-block.properties");
+		try {
+			Log log = new Log();
+			CountDownLatch failed = new CountDownLatch(1);
+			AtomicInteger published = new AtomicInteger();
+
+			LogBuffer.addHandler(log, new Handler() {
+
+				@Override
+				public void publish(@Nullable LogRecord record) {
+					if (failed.getCount() > 0) {
+						failed.countDown();
+						throw new IllegalStateException("Dispatcher failure");
+					}
+					published.incrementAndGet();
+				}
+
+				@Override
+				public void flush() {
+					// Nothing to do here
+				}
+
+				@Override
+				public void close() {
+					// Nothing to do here
+				}
+
+			}, false);
+
+			// Kill the dispatcher thread and overflow the queue (capacity 4); publishing must not block forever
+			log.info("Message 0");
+			Assertions.assertTrue(failed.await(10, TimeUnit.SECONDS));
+			Assertions.assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+				for (int messageIndex = 1; messageIndex < 20; messageIndex++) {
+					log.info("Message {0}", messageIndex);
+				}
+			});
+			Assertions.assertTrue(published.get() >= 15);
+		} finally {
+			Logs.readConfig(Logs.CONFIG_DEFAULT);
+		}
+	}
+
+	@Test
+	void testBatchedDispatch() throws IOException, InterruptedException {
+		Logs.readConfig("logging-async-block.properties");
+		try {
+			Log log = new Log();
+			LogBuffer logBuffer = Objects.requireNonNull(LogBuffer.get(log));
+			CountDownLatch blocked = new CountDownLatch(1);
+			CountDownLatch release = new CountDownLatch(1);
+			AtomicInteger published = new AtomicInteger();
+
+			LogBuffer.addHandler(log, new Handler() {
+
+				@Override
+				public void publish(@Nullable LogRecord record) {
+					blocked.countDown();
+					try {
+						release.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					published.incrementAndGet();
+				}
+
+				@Override
+				public void flush() {
+					// Nothing to do here
+				}
+
+				@Override
+				public void close() {
+					// Nothing to do here
+				}
+
+			}, false);
+
+			// Stall the dispatcher thread while it holds the monitor and queue some more records (capacity 4)
+			log.info("Message 0");
+			Assertions.assertTrue(blocked.await(10, TimeUnit.SECONDS));
+			for (int messageIndex = 1; messageIndex < 4; messageIndex++) {
+				log.info("Message {0}", messageIndex);
+			}
+
+			AtomicInteger publishedOnEntry = new AtomicInteger(-1);
+			Thread contender = new Thread(() -> {
+				synchronized (logBuffer) {
+					publishedOnEntry.set(published.get());
+				}
+			});
+
+			contender.start();
+			while (contender.getState() != Thread.State.BLOCKED) {
+				Thread.sleep(1);
+			}
+			release.countDown();
+			contender.join();
+
+			// The queued records are dispatched within the same monitor hold as the stalled one
+			Assertions.assertEquals(4, publishedOnEntry.get());
+		} finally {
+			Logs.readConfig(Logs.CONFIG_DEFAULT);
+		}
+	}
+
 }
@@ -18,6 +18,7 @@ package de.carne.test.util.logging;
 
 import java.io.Serializable;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.logging.log4j.core.Appender;
 import org.apache.logging.log4j.core.Core;
@@ -39,15 +40,21 @@ import org.eclipse.jdt.annotation.Nullable;
 public class LogEventCounter extends AbstractAppender {
 
 	private static final AtomicInteger appendCounter = new AtomicInteger();
+	private static final AtomicReference<String> lastMessage = new AtomicReference<>("");
 
 	static void resetCounter() {
 		LogEventCounter.appendCounter.set(0);
+		LogEventCounter.lastMessage.set("");
 	}
 
 	static int getCounter() {
 		return LogEventCounter.appendCounter.get();
 	}
 
+	static String getLastMessage() {
+		return LogEventCounter.lastMessage.get();
+	}
+
 	/**
 	 * See {@linkplain AbstractAppender}.
 	 *
@@ -80,6 +87,9 @@ public class LogEventCounter extends AbstractAppender {
 
 	@Override
 	public void append(@Nullable LogEvent event) {
+		if (event != null) {
+			LogEventCounter.lastMessage.set(event.getMessage().getFormattedMessage());
+		}
 		LogEventCounter.appendCounter.incrementAndGet();
 	}
 
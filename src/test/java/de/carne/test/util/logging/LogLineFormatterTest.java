@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2016-2021 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.util.logging;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.logging.LogRecord;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import de.carne.util.Exceptions;
+import de.carne.util.logging.LogLevel;
+import de.carne.util.logging.LogLineFormatter;
+
+/**
+ * Test {@linkplain LogLineFormatter} class.
+ */
+class LogLineFormatterTest {
+
+	private static final long[] TEST_MILLIS = { 0L, 999L, 1000L, 1001L, 1612345678901L, 1612345678999L,
+			1612345679000L, 1612345678900L, -1L, -1001L };
+
+	@Test
+	void testFormatMillis() {
+		LogLineFormatter formatter = new LogLineFormatter();
+		LogRecord record = new LogRecord(LogLevel.LEVEL_INFO, "Info message");
+
+		for (long millis : TEST_MILLIS) {
+			record.setMillis(millis);
+
+			String expected = LogLineFormatter.DATE_TIME_FORMAT
+					.format(LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault()));
+
+			Assertions.assertEquals(expected, formatter.formatMillis(record));
+			Assertions.assertTrue(formatter.format(record).startsWith(expected));
+		}
+	}
+
+	@Test
+	void testFormatBuffer() {
+		LogLineFormatter formatter = new LogLineFormatter();
+		LogRecord record = new LogRecord(LogLevel.LEVEL_WARNING, "Warning message {0}");
+		IOException thrown = new IOException("Test exception");
+
+		record.setLoggerName(getClass().getName());
+		record.setParameters(new Object[] { "parameter" });
+		record.setThrown(thrown);
+
+		String formatted = formatter.format(record);
+		StringBuilder buffer = new StringBuilder("prefix");
+
+		formatter.format(record, buffer);
+
+		Assertions.assertEquals("prefix" + formatted, buffer.toString());
+		Assertions.assertTrue(formatted
+				.contains(" " + record.getLevel() + " " + getClass().getName() + ": Warning message parameter"));
+		Assertions.assertTrue(formatted.endsWith(System.lineSeparator() + Exceptions.getStackTrace(thrown)));
+	}
+
+	@Test
+	void testFormatMessageOverride() {
+		LogLineFormatter formatter = new LogLineFormatter() {
+
+			@Override
+			public String formatMessage(@Nullable LogRecord record) {
+				return "Overridden message";
+			}
+
+		};
+		LogRecord record = new LogRecord(LogLevel.LEVEL_INFO, "Info message");
+
+		Assertions.assertTrue(formatter.format(record).contains(": Overridden message"));
+	}
+
+}
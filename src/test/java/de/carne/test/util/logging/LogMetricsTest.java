@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2018-2020 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.util.logging;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import de.carne.util.logging.ConsoleHandler;
+import de.carne.util.logging.Log;
+import de.carne.util.logging.LogBuffer;
+import de.carne.util.logging.LogMetrics;
+import de.carne.util.logging.Logs;
+
+/**
+ * Test {@linkplain LogMetrics} class.
+ */
+class LogMetricsTest {
+
+	@AfterAll
+	static void disableMetrics() {
+		LogMetrics.setEnabled(false);
+	}
+
+	@Test
+	void testSnapshot() throws IOException {
+		Logs.readConfig("logging-metrics.properties");
+
+		Assertions.assertTrue(LogMetrics.isEnabled());
+
+		Log log = new Log();
+
+		LogMetrics.reset();
+		LoggingTestHelper.logTestMessages(log);
+
+		LogMetrics.Snapshot snapshot = LogMetrics.snapshot();
+		Map<String, Long> levelCounts = snapshot.getLevelCounts();
+
+		Assertions.assertEquals(0, levelCounts.get("LEVEL_TRACE"));
+		Assertions.assertEquals(0, levelCounts.get("LEVEL_DEBUG"));
+		Assertions.assertEquals(2, levelCounts.get("LEVEL_INFO"));
+		Assertions.assertEquals(2, levelCounts.get("LEVEL_WARNING"));
+		Assertions.assertEquals(2, levelCounts.get("LEVEL_ERROR"));
+		Assertions.assertEquals(2, levelCounts.get("LEVEL_NOTICE"));
+		Assertions.assertEquals(8, snapshot.getLoggerCounts().get(getClass().getName()));
+		assertHandlerSnapshot(snapshot, ConsoleHandler.class.getName(), 8);
+		assertHandlerSnapshot(snapshot, LogBuffer.class.getName(), 8);
+
+		LogMetrics.setEnabled(false);
+		LoggingTestHelper.logTestMessages(log);
+
+		Assertions.assertEquals(8, LogMetrics.snapshot().getLoggerCounts().get(getClass().getName()));
+		assertHandlerSnapshot(LogMetrics.snapshot(), LogBuffer.class.getName(), 8);
+
+		LogMetrics.setEnabled(true);
+		LogMetrics.reset();
+
+		Assertions.assertNull(LogMetrics.snapshot().getLoggerCounts().get(getClass().getName()));
+	}
+
+	private static void assertHandlerSnapshot(LogMetrics.Snapshot snapshot, String name, long publishedCount) {
+		LogMetrics.HandlerSnapshot handler = snapshot.getHandlers().stream()
+				.filter(handlerSnapshot -> handlerSnapshot.getName().equals(name)).findFirst().orElseThrow();
+
+		Assertions.assertEquals(publishedCount, handler.getPublishedCount());
+		Assertions.assertEquals(0, handler.getDroppedCount());
+		Assertions.assertTrue(handler.getLatencyMean() > 0.0);
+		Assertions.assertTrue(handler.getLatency50() <= handler.getLatency90());
+		Assertions.assertTrue(handler.getLatency90() <= handler.getLatency99());
+		Assertions.assertTrue(handler.getLatency99() <= handler.getLatency999());
+		Assertions.assertTrue(handler.getLatency999() <= handler.getLatencyMax());
+		Assertions.assertTrue(handler.getLatencyMax() > 0);
+	}
+
+	@Test
+	void testMXBean() throws IOException, JMException {
+		Logs.readConfig("logging-metrics.properties");
+
+		Log log = new Log();
+
+		LogMetrics.reset();
+		LoggingTestHelper.logTestMessages(log);
+
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName objectName = new ObjectName(LogMetrics.OBJECT_NAME);
+
+		Assertions.assertEquals(Boolean.TRUE, server.getAttribute(objectName, "Enabled"));
+
+		TabularData levelCounts = (TabularData) server.getAttribute(objectName, "LevelCounts");
+
+		Assertions.assertEquals(2L,
+				Objects.requireNonNull(levelCounts.get(new Object[] { "LEVEL_WARNING" })).get("value"));
+
+		TabularData loggerCounts = (TabularData) server.getAttribute(objectName, "LoggerCounts");
+
+		Assertions.assertEquals(8L,
+				Objects.requireNonNull(loggerCounts.get(new Object[] { getClass().getName() })).get("value"));
+
+		CompositeData[] handlers = (CompositeData[]) server.getAttribute(objectName, "Handlers");
+
+		Assertions.assertTrue(handlers.length >= 2);
+		Assertions.assertTrue(server.getAttribute(objectName, "SuppressedCount") instanceof Long);
+
+		server.invoke(objectName, "reset", new Object[0], new String[0]);
+
+		Assertions.assertTrue(LogMetrics.snapshot().getLoggerCounts().isEmpty());
+	}
+
+}
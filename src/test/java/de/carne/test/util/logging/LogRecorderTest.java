@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2018-2020 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.util.logging;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import de.carne.util.logging.LogLevel;
+import de.carne.util.logging.LogRecorder;
+import de.carne.util.logging.Logs;
+
+/**
+ * Test {@linkplain LogRecorder} class.
+ */
+class LogRecorderTest {
+
+	private static final int RECORD_COUNT = 100000;
+
+	@Test
+	void testRecordSelection() throws IOException, InterruptedException {
+		Logs.readConfig("logging-trace.properties");
+
+		Logger logger = Logger.getLogger(getClass().getName());
+		LogRecorder recorder = new LogRecorder(LogLevel.LEVEL_DEBUG);
+
+		recorder.addLogger(logger);
+		recorder.includeRecord(record -> record.getMessage().startsWith("Include"));
+		recorder.includeRecord(record -> record.getMessage().startsWith("Also"));
+		recorder.excludeRecord(record -> record.getMessage().endsWith("excluded"));
+		try (LogRecorder.Session session = recorder.start(true)) {
+			logger.log(LogLevel.LEVEL_TRACE, "Include message (below level)");
+			logger.log(LogLevel.LEVEL_DEBUG, "Include message");
+			logger.log(LogLevel.LEVEL_DEBUG, "Include message excluded");
+			logger.log(LogLevel.LEVEL_DEBUG, "Skipped message");
+			logger.log(LogLevel.LEVEL_INFO, "Also message");
+
+			Thread thread = new Thread(() -> logger.log(LogLevel.LEVEL_INFO, "Include message (other thread)"));
+
+			thread.start();
+			thread.join();
+			session.excludeThread(Thread.currentThread()::equals);
+			logger.log(LogLevel.LEVEL_INFO, "Include message (thread excluded)");
+
+			Object[] messages = session.getRecords().stream().map(LogRecord::getMessage).toArray();
+
+			Assertions.assertArrayEquals(new Object[] { "Include message", "Also message" }, messages);
+		}
+	}
+
+	@Test
+	void testIndexedQueries() throws IOException {
+		Logs.readConfig("logging-trace.properties");
+
+		Logger logger1 = Logger.getLogger(getClass().getName() + ".logger1");
+		Logger logger2 = Logger.getLogger(getClass().getName() + ".logger2");
+		LogRecorder recorder = new LogRecorder(LogLevel.LEVEL_TRACE);
+
+		recorder.addLogger(logger1).addLogger(logger2);
+		logger1.setUseParentHandlers(false);
+		logger2.setUseParentHandlers(false);
+		try (LogRecorder.Session session = recorder.start(true)) {
+			for (int recordIndex = 0; recordIndex < RECORD_COUNT; recordIndex++) {
+				Logger logger = (recordIndex % 2 == 0 ? logger1 : logger2);
+
+				logger.log((recordIndex % 100 == 0 ? LogLevel.LEVEL_WARNING : LogLevel.LEVEL_DEBUG),
+						Integer.toString(recordIndex));
+			}
+
+			Assertions.assertEquals(RECORD_COUNT, session.getRecords().size());
+			Assertions.assertEquals(RECORD_COUNT / 100, session.getRecords(LogLevel.LEVEL_WARNING).size());
+			Assertions.assertEquals(RECORD_COUNT / 2,
+					session.getRecords(logger2.getName(), LogLevel.LEVEL_TRACE).size());
+			Assertions.assertEquals(0, session.getRecords(logger2.getName(), LogLevel.LEVEL_WARNING).size());
+			Assertions.assertEquals(0, session.getRecords("unknown", LogLevel.LEVEL_TRACE).size());
+
+			Collection<LogRecord> warnings = session.getRecords(logger1.getName(), LogLevel.LEVEL_WARNING);
+			int expectedRecordIndex = 0;
+
+			Assertions.assertEquals(RECORD_COUNT / 100, warnings.size());
+			for (LogRecord warning : warnings) {
+				Assertions.assertEquals(Integer.toString(expectedRecordIndex), warning.getMessage());
+				expectedRecordIndex += 100;
+			}
+		} finally {
+			logger1.setUseParentHandlers(true);
+			logger2.setUseParentHandlers(true);
+		}
+	}
+
+	@Test
+	void testRecordLimit() throws IOException {
+		Logs.readConfig("logging-trace.properties");
+
+		Logger logger = Logger.getLogger(getClass().getName() + ".limit");
+		LogRecorder recorder = new LogRecorder(LogLevel.LEVEL_TRACE);
+
+		recorder.addLogger(logger).limitRecords(1000);
+		logger.setUseParentHandlers(false);
+		try (LogRecorder.Session session = recorder.start(true)) {
+			for (int recordIndex = 0; recordIndex < RECORD_COUNT; recordIndex++) {
+				logger.log((recordIndex % 10 == 0 ? LogLevel.LEVEL_INFO : LogLevel.LEVEL_DEBUG),
+						Integer.toString(recordIndex));
+			}
+
+			Collection<LogRecord> records = session.getRecords();
+			int recordIndex = RECORD_COUNT - records.size();
+
+			Assertions.assertTrue(records.size() >= 1000);
+			Assertions.assertTrue(records.size() <= 2048);
+			Assertions.assertEquals(RECORD_COUNT - records.size(), session.getDiscardedCount());
+			for (LogRecord record : records) {
+				Assertions.assertEquals(Integer.toString(recordIndex), record.getMessage());
+				recordIndex++;
+			}
+
+			Collection<LogRecord> infos = session.getRecords(LogLevel.LEVEL_INFO);
+
+			Assertions.assertEquals(records.stream().filter(record -> record.getLevel() == LogLevel.LEVEL_INFO).count(),
+					infos.size());
+			Assertions.assertTrue(infos.stream().allMatch(record -> record.getLevel() == LogLevel.LEVEL_INFO));
+		} finally {
+			logger.setUseParentHandlers(true);
+		}
+	}
+
+	@Test
+	void testMinimalRecordLimit() throws IOException {
+		Logs.readConfig("logging-trace.properties");
+
+		Logger logger = Logger.getLogger(getClass().getName() + ".minimal");
+
+		logger.setUseParentHandlers(false);
+		try {
+			for (int limit = 0; limit <= 1; limit++) {
+				LogRecorder recorder = new LogRecorder(LogLevel.LEVEL_TRACE);
+
+				recorder.addLogger(logger).limitRecords(limit);
+				try (LogRecorder.Session session = recorder.start(false)) {
+					for (int recordIndex = 0; recordIndex < 10; recordIndex++) {
+						logger.log(LogLevel.LEVEL_INFO, Integer.toString(recordIndex));
+					}
+
+					Collection<LogRecord> records = session.getRecords();
+
+					Assertions.assertTrue(records.size() >= 1);
+					Assertions.assertTrue(records.size() <= 2);
+					Assertions.assertEquals("9", records.stream().reduce((first, second) -> second).get().getMessage());
+					Assertions.assertEquals(10 - records.size(), session.getDiscardedCount());
+				}
+			}
+		} finally {
+			logger.setUseParentHandlers(true);
+		}
+	}
+
+}
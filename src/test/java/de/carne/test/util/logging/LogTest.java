@@ -101,4 +101,76 @@ class LogTest {
 		log.callee(LogLevel.LEVEL_NOTICE);
 	}
 
+	@Test
+	void testLogMessageFormat() throws IOException {
+		Logs.readConfig("logging-debug.properties");
+
+		Log log = new Log();
+		LogRecorder recorder = new LogRecorder(LogLevel.LEVEL_TRACE);
+
+		recorder.includeRecord(record -> true);
+		recorder.addLog(log);
+		try (LogRecorder.Session session = recorder.start(true)) {
+			session.includeThread(thread -> true);
+			log.debug("Plain message");
+			log.debug("Quoted ''{0}'' message");
+			log.debug("Single {0} message", 1);
+			log.debug("Array {0} {1} message", new Object[] { "a", "b" });
+			log.debug("Double {0} {1} message", "a", "b");
+			log.debug("Varargs {0} {1} {2} message", "a", "b", "c");
+			log.debug("Double {0} {1} message", "c", "d");
+			log.trace("Disabled {0} message", "a");
+
+			Object[] messages = session.getRecords().stream().map(Logs::formatMessage).toArray();
+
+			Assertions.assertArrayEquals(new Object[] { "Plain message", "Quoted '{0}' message", "Single 1 message",
+					"Array a b message", "Double a b message", "Varargs a b c message", "Double c d message" },
+					messages);
+
+			// Formatting is deferred; records carry the pattern and the parameters
+			LogRecord single = session.getRecords().stream().skip(2).findFirst().get();
+
+			Assertions.assertEquals("Single {0} message", single.getMessage());
+			Assertions.assertArrayEquals(new Object[] { Integer.valueOf(1) }, single.getParameters());
+		}
+	}
+
+	@Test
+	void testLogLevelCache() throws IOException {
+		Logs.readConfig("logging-debug.properties");
+
+		Log log = new Log();
+
+		Assertions.assertEquals(LogLevel.LEVEL_DEBUG, log.level());
+		Assertions.assertFalse(log.isTraceLoggable());
+
+		log.setLevel(LogLevel.LEVEL_TRACE);
+
+		Assertions.assertEquals(LogLevel.LEVEL_TRACE, log.level());
+		Assertions.assertTrue(log.isTraceLoggable());
+
+		// Direct level changes on the logger are detected without invalidation
+		log.logger().setLevel(LogLevel.LEVEL_ERROR);
+
+		Assertions.assertEquals(LogLevel.LEVEL_ERROR, log.level());
+		Assertions.assertFalse(log.isWarningLoggable());
+
+		log.setLevel(null);
+		Logs.applyLevelConfig(getClass().getPackageName() + "=LEVEL_NOTICE");
+
+		Assertions.assertEquals(LogLevel.LEVEL_NOTICE, log.level());
+		Assertions.assertTrue(log.isNoticeLoggable());
+		Assertions.assertFalse(log.isErrorLoggable());
+
+		log.setLevel(LogLevel.OFF);
+
+		Assertions.assertFalse(log.isNoticeLoggable());
+		Assertions.assertFalse(log.isLoggable(LogLevel.OFF));
+
+		Logs.readConfig("logging-debug.properties");
+
+		Assertions.assertEquals(LogLevel.LEVEL_DEBUG, log.level());
+		Assertions.assertTrue(log.isDebugLoggable());
+	}
+
 }
@@ -18,12 +18,18 @@ package de.carne.test.util.logging;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.Enumeration;
 import java.util.Objects;
+import java.util.ResourceBundle;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.LogManager;
+import java.util.logging.LogRecord;
 import java.util.logging.Logger;
 import java.util.logging.SimpleFormatter;
 import java.util.logging.XMLFormatter;
 
+import org.eclipse.jdt.annotation.Nullable;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -33,6 +39,7 @@ import de.carne.util.logging.LocalizedFilter;
 import de.carne.util.logging.Log;
 import de.carne.util.logging.LogBuffer;
 import de.carne.util.logging.LogLevel;
+import de.carne.util.logging.LogRecorder;
 import de.carne.util.logging.Logs;
 
 /**
@@ -123,6 +130,13 @@ class LogsTest {
 		Assertions.assertEquals(LogLevel.LEVEL_DEBUG,
 				Logs.getLevelProperty(manager, propertyBase + ".invalid", LogLevel.LEVEL_DEBUG));
 
+		Assertions.assertEquals(LogBuffer.OverflowPolicy.DROP_OLDEST,
+				Logs.getEnumProperty(manager, propertyBase + ".enumDropOldest", LogBuffer.OverflowPolicy.BLOCK));
+		Assertions.assertEquals(LogBuffer.OverflowPolicy.BLOCK,
+				Logs.getEnumProperty(manager, propertyBase + ".enumUnknown", LogBuffer.OverflowPolicy.BLOCK));
+		Assertions.assertEquals(LogBuffer.OverflowPolicy.BLOCK,
+				Logs.getEnumProperty(manager, propertyBase + ".invalid", LogBuffer.OverflowPolicy.BLOCK));
+
 		Assertions
 				.assertTrue(Logs.getFilterProperty(manager, propertyBase + ".filter", null) instanceof LocalizedFilter);
 		Assertions.assertNull(Logs.getFilterProperty(manager, propertyBase + ".invalid", null));
@@ -138,4 +152,104 @@ class LogsTest {
 		Assertions.assertDoesNotThrow(() -> Logs.flush());
 	}
 
+	@Test
+	void testSuppressedPublishCount() throws IOException, InterruptedException {
+		Logs.readConfig("logging-trace.properties");
+
+		Log log = new Log();
+		LogRecorder recorder = new LogRecorder(LogLevel.LEVEL_TRACE);
+
+		recorder.includeRecord(record -> {
+			log.trace("Recursive message");
+			return true;
+		});
+		recorder.addLog(log);
+
+		long suppressedCount = Logs.suppressedPublishCount();
+
+		try (LogRecorder.Session session = recorder.start(true)) {
+			Thread thread = new Thread(() -> log.info("Excluded message"));
+
+			thread.start();
+			thread.join();
+			log.info("Included message");
+
+			Assertions.assertEquals(1, session.getRecords().size());
+		}
+		Assertions.assertTrue(Logs.suppressedPublishCount() > suppressedCount);
+	}
+
+	@Test
+	void testFormatMessage() {
+		CountingBundle bundle = new CountingBundle();
+		SimpleFormatter formatter = new SimpleFormatter();
+
+		assertFormatMessage(formatter, newRecord(null, "Plain message"));
+		assertFormatMessage(formatter, newRecord(null, "Message {0}", "parameter"));
+		assertFormatMessage(formatter, newRecord(null, "Message '{0}' {1}", "parameter"));
+		assertFormatMessage(formatter, newRecord(null, "Message {x}", "parameter"));
+		assertFormatMessage(formatter, newRecord(null, "Invalid {0", "parameter"));
+		assertFormatMessage(formatter, newRecord(null, "Message {0}} {1} {2}", "parameter", null));
+		assertFormatMessage(formatter, newRecord(null, "Message {0} {1}", Integer.valueOf(12345), "parameter"));
+		assertFormatMessage(formatter, newRecord(null, "{1}{0}", "parameter1", "parameter2"));
+		assertFormatMessage(formatter, newRecord(bundle, "key"));
+		assertFormatMessage(formatter, newRecord(bundle, "key", "parameter"));
+		assertFormatMessage(formatter, newRecord(bundle, "unknown {0}", "parameter"));
+	}
+
+	@Test
+	void testFormatMessageCache() throws IOException {
+		CountingBundle bundle = new CountingBundle();
+		LogRecord record = newRecord(bundle, "key", "parameter");
+
+		Logs.readConfig(Logs.CONFIG_DEFAULT);
+
+		Assertions.assertEquals("Localized parameter", Logs.formatMessage(record));
+		Assertions.assertEquals("Localized parameter", Logs.formatMessage(record));
+		Assertions.assertEquals("Localized {0}", Logs.localizeMessage(record));
+		Assertions.assertEquals(1, bundle.lookupCount());
+
+		Logs.readConfig(Logs.CONFIG_DEFAULT);
+
+		Assertions.assertEquals("Localized parameter", Logs.formatMessage(record));
+		Assertions.assertEquals(2, bundle.lookupCount());
+	}
+
+	private static LogRecord newRecord(@Nullable ResourceBundle bundle, String message, Object... parameters) {
+		LogRecord record = new LogRecord(LogLevel.LEVEL_INFO, message);
+
+		record.setResourceBundle(bundle);
+		record.setParameters(parameters);
+		return record;
+	}
+
+	private static void assertFormatMessage(SimpleFormatter formatter, LogRecord record) {
+		Assertions.assertEquals(formatter.formatMessage(record), Logs.formatMessage(record));
+	}
+
+	private static class CountingBundle extends ResourceBundle {
+
+		private final AtomicInteger lookupCount = new AtomicInteger();
+
+		CountingBundle() {
+			// Just to make this class accessible to the outer class
+		}
+
+		int lookupCount() {
+			return this.lookupCount.get();
+		}
+
+		@Override
+		protected @Nullable Object handleGetObject(@Nullable String key) {
+			this.lookupCount.incrementAndGet();
+			return ("key".equals(key) ? "Localized {0}" : null);
+		}
+
+		@Override
+		public Enumeration<String> getKeys() {
+			return Collections.enumeration(Collections.singleton("key"));
+		}
+
+	}
+
 }
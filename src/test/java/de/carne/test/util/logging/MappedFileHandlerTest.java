@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2016-2021 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.util.logging;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Formatter;
+import java.util.logging.LogRecord;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.carne.util.logging.LogLevel;
+import de.carne.util.logging.Logs;
+import de.carne.util.logging.MappedFileHandler;
+
+/**
+ * Test {@linkplain MappedFileHandler} class.
+ */
+class MappedFileHandlerTest {
+
+	private static final int TEST_RECORD_COUNT = 200;
+	private static final Pattern MESSAGE_PATTERN = Pattern.compile("Info message (\\d+)");
+
+	@BeforeEach
+	void readConfig() throws IOException {
+		Logs.readConfig("logging-mapped.properties");
+		deleteLogFiles();
+	}
+
+	@AfterEach
+	void resetConfig() throws IOException {
+		deleteLogFiles();
+		Logs.readConfig(Logs.CONFIG_DEFAULT);
+	}
+
+	@Test
+	void testRollingAndReopen() throws IOException {
+		MappedFileHandler handler = new MappedFileHandler();
+
+		try {
+			for (int recordIndex = 0; recordIndex < TEST_RECORD_COUNT; recordIndex++) {
+				handler.publish(new LogRecord(LogLevel.LEVEL_INFO, "Info message " + recordIndex));
+			}
+		} finally {
+			handler.close();
+		}
+
+		Path file = handler.file();
+		List<Path> rolledFiles = listLogFiles(file).stream().filter(path -> !path.equals(file))
+				.collect(Collectors.toList());
+
+		Assertions.assertEquals(2, rolledFiles.size());
+		Assertions.assertTrue(rolledFiles.stream().allMatch(path -> path.toString().endsWith(".gz")));
+
+		String rolled0 = readCompressed(rolledFiles.get(0));
+		String rolled1 = readCompressed(rolledFiles.get(1));
+
+		// Records are not split across rolled files
+		Assertions.assertTrue(rolled0.endsWith(System.lineSeparator()));
+		Assertions.assertTrue(rolled1.endsWith(System.lineSeparator()));
+
+		String rolled = rolled0 + rolled1;
+		String current = readFile(file);
+
+		Assertions.assertFalse(current.contains("\0"));
+		Assertions
+				.assertTrue((rolled + current).endsWith("Info message " + (TEST_RECORD_COUNT - 1) + System.lineSeparator()));
+
+		int[] messageIndexes = messageIndexes(rolled + current);
+
+		Assertions.assertArrayEquals(IntStream.range(messageIndexes[0], TEST_RECORD_COUNT).toArray(), messageIndexes);
+
+		MappedFileHandler reopenedHandler = new MappedFileHandler();
+
+		try {
+			reopenedHandler.publish(new LogRecord(LogLevel.LEVEL_INFO, "Reopened message"));
+		} finally {
+			reopenedHandler.close();
+		}
+		Assertions.assertEquals(current, readFile(file).substring(0, current.length()));
+		Assertions.assertTrue(readFile(file).endsWith("Reopened message" + System.lineSeparator()));
+	}
+
+	@Test
+	void testOversizedRecord() throws IOException {
+		MappedFileHandler handler = new MappedFileHandler();
+		String oversizedMessage = "Oversized message " + "x".repeat(1500);
+
+		try {
+			handler.publish(new LogRecord(LogLevel.LEVEL_INFO, "Info message 0"));
+			handler.publish(new LogRecord(LogLevel.LEVEL_INFO, oversizedMessage));
+			handler.publish(new LogRecord(LogLevel.LEVEL_INFO, "Info message 1"));
+		} finally {
+			handler.close();
+		}
+
+		Path file = handler.file();
+		List<Path> rolledFiles = listLogFiles(file).stream().filter(path -> !path.equals(file))
+				.collect(Collectors.toList());
+
+		Assertions.assertEquals(2, rolledFiles.size());
+
+		String rolled0 = readCompressed(rolledFiles.get(0));
+		String rolled1 = readCompressed(rolledFiles.get(1));
+		String current = readFile(file);
+
+		// The segment is rolled before the oversized record, which is then continued in the next segment
+		Assertions.assertTrue(rolled0.endsWith("Info message 0" + System.lineSeparator()));
+		Assertions.assertFalse(rolled0.contains("Oversized"));
+		Assertions.assertEquals(1024, rolled1.getBytes(StandardCharsets.UTF_8).length);
+		Assertions.assertTrue((rolled1 + current).contains(oversizedMessage + System.lineSeparator()));
+		Assertions.assertTrue(current.endsWith("Info message 1" + System.lineSeparator()));
+	}
+
+	@Test
+	void testReentrantPublish() throws IOException {
+		MappedFileHandler handler = new MappedFileHandler();
+
+		handler.setFormatter(new Formatter() {
+
+			@Override
+			public String format(@Nullable LogRecord record) {
+				// Simulate a formatter issuing a log record itself
+				handler.publish(new LogRecord(LogLevel.LEVEL_INFO, "Re-entrant message"));
+				return (record != null ? record.getMessage() : "") + System.lineSeparator();
+			}
+
+		});
+		try {
+			handler.publish(new LogRecord(LogLevel.LEVEL_INFO, "Outer message"));
+		} finally {
+			handler.close();
+		}
+		Assertions.assertEquals("Outer message" + System.lineSeparator(), readFile(handler.file()));
+	}
+
+	private static int[] messageIndexes(String log) {
+		Matcher matcher = MESSAGE_PATTERN.matcher(log);
+		List<Integer> indexes = new ArrayList<>();
+
+		while (matcher.find()) {
+			indexes.add(Integer.valueOf(matcher.group(1)));
+		}
+		return indexes.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	private static String readFile(Path file) throws IOException {
+		return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+	}
+
+	private static String readCompressed(Path file) throws IOException {
+		try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+			return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+
+	private static List<Path> listLogFiles(Path file) throws IOException {
+		Path directory = file.toAbsolutePath().getParent();
+		String fileName = file.getFileName().toString();
+
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.filter(path -> path.getFileName().toString().startsWith(fileName)).sorted()
+					.collect(Collectors.toList());
+		}
+	}
+
+	private static void deleteLogFiles() throws IOException {
+		for (Path file : listLogFiles(new MappedFileHandler().file())) {
+			Files.delete(file);
+		}
+	}
+
+}
@@ -17,15 +17,22 @@
 package de.carne.test.util.logging;
 
 import java.io.IOException;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import java.util.logging.SimpleFormatter;
+
+import org.eclipse.jdt.annotation.Nullable;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import de.carne.util.logging.Log;
+import de.carne.util.logging.LogLevel;
 import de.carne.util.logging.Logs;
+import de.carne.util.logging.ProxyHandler;
 
 /**
- * Test {@linkplain de.carne.util.logging.ProxyHandler} class.
+ * Test {@linkplain ProxyHandler} class.
  */
 class ProxyHandlerTest {
 
@@ -44,6 +51,40 @@ class ProxyHandlerTest {
 		testProxyConfig("logging-autoproxy.properties");
 	}
 
+	@Test
+	void testLog4j2ProxyAsync() throws IOException {
+		testProxyConfig("logging-log4j2proxy-async.properties");
+	}
+
+	@Test
+	void testSlf4jProxyAsync() throws IOException {
+		testProxyConfig("logging-slf4jproxy-async.properties");
+	}
+
+	@Test
+	void testCloseWhilePublishing() throws IOException {
+		Logs.readConfig("logging-autoproxy.properties");
+
+		ProxyHandler handler = new ProxyHandler();
+
+		handler.setFormatter(new SimpleFormatter() {
+
+			@Override
+			public synchronized String format(@Nullable LogRecord record) {
+				// Closing releases the publish lock's thread state while the lock is still held
+				handler.close();
+				return super.format(record);
+			}
+
+		});
+		LogEventCounter.resetCounter();
+		handler.publish(new LogRecord(LogLevel.LEVEL_WARNING, "Closing message"));
+		handler.setFormatter(new SimpleFormatter());
+		handler.publish(new LogRecord(LogLevel.LEVEL_WARNING, "Warning message"));
+		Assertions.assertEquals(2, LogEventCounter.getCounter());
+		handler.close();
+	}
+
 	private void testProxyConfig(String config) throws IOException {
 		Logs.readConfig(config);
 
@@ -51,7 +92,24 @@ class ProxyHandlerTest {
 
 		LogEventCounter.resetCounter();
 		LoggingTestHelper.logTestMessages(log);
+		Logs.flush();
 		Assertions.assertEquals(10, LogEventCounter.getCounter());
+		Assertions.assertEquals("Notice message (with exception)", LogEventCounter.getLastMessage());
+
+		Logger logger = log.logger();
+
+		logger.log(LogLevel.LEVEL_WARNING, "Warning message {0} ''{1}''", new Object[] { "a", "b" });
+		Logs.flush();
+		Assertions.assertEquals(11, LogEventCounter.getCounter());
+		Assertions.assertEquals("Warning message a 'b'", LogEventCounter.getLastMessage());
+		// Patterns without any parameter reference are not subject to formatting
+		logger.log(LogLevel.LEVEL_WARNING, "Warning message {a} 'b'", new Object[] { "c" });
+		Logs.flush();
+		Assertions.assertEquals(12, LogEventCounter.getCounter());
+		Assertions.assertEquals("Warning message {a} 'b'", LogEventCounter.getLastMessage());
+		logger.log(LogLevel.LEVEL_TRACE, "Trace message {0}", "a");
+		Logs.flush();
+		Assertions.assertEquals(12, LogEventCounter.getCounter());
 	}
 
 }
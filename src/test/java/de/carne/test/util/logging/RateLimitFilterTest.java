@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2018-2020 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.util.logging;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Filter;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import de.carne.util.logging.Log;
+import de.carne.util.logging.LogBuffer;
+import de.carne.util.logging.LogLevel;
+import de.carne.util.logging.Logs;
+import de.carne.util.logging.RateLimitFilter;
+
+/**
+ * Test {@linkplain RateLimitFilter} class.
+ */
+class RateLimitFilterTest {
+
+	private static final int RECORD_COUNT = 100;
+
+	@Test
+	void testRateLimitFilter() throws IOException {
+		Logs.readConfig("logging-ratelimit.properties");
+
+		Log log = new Log();
+		LogBuffer logBuffer = LogBuffer.get(log);
+
+		Assertions.assertNotNull(logBuffer);
+
+		Filter filter = logBuffer.getFilter();
+
+		Assertions.assertTrue(filter instanceof RateLimitFilter);
+
+		RecordCollector collector = new RecordCollector();
+
+		LogBuffer.addHandler(log, collector, false);
+		try {
+			for (int recordIndex = 0; recordIndex < RECORD_COUNT; recordIndex++) {
+				log.warning("Repeated message");
+			}
+
+			int acceptedCount = collector.records().size();
+
+			// Burst of 5 plus at most one record for any refill during the loop
+			Assertions.assertTrue(5 <= acceptedCount && acceptedCount <= 6);
+
+			log.warning("Other message");
+
+			Assertions.assertEquals(acceptedCount + 1, collector.records().size());
+			Assertions.assertEquals("Other message", collector.records().get(acceptedCount).getMessage());
+
+			((RateLimitFilter) filter).emitSummaries();
+
+			Assertions.assertEquals(acceptedCount + 2, collector.records().size());
+
+			LogRecord summary = collector.records().get(acceptedCount + 1);
+
+			Assertions.assertEquals(RateLimitFilter.SUMMARY_MESSAGE, summary.getMessage());
+			Assertions.assertEquals(log.logger().getName(), summary.getLoggerName());
+			Assertions.assertArrayEquals(new Object[] { Long.valueOf(RECORD_COUNT - acceptedCount), "Repeated message" },
+					summary.getParameters());
+
+			// Nothing suppressed since the last summary
+			((RateLimitFilter) filter).emitSummaries();
+
+			Assertions.assertEquals(acceptedCount + 2, collector.records().size());
+		} finally {
+			LogBuffer.removeHandler(log, collector);
+		}
+	}
+
+	@Test
+	void testParameterizedMessages() throws IOException {
+		Logs.readConfig("logging-ratelimit.properties");
+
+		Log log = new Log();
+		LogBuffer logBuffer = LogBuffer.get(log);
+		Filter filter = logBuffer.getFilter();
+
+		Assertions.assertTrue(filter instanceof RateLimitFilter);
+
+		RecordCollector collector = new RecordCollector();
+
+		LogBuffer.addHandler(log, collector, false);
+		try {
+			for (int recordIndex = 0; recordIndex < RECORD_COUNT; recordIndex++) {
+				log.warning("Failed {0}", recordIndex);
+			}
+
+			int acceptedCount = collector.records().size();
+
+			// Records differing in their parameters only are limited like identical ones
+			Assertions.assertTrue(5 <= acceptedCount && acceptedCount <= 6);
+
+			((RateLimitFilter) filter).emitSummaries();
+
+			LogRecord summary = collector.records().get(acceptedCount);
+
+			Assertions.assertArrayEquals(new Object[] { Long.valueOf(RECORD_COUNT - acceptedCount), "Failed {0}" },
+					summary.getParameters());
+		} finally {
+			LogBuffer.removeHandler(log, collector);
+		}
+	}
+
+	@Test
+	void testIdleSiteEviction() throws IOException, InterruptedException {
+		Logs.readConfig("logging-ratelimit-sites.properties");
+
+		RateLimitFilter filter = new RateLimitFilter();
+
+		// Every tracked site accepts its first record and limits the following ones
+		for (int siteIndex = 0; siteIndex < 4; siteIndex++) {
+			Assertions.assertTrue(filter.isLoggable(newRecord("Site " + siteIndex)));
+			Assertions.assertFalse(filter.isLoggable(newRecord("Site " + siteIndex)));
+		}
+
+		// Site limit reached; additional sites are not limited
+		Assertions.assertTrue(filter.isLoggable(newRecord("Additional site")));
+		Assertions.assertTrue(filter.isLoggable(newRecord("Additional site")));
+
+		// Even without summaries the idle sites are evicted and the additional site is limited eventually
+		long deadline = System.currentTimeMillis() + 10000;
+		boolean limited = false;
+
+		while (!limited && System.currentTimeMillis() < deadline) {
+			Thread.sleep(100);
+			limited = !filter.isLoggable(newRecord("Additional site"));
+		}
+		Assertions.assertTrue(limited);
+	}
+
+	@Test
+	void testNullRecord() {
+		Assertions.assertFalse(new RateLimitFilter().isLoggable(null));
+	}
+
+	private static LogRecord newRecord(String message) {
+		LogRecord record = new LogRecord(LogLevel.LEVEL_WARNING, message);
+
+		record.setLoggerName(RateLimitFilterTest.class.getName());
+		return record;
+	}
+
+	private static class RecordCollector extends Handler {
+
+		private final List<LogRecord> records = new CopyOnWriteArrayList<>();
+
+		RecordCollector() {
+			// Just to make this class accessible to the outer class
+		}
+
+		List<LogRecord> records() {
+			return this.records;
+		}
+
+		@Override
+		public void publish(@Nullable LogRecord record) {
+			if (record != null) {
+				this.records.add(record);
+			}
+		}
+
+		@Override
+		public void flush() {
+			// Nothing to do here
+		}
+
+		@Override
+		public void close() {
+			// Nothing to do here
+		}
+
+	}
+
+}